@@ -6,6 +6,8 @@ echo Classpath: %CLASSPATH%
 echo.
 
 REM Chạy server chính
+REM Transport NIO (ít thread cho nhiều kết nối): thêm -Dserver.transport=nio
+REM Protocol nhị phân BIN1 (mặc định text): thêm -Dserver.protocol=binary
 java -cp %CLASSPATH% server.core.Server
 
 echo.
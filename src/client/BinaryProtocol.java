@@ -0,0 +1,243 @@
+package client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * BINARY PROTOCOL (BIN1) - PHÍA CLIENT
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Bản client của server.network.BinaryProtocol (mô tả đầy đủ opcode ở đó):
+ * - Frame: [varint N][1 byte opcode][N-1 byte payload]
+ * - Client → server: chỉ opcode TEXT
+ * - Server → client: decode ngược lại đúng chuỗi text cũ (PLAYER_LIST|...,
+ * DRAW;K♠...) → các Screen không cần sửa gì
+ *
+ * Giữ bảng session ID → username từ các frame USER_DEF.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+class BinaryProtocol {
+    static final String VERSION = "BIN1";
+    private static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private static final byte OP_TEXT = 0x00;
+    private static final byte OP_USER_DEF = 0x01;
+    private static final byte OP_YOUR_TURN = 0x10;
+    private static final byte OP_WAIT = 0x11;
+    private static final byte OP_NOT_YOUR_TURN = 0x12;
+    private static final byte OP_DRAW = 0x13;
+    private static final byte OP_PLAYER_LIST = 0x20;
+    private static final byte OP_READY_STATUS = 0x21;
+    private static final byte OP_ROOM_UPDATE = 0x22;
+    private static final byte OP_SHOW_HANDS_ALL = 0x23;
+    private static final byte OP_HAND_RANKS = 0x24;
+
+    private static final String[] SUITS = { "♠", "♥", "♦", "♣" };
+    private static final String[] RANKS = { "2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K", "A" };
+    private static final String[] STATUSES = { "free", "busy", "playing" };
+
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+    /**
+     * Đóng gói 1 lệnh text thành frame BIN1
+     */
+    static byte[] encodeText(String msg) {
+        byte[] bytes = msg.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + 6);
+        int length = bytes.length + 1;
+        while ((length & ~0x7F) != 0) {
+            out.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.write(length);
+        out.write(OP_TEXT);
+        out.write(bytes, 0, bytes.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Đọc frame tới khi có 1 message (bỏ qua USER_DEF) và trả về dạng text
+     */
+    String readMessage(DataInputStream in) throws IOException {
+        while (true) {
+            int length = readVarint(in);
+            if (length < 1 || length > MAX_FRAME_SIZE) {
+                throw new IOException("Độ dài frame không hợp lệ: " + length);
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            Reader r = new Reader(body);
+            byte opcode = (byte) r.readByte();
+            if (opcode == OP_USER_DEF) {
+                int id = r.readVarint();
+                names.put(id, r.readRest());
+                continue;
+            }
+            return decode(opcode, r);
+        }
+    }
+
+    private String decode(byte opcode, Reader r) throws IOException {
+        StringBuilder sb;
+        switch (opcode) {
+            case OP_TEXT:
+                return r.readRest();
+            case OP_YOUR_TURN:
+                return "YOUR_TURN";
+            case OP_WAIT:
+                return "WAIT";
+            case OP_NOT_YOUR_TURN:
+                return "NOT_YOUR_TURN";
+            case OP_DRAW:
+                return "DRAW;" + card(r.readByte());
+            case OP_PLAYER_LIST:
+                sb = new StringBuilder("PLAYER_LIST|");
+                while (r.hasMore()) {
+                    sb.append(name(r.readVarint())).append(":").append(status(r.readByte()))
+                            .append(":").append(r.readZigzag()).append("|");
+                }
+                return sb.toString();
+            case OP_READY_STATUS:
+                sb = new StringBuilder("READY_STATUS|");
+                while (r.hasMore()) {
+                    sb.append(name(r.readVarint())).append(":").append(r.readByte() != 0).append("|");
+                }
+                return sb.toString();
+            case OP_ROOM_UPDATE:
+                sb = new StringBuilder("ROOM_UPDATE|");
+                sb.append(r.readString()).append("|").append(r.readZigzag()).append("|");
+                boolean first = true;
+                while (r.hasMore()) {
+                    if (!first) {
+                        sb.append(",");
+                    }
+                    sb.append(name(r.readVarint()));
+                    first = false;
+                }
+                return sb.toString();
+            case OP_SHOW_HANDS_ALL:
+                sb = new StringBuilder("SHOW_HANDS_ALL|");
+                while (r.hasMore()) {
+                    sb.append(name(r.readVarint())).append("=");
+                    int count = r.readByte();
+                    for (int i = 0; i < count; i++) {
+                        if (i > 0) {
+                            sb.append(",");
+                        }
+                        sb.append(card(r.readByte()));
+                    }
+                    sb.append("|");
+                }
+                return sb.toString();
+            case OP_HAND_RANKS:
+                sb = new StringBuilder("HAND_RANKS|");
+                while (r.hasMore()) {
+                    sb.append(name(r.readVarint())).append(":").append(r.readByte())
+                            .append(":").append(r.readString()).append(":").append(r.readZigzag()).append("|");
+                }
+                return sb.toString();
+            default:
+                throw new IOException("Opcode không hỗ trợ: " + opcode);
+        }
+    }
+
+    private String name(int id) throws IOException {
+        String name = names.get(id);
+        if (name == null) {
+            throw new IOException("Session ID chưa được định nghĩa: " + id);
+        }
+        return name;
+    }
+
+    private static String status(int b) throws IOException {
+        if (b >= STATUSES.length) {
+            throw new IOException("Status không hợp lệ: " + b);
+        }
+        return STATUSES[b];
+    }
+
+    private static String card(int b) throws IOException {
+        if (b >= SUITS.length * RANKS.length) {
+            throw new IOException("Lá bài không hợp lệ: " + b);
+        }
+        return RANKS[b % RANKS.length] + SUITS[b / RANKS.length];
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint quá dài");
+    }
+
+    /**
+     * Con trỏ đọc payload của 1 frame
+     */
+    private static class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        boolean hasMore() {
+            return pos < buf.length;
+        }
+
+        int readByte() throws IOException {
+            if (pos >= buf.length) {
+                throw new EOFException("Frame bị cắt");
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Varint quá dài");
+        }
+
+        int readZigzag() throws IOException {
+            int v = readVarint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        String readString() throws IOException {
+            int length = readVarint();
+            if (length > buf.length - pos) {
+                throw new EOFException("Frame bị cắt");
+            }
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+
+        String readRest() {
+            String s = new String(buf, pos, buf.length - pos, StandardCharsets.UTF_8);
+            pos = buf.length;
+            return s;
+        }
+    }
+}
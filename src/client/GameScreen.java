@@ -331,10 +331,12 @@ public class GameScreen extends JFrame {
         // ═════════════════════════════════════════════════════════════════════════
         // GỬI NGAY KHI VÀO PHÒNG
         // ═════════════════════════════════════════════════════════════════════════
+        // 📤 GỬI: "UNSUBSCRIBE;lobby.rooms" → không nhận ROOMS_LIST khi ở trong phòng
         // 📤 GỬI: "GET_PLAYER_LIST" → nhận "PLAYER_LIST|..."
         // 📤 GỬI: "GET_ROOM_UPDATE;roomName" → nhận "ROOM_UPDATE|..."
         // ═════════════════════════════════════════════════════════════════════════
         try {
+            network.sendMsg("UNSUBSCRIBE;lobby.rooms"); // 📤 GỬI: "UNSUBSCRIBE;lobby.rooms" (server cũ bỏ qua)
             network.sendMsg("GET_PLAYER_LIST"); // 📤 GỬI: "GET_PLAYER_LIST" → 📨 NHẬN: "PLAYER_LIST|..."
             network.sendMsg("GET_ROOM_UPDATE;" + roomName); // 📤 GỬI: "GET_ROOM_UPDATE;roomName" → 📨 NHẬN:
                                                             // "ROOM_UPDATE|..."
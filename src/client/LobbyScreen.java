@@ -61,6 +61,9 @@ public class LobbyScreen extends JFrame {
 
         // ===== Request danh sách người online + phòng ngay khi vào lobby =====
         try {
+            // Bật lại broadcast sảnh (GameScreen đã tắt lobby.rooms khi vào phòng)
+            network.sendMsg("SUBSCRIBE;lobby.players"); // 📤 GỬI: "SUBSCRIBE;lobby.players"
+            network.sendMsg("SUBSCRIBE;lobby.rooms"); // 📤 GỬI: "SUBSCRIBE;lobby.rooms"
             System.out.println("📤 [Lobby] Request GET_PLAYER_LIST");
             network.sendMsg("GET_PLAYER_LIST"); // 📤 GỬI: "GET_PLAYER_LIST" → 📨 NHẬN:
                                                 // "PLAYER_LIST|user1:status:pts|user2:..."
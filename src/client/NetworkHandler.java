@@ -2,6 +2,8 @@ package client;
 
 import java.io.*;
 import java.net.*;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * ═══════════════════════════════════════════════════════════════════════════
@@ -62,7 +64,11 @@ import java.net.*;
  * Xem chi tiết đầy đủ ở PROTOCOL.md
  * 
  * GỬI ĐI (Client → Server):
- * • "LOGIN;username;password"
+ * • "LOGIN;username;password;BIN1,PRESENCE1" (capability xin thêm, server trả
+ * "LOGIN_OK;<các capability đồng ý>"; server cũ trả "LOGIN_OK")
+ * - BIN1: frame nhị phân thay cho writeUTF
+ * - PRESENCE1: nhận PRESENCE_SNAPSHOT/PRESENCE_DELTA thay cho PLAYER_LIST
+ * • "SUBSCRIBE;lobby.rooms" / "UNSUBSCRIBE;lobby.rooms" (hoặc lobby.players)
  * • "GET_PLAYER_LIST"
  * • "GET_ROOMS"
  * • "CREATE"
@@ -99,6 +105,10 @@ public class NetworkHandler {
     private DataInputStream in;
     private DataOutputStream out;
     private Thread listenThread;
+    // Khác null khi server đồng ý BIN1 (tắt bằng -Dclient.protocol=text)
+    private volatile BinaryProtocol binary;
+    // Danh sách online (dùng khi server đồng ý PRESENCE1)
+    private final PresenceModel presence = new PresenceModel();
 
     public interface MessageHandler {
         void onMessage(String msg);
@@ -143,13 +153,58 @@ public class NetworkHandler {
     }
 
     public boolean login(String username, String password) throws IOException {
-        out.writeUTF("LOGIN;" + username + ";" + password);
+        boolean wantBinary = !"text".equalsIgnoreCase(System.getProperty("client.protocol"));
+        String caps = (wantBinary ? BinaryProtocol.VERSION + "," : "") + PresenceModel.CAPABILITY;
+        out.writeUTF("LOGIN;" + username + ";" + password + ";" + caps);
         String response = in.readUTF();
+        if (response.startsWith("LOGIN_OK;")) {
+            List<String> accepted = Arrays.asList(response.substring("LOGIN_OK;".length()).split(","));
+            if (accepted.contains(BinaryProtocol.VERSION)) {
+                binary = new BinaryProtocol();
+            }
+            return true;
+        }
         return response.equals("LOGIN_OK");
     }
 
-    public void sendMsg(String msg) throws IOException {
-        out.writeUTF(msg);
+
+    public synchronized void sendMsg(String msg) throws IOException {
+        if (binary != null) {
+            out.write(BinaryProtocol.encodeText(msg));
+        } else {
+            out.writeUTF(msg);
+        }
+    }
+
+    /**
+     * Đọc 1 message từ server (writeUTF hoặc BIN1 tùy kết quả LOGIN)
+     */
+    private String readMsg() throws IOException {
+        BinaryProtocol codec = binary;
+        return codec != null ? codec.readMessage(in) : in.readUTF();
+    }
+
+    /**
+     * PRESENCE_SNAPSHOT/PRESENCE_DELTA → áp dụng vào danh sách và trả về
+     * "PLAYER_LIST|..." đầy đủ; null nếu không có gì cần hiển thị lại.
+     * Message khác → trả nguyên.
+     */
+    private String translatePresence(String msg) throws IOException {
+        if (!PresenceModel.isPresenceMessage(msg)) {
+            return msg;
+        }
+        switch (presence.apply(msg)) {
+            case APPLIED:
+                return presence.toPlayerListMessage();
+            case GAP:
+                if (presence.shouldResync()) {
+                    System.out.println("🔄 [NetworkHandler] Hụt seq presence → GET_PLAYER_LIST");
+                    sendMsg("GET_PLAYER_LIST"); // 📤 GỬI: "GET_PLAYER_LIST" → 📨 NHẬN: "PRESENCE_SNAPSHOT|..."
+                }
+                return null;
+            default:
+                return null;
+        }
     }
 
     public void startListening(MessageHandler handler) {
@@ -159,8 +214,10 @@ public class NetworkHandler {
             try {
                 System.out.println("✅ [NetworkHandler] Listener thread started, waiting for messages...");
                 while (!Thread.currentThread().isInterrupted()) {
-                    String msg = in.readUTF();
-                    handler.onMessage(msg);
+                    String msg = translatePresence(readMsg());
+                    if (msg != null) {
+                        handler.onMessage(msg);
+                    }
                 }
             } catch (IOException e) {
                 System.out.println("⚠️ Kết nối bị ngắt khi lắng nghe.");
@@ -0,0 +1,110 @@
+package client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * PRESENCE MODEL - DANH SÁCH ONLINE DỰNG TỪ SNAPSHOT + DELTA
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Bản client của server.managers.PresenceManager:
+ * - "PRESENCE_SNAPSHOT|seq|user:status:pts|..." → thay toàn bộ danh sách
+ * - "PRESENCE_DELTA|seq|+user:status:pts|-user|..." → chỉ áp dụng khi seq
+ * đúng bằng seq hiện tại + 1
+ *
+ * Hụt seq (delta bị server bỏ khi client tụt lại), hoặc nhận delta khi chưa
+ * có snapshot nào → NetworkHandler gửi GET_PLAYER_LIST để lấy snapshot mới,
+ * tối đa 1 lần mỗi RESYNC_INTERVAL_MS.
+ *
+ * Sau mỗi lần áp dụng, NetworkHandler chuyển danh sách thành chuỗi
+ * "PLAYER_LIST|..." như cũ → các Screen không cần sửa gì.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+class PresenceModel {
+    static final String CAPABILITY = "PRESENCE1";
+    private static final long RESYNC_INTERVAL_MS = 2000;
+
+    enum Result {
+        APPLIED, IGNORED, GAP
+    }
+
+    // username → "status:pts" (giữ thứ tự server gửi)
+    private final Map<String, String> players = new LinkedHashMap<>();
+    private long seq = -1; // -1 = chưa có snapshot
+    private long lastResyncAt;
+
+    static boolean isPresenceMessage(String msg) {
+        return msg.startsWith("PRESENCE_SNAPSHOT|") || msg.startsWith("PRESENCE_DELTA|");
+    }
+
+    synchronized Result apply(String msg) {
+        String[] parts = msg.split("\\|");
+        long msgSeq;
+        try {
+            msgSeq = Long.parseLong(parts[1]);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            return Result.IGNORED;
+        }
+
+        if (parts[0].equals("PRESENCE_SNAPSHOT")) {
+            players.clear();
+            for (int i = 2; i < parts.length; i++) {
+                put(parts[i]);
+            }
+            seq = msgSeq;
+            lastResyncAt = 0;
+            return Result.APPLIED;
+        }
+
+        if (seq >= 0 && msgSeq <= seq) {
+            return Result.IGNORED; // delta cũ hơn snapshot
+        }
+        if (seq < 0 || msgSeq != seq + 1) {
+            // chưa có snapshot (bản đầu bị mất) / hụt seq → xin lại snapshot
+            return Result.GAP;
+        }
+        for (int i = 2; i < parts.length; i++) {
+            String entry = parts[i];
+            if (entry.startsWith("+")) {
+                put(entry.substring(1));
+            } else if (entry.startsWith("-")) {
+                players.remove(entry.substring(1));
+            }
+        }
+        seq = msgSeq;
+        return Result.APPLIED;
+    }
+
+    /**
+     * true nếu được phép gửi GET_PLAYER_LIST lúc này (chống gửi dồn dập khi
+     * nhiều delta liên tiếp đều hụt seq)
+     */
+    synchronized boolean shouldResync() {
+        long now = System.currentTimeMillis();
+        if (now - lastResyncAt < RESYNC_INTERVAL_MS) {
+            return false;
+        }
+        lastResyncAt = now;
+        return true;
+    }
+
+    /**
+     * Danh sách hiện tại dạng "PLAYER_LIST|user1:status:pts|..."
+     */
+    synchronized String toPlayerListMessage() {
+        StringBuilder sb = new StringBuilder("PLAYER_LIST|");
+        for (Map.Entry<String, String> e : players.entrySet()) {
+            sb.append(e.getKey()).append(":").append(e.getValue()).append("|");
+        }
+        return sb.toString();
+    }
+
+    private void put(String entry) {
+        int idx = entry.indexOf(':');
+        if (idx > 0) {
+            players.put(entry.substring(0, idx), entry.substring(idx + 1));
+        }
+    }
+}
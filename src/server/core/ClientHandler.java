@@ -4,10 +4,20 @@ import server.handlers.RoomCommandHandler;
 import server.handlers.GameCommandHandler;
 import server.handlers.AuthenticationHandler;
 import server.managers.BroadcastHelper;
+import server.managers.PresenceManager;
+import server.managers.TopicManager;
 import server.database.Database;
+import server.game.OddsService;
+import server.network.BinaryProtocol;
+import server.network.BlockingTransport;
+import server.network.ConnectionListener;
+import server.network.OutboundFrame;
+import server.network.SlowConsumerException;
+import server.network.Transport;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * ═══════════════════════════════════════════════════════════════════════════
@@ -35,6 +45,10 @@ import java.util.*;
  * GỬI: "GET_ROOMS"
  * TRẢ VỀ: "ROOMS_LIST|room1:count1/6|room2:count2/6|..."
  * 
+ * GỬI: "SUBSCRIBE;lobby.rooms" / "UNSUBSCRIBE;lobby.rooms" (hoặc lobby.players)
+ * LOGIC: Bật/tắt nhận broadcast ROOMS_LIST / PLAYER_LIST (TopicManager),
+ * không trả về gì. Mặc định đã đăng ký cả 2 sau khi login
+ * 
  * GỬI: "CREATE"
  * TRẢ VỀ: "ROOM_CREATED;RoomName" → sau đó "ROOM_UPDATE|..."
  * LOGIC: Tên phòng = "Room_" + username, người tạo là host
@@ -75,7 +89,8 @@ import java.util.*;
  * 🔄 FLOW XỬ LÝ:
  * ═══════════════════════════════════════════════════════════════════════════
  * 
- * 1. Client kết nối → ClientHandler.run() bắt đầu
+ * 1. Client kết nối → ClientHandler.run() bắt đầu (blocking)
+ * hoặc NioServer gọi onMessage() cho từng message (NIO)
  * 2. Đợi LOGIN message → authenticate hoặc tạo tài khoản mới
  * 3. Loop lắng nghe messages:
  * - Request info (GET_*) → gửi trả về data
@@ -94,13 +109,20 @@ import java.util.*;
  * 
  * ═══════════════════════════════════════════════════════════════════════════
  */
-public class ClientHandler extends Thread {
-    private Socket socket;// Socket nhan tu player
-    private DataInputStream in; // Input
-    private DataOutputStream out;// Output
+public class ClientHandler implements Runnable, ConnectionListener {
+    private Socket socket;// Socket nhan tu player (chỉ dùng ở chế độ blocking)
+    private DataInputStream in; // Input (chỉ dùng ở chế độ blocking)
+    private Transport transport; // Output: BlockingTransport hoặc NioConnection
     public String username; // username
-    private String status = "free"; // free | busy | playing
-    private String currentRoom;
+    private volatile Integer playerId; // PlayerID trong database (có từ lúc đăng nhập)
+    private volatile String status = "free"; // free | busy | playing (thread của phòng cũng ghi)
+    private volatile String currentRoom; // thread của phòng đặt lúc JOIN thành công
+    private volatile int seat = -1; // ghế trong ván hiện tại (GameLogic đặt lúc bắt đầu ván)
+    private boolean loginReceived = false; // NIO: message đầu tiên là LOGIN
+    private volatile boolean presenceDeltas = false; // client nhận PRESENCE_DELTA (capability PRESENCE1)
+    private volatile boolean odds = false; // client nhận ODDS sau mỗi lần rút (capability ODDS1)
+    private final AtomicBoolean disconnected = new AtomicBoolean(false);
+    private final long connectedAt = System.nanoTime(); // đo độ trễ connect → LOGIN_OK
 
     private Map<String, RoomThread> rooms;// danh sach phong
     private List<ClientHandler> activeClients;
@@ -112,15 +134,31 @@ public class ClientHandler extends Thread {
     private GameCommandHandler gameHandler;
     private BroadcastHelper broadcastHelper;
 
-    public ClientHandler(Socket socket, Map<String, String> accounts, Map<String, RoomThread> rooms,
-            List<ClientHandler> activeClients, Database db) {
+    /**
+     * Chế độ blocking: mỗi client 1 thread chạy run()
+     */
+    public ClientHandler(Socket socket, Map<String, RoomThread> rooms, List<ClientHandler> activeClients,
+            Database db) {
+        this(rooms, activeClients, db);
         this.socket = socket;
+    }
+
+    /**
+     * Chế độ NIO: không có thread riêng, message đến qua onMessage()
+     */
+    public ClientHandler(Transport transport, Map<String, RoomThread> rooms, List<ClientHandler> activeClients,
+            Database db) {
+        this(rooms, activeClients, db);
+        this.transport = transport;
+    }
+
+    private ClientHandler(Map<String, RoomThread> rooms, List<ClientHandler> activeClients, Database db) {
         this.rooms = rooms;
         this.activeClients = activeClients;
         this.db = db;
 
         // Initialize helper classes
-        this.authHandler = new AuthenticationHandler(db, accounts);
+        this.authHandler = new AuthenticationHandler(db);
         this.roomHandler = new RoomCommandHandler(rooms, db);
         this.gameHandler = new GameCommandHandler(rooms, activeClients);
         this.broadcastHelper = new BroadcastHelper(activeClients);
@@ -139,40 +177,22 @@ public class ClientHandler extends Thread {
         }
     }
 
-    //
+    // Chế độ blocking
     @Override //
     public void run() {
         try {
             in = new DataInputStream(socket.getInputStream());
-            out = new DataOutputStream(socket.getOutputStream());
+            transport = new BlockingTransport(socket, String.valueOf(socket.getRemoteSocketAddress()));
 
             // Đăng nhập
             String loginMsg = in.readUTF(); // 📨 NHẬN: "LOGIN;username;password"
-            if (loginMsg.startsWith("LOGIN;")) {
-                String[] parts = loginMsg.split(";");
-                String user = parts[1];
-                String pass = parts[2];
-
-                AuthenticationHandler.LoginResult loginResult = authHandler.handleLogin(user, pass);
-
-                if (loginResult.success) {
-                    out.writeUTF("LOGIN_OK"); // 📤 GỬI: "LOGIN_OK" → đăng nhập thành công
-                    username = user;
-                    Server.playerScores.putIfAbsent(user, loginResult.points);
-                    addActiveClient();
-                    System.out.println("✅ " + user + " đăng nhập thành công.");
-                    sendPlayerListToClient(); // snapshot
-                    Server.broadcastPlayerList(); // thong bao moi nguoi
-                } else {
-                    out.writeUTF("LOGIN_FAIL"); // 📤 GỬI: "LOGIN_FAIL" → đăng nhập thất bại
-                    socket.close();
-                    return;
-                }
+            if (loginMsg.startsWith("LOGIN;") && !handleLogin(loginMsg)) {
+                return;
             }
 
             // Message handling loop
             while (!socket.isClosed()) {
-                String msg = in.readUTF();
+                String msg = transport.isBinary() ? BinaryProtocol.readMessage(in) : in.readUTF();
                 if (!handleMessage(msg)) {
                     break;
                 }
@@ -181,14 +201,119 @@ public class ClientHandler extends Thread {
         } catch (IOException e) {
             System.out.println("⚠️ Client ngắt kết nối: " + username);
         } finally {
-            removeActiveClient();
-            if (currentRoom != null && rooms.containsKey(currentRoom)) {
-                rooms.get(currentRoom).removePlayer(this);// goi den thread phong tuong ung de loai bo nguoi choi
+            cleanup();
+        }
+    }
+
+    // Chế độ NIO: gọi tuần tự cho từng message của kết nối này
+    @Override
+    public void onMessage(String msg) {
+        if (disconnected.get()) {
+            return;
+        }
+        try {
+            if (!loginReceived) {
+                loginReceived = true;
+                if (msg.startsWith("LOGIN;")) { // 📨 NHẬN: "LOGIN;username;password"
+                    handleLogin(msg);
+                }
+                return;
+            }
+            if (!handleMessage(msg)) {
+                transport.close();
             }
+        } catch (IOException e) {
+            transport.close();
+        }
+    }
 
-            // Broadcast danh sách người chơi khi có người logout
-            Server.broadcastPlayerList();
+    // Chế độ NIO: kết nối đã đóng
+    @Override
+    public void onClose() {
+        if (!disconnected.get()) {
+            System.out.println("⚠️ Client ngắt kết nối: " + username);
+        }
+        cleanup();
+    }
+
+    /**
+     * Xử lý LOGIN;username;password[;capability1,capability2]
+     * Capability: BIN1 (BinaryProtocol), PRESENCE1 (PresenceManager),
+     * ODDS1 (OddsService)
+     *
+     * @return true nếu đăng nhập thành công
+     */
+    private boolean handleLogin(String loginMsg) {
+        String[] parts = loginMsg.split(";");
+        String user = parts[1];
+        String pass = parts[2];
+
+        AuthenticationHandler.LoginResult loginResult = authHandler.handleLogin(user, pass);
+
+        if (loginResult.success) {
+            // Capability client xin (trường thứ 4, phân cách bởi dấu phẩy)
+            List<String> requested = parts.length > 3 ? Arrays.asList(parts[3].split(",")) : Collections.emptyList();
+            boolean binary = ServerConfig.BINARY_PROTOCOL && requested.contains(BinaryProtocol.VERSION);
+            presenceDeltas = requested.contains(PresenceManager.CAPABILITY);
+            odds = requested.contains(OddsService.CAPABILITY);
+            List<String> accepted = new ArrayList<>();
+            if (binary) {
+                accepted.add(BinaryProtocol.VERSION);
+            }
+            if (presenceDeltas) {
+                accepted.add(PresenceManager.CAPABILITY);
+            }
+            if (odds) {
+                accepted.add(OddsService.CAPABILITY);
+            }
+            String ack = accepted.isEmpty() ? "LOGIN_OK" : "LOGIN_OK;" + String.join(",", accepted);
+            if (binary) {
+                try {
+                    transport.upgradeToBinary(ack); // 📤 GỬI: "LOGIN_OK;BIN1,..." → từ đây dùng BIN1
+                    ServerMetrics.increment("protocol.binary.sessions");
+                } catch (IOException e) {
+                    System.out.println("❌ Gửi thất bại tới " + user);
+                }
+            } else {
+                sendMessage(ack); // 📤 GỬI: "LOGIN_OK" (hoặc "LOGIN_OK;PRESENCE1") → đăng nhập thành công
+            }
+            ServerMetrics.histogram("login.connectToLoginOk").recordNanos(System.nanoTime() - connectedAt);
+            username = user;
+            playerId = loginResult.playerId;
+            Server.playerScores.putIfAbsent(user, loginResult.points);
+            addActiveClient();
+            Server.topics.subscribe(TopicManager.LOBBY_PLAYERS, this);
+            Server.topics.subscribe(TopicManager.LOBBY_ROOMS, this);
+            System.out.println("✅ " + user + " đăng nhập thành công.");
+            sendPlayerListToClient(); // snapshot
+            Server.broadcastPlayerList(); // thong bao moi nguoi
+            return true;
+        }
+
+        sendMessage("LOGIN_FAIL"); // 📤 GỬI: "LOGIN_FAIL" → đăng nhập thất bại
+        transport.close();
+        return false;
+    }
+
+    /**
+     * Dọn dẹp khi client ngắt kết nối (chỉ chạy 1 lần)
+     */
+    private void cleanup() {
+        if (!disconnected.compareAndSet(false, true)) {
+            return;
+        }
+        removeActiveClient();
+        Server.topics.unsubscribeAll(this);
+        if (currentRoom != null && rooms.containsKey(currentRoom)) {
+            rooms.get(currentRoom).removePlayer(this);// goi den thread phong tuong ung de loai bo nguoi choi
+        }
+
+        // Broadcast danh sách người chơi khi có người logout
+        Server.broadcastPlayerList();
 
+        if (transport != null) {
+            transport.close();
+        } else if (socket != null) {
             try {
                 socket.close();
             } catch (IOException e) {
@@ -222,6 +347,18 @@ public class ClientHandler extends Thread {
             return true;
         }
 
+        if (msg.startsWith("SUBSCRIBE;") || msg.startsWith("UNSUBSCRIBE;")) { // 📨 NHẬN: "SUBSCRIBE;lobby.rooms"
+            String topic = msg.substring(msg.indexOf(';') + 1);
+            if (!TopicManager.isClientTopic(topic)) {
+                System.out.println("⚠️ Topic không hợp lệ từ " + username + ": " + topic);
+            } else if (msg.startsWith("SUBSCRIBE;")) {
+                Server.topics.subscribe(topic, this);
+            } else {
+                Server.topics.unsubscribe(topic, this);
+            }
+            return true;
+        }
+
         if (msg.equalsIgnoreCase("GET_HISTORY")) { // 📨 NHẬN: "GET_HISTORY" → request lịch sử trận đấu
             String history = db.getMatchHistory(20);
             sendMessage("HISTORY_DATA|" + history); // 📤 GỬI: "HISTORY_DATA|matchId|startTime|..."
@@ -256,11 +393,11 @@ public class ClientHandler extends Thread {
             RoomCommandHandler.RoomResult result = roomHandler.handleCreateRoom(this);
             if (result.success) {
                 currentRoom = result.roomName;
-                out.writeUTF("ROOM_CREATED;" + result.roomName); // 📤 GỬI: "ROOM_CREATED;RoomName" → tạo phòng thành
-                                                                 // công
+                sendMessage("ROOM_CREATED;" + result.roomName); // 📤 GỬI: "ROOM_CREATED;RoomName" → tạo phòng thành
+                                                                // công
                 Server.broadcastRoomsList();
             } else {
-                out.writeUTF("CREATE_FAIL;" + result.status); // 📤 GỬI: "CREATE_FAIL;..." → tạo phòng thất bại
+                sendMessage("CREATE_FAIL;" + result.status); // 📤 GỬI: "CREATE_FAIL;..." → tạo phòng thất bại
             }
             return true;
         }
@@ -268,16 +405,10 @@ public class ClientHandler extends Thread {
         if (msg.startsWith("JOIN;")) { // 📨 NHẬN: "JOIN;RoomName" → tham gia phòng
             String roomName = msg.split(";")[1];
             RoomCommandHandler.RoomResult result = roomHandler.handleJoinRoom(this, roomName);
-            if (result.success) {
-                currentRoom = result.roomName;
-                out.writeUTF("JOIN_OK;" + result.roomName); // 📤 GỬI: "JOIN_OK;RoomName" → tham gia thành công
-                status = "busy";
-                Server.broadcastRoomsList();
-            } else if (result.status.equals("FULL")) {
-                out.writeUTF("ROOM_FULL"); // 📤 GỬI: "ROOM_FULL" → phòng đầy
-            } else {
-                out.writeUTF("JOIN_FAIL"); // 📤 GỬI: "JOIN_FAIL" → tham gia thất bại
+            if (!result.success) {
+                sendMessage("JOIN_FAIL"); // 📤 GỬI: "JOIN_FAIL" → không có phòng
             }
+            // Có phòng: RoomThread.addPlayer gửi JOIN_OK;RoomName / ROOM_FULL / JOIN_FAIL
             return true;
         }
 
@@ -353,6 +484,11 @@ public class ClientHandler extends Thread {
         return true;
     }
 
+    // Đã ngắt kết nối (cleanup() đã chạy hoặc đang chạy)
+    public boolean isDisconnected() {
+        return disconnected.get();
+    }
+
     public void resetCurrentRoom() {
         this.currentRoom = null;
     }
@@ -375,21 +511,86 @@ public class ClientHandler extends Thread {
         this.currentRoom = roomName;
     }
 
+    // PlayerID của phiên (null nếu database lỗi lúc đăng nhập) → ghi database không cần tra lại
+    public Integer getPlayerId() {
+        return playerId;
+    }
+
+    // Ghế trong ván: GameLogic tra bài/số lần rút theo ghế, không theo username
+    public int getSeat() {
+        return seat;
+    }
+
+    public void setSeat(int seat) {
+        this.seat = seat;
+    }
+
     // Gửi danh sách người chơi cho client này (không broadcast)
     private void sendPlayerListToClient() {
+        if (presenceDeltas) {
+            Server.presence.sendSnapshot(this); // 📤 GỬI: "PRESENCE_SNAPSHOT|seq|..."
+            return;
+        }
         String msg = broadcastHelper.buildPlayerListMessage();
         sendMessage(msg);
     }
 
+    /**
+     * true nếu client nhận PRESENCE_DELTA thay cho PLAYER_LIST đầy đủ
+     */
+    public boolean supportsPresenceDeltas() {
+        return presenceDeltas;
+    }
+
+    /**
+     * true nếu client muốn nhận ODDS (xác suất thắng) sau mỗi lần rút
+     */
+    public boolean supportsOdds() {
+        return odds;
+    }
+
     // Gửi danh sách phòng hiện có cho client này
     private void sendRoomsListToClient() {
         String msg = broadcastHelper.buildRoomsListMessage(rooms);
         sendMessage(msg);
     }
 
+    /**
+     * Số frame đang chờ gửi tới client này (0 nếu chưa có kết nối)
+     */
+    public int getOutboundQueueDepth() {
+        return transport == null ? 0 : transport.queuedFrames();
+    }
+
+    /**
+     * Số byte đang chờ gửi tới client này
+     */
+    public long getOutboundQueueBytes() {
+        return transport == null ? 0 : transport.queuedBytes();
+    }
+
+    /**
+     * true khi client đang tụt lại (socket chậm, hàng đợi gửi dồn)
+     */
+    public boolean isSlowConsumer() {
+        return transport != null && transport.isSlow();
+    }
+
+    /**
+     * Gửi message (không chờ socket - chỉ xếp vào hàng đợi của client)
+     */
     public void sendMessage(String msg) {
+        sendFrame(new OutboundFrame(msg));
+    }
+
+    /**
+     * Gửi frame đã encode sẵn (broadcast: 1 OutboundFrame cho mọi người nhận)
+     */
+    public void sendFrame(OutboundFrame frame) {
         try {
-            out.writeUTF(msg);
+            transport.send(frame);
+        } catch (SlowConsumerException e) {
+            System.out.println("🐢 Ngắt kết nối client chậm " + username + ": " + e.getMessage());
         } catch (IOException e) {
             System.out.println("❌ Gửi thất bại tới " + username);
         }
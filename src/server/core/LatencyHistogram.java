@@ -0,0 +1,66 @@
+package server.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram độ trễ đơn giản, không khóa: bucket theo lũy thừa 2 của micro-giây
+ * (bucket i chứa giá trị trong [2^(i-1), 2^i) µs). Đủ để xem p50/p99 xấp xỉ.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1_000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Giá trị (µs) mà p% số mẫu nhỏ hơn hoặc bằng (cận trên của bucket)
+     */
+    public long percentileMicros(double p) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return i == 0 ? 0 : (1L << i) - 1;
+            }
+        }
+        return maxMicros.get();
+    }
+
+    @Override
+    public String toString() {
+        long n = count.sum();
+        if (n == 0) {
+            return "n=0";
+        }
+        return "n=" + n + " avg=" + (sumMicros.sum() / n) + "µs p50≤" + percentileMicros(50) + "µs p99≤"
+                + percentileMicros(99) + "µs max=" + maxMicros.get() + "µs";
+    }
+}
@@ -0,0 +1,94 @@
+package server.core;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * LOBBY BROADCASTER - GỘP CÁC LẦN BROADCAST SẢNH TRONG 1 CỬA SỔ THỜI GIAN
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * 1 thao tác có thể gọi broadcast sảnh nhiều lần liên tiếp (startGame đổi
+ * trạng thái 6 người → 6 lần broadcastPlayerList, rời phòng → 2-3 lần
+ * broadcastRoomsList). Thay vì gửi ngay, mỗi lần gọi chỉ đánh dấu "bẩn";
+ * lần đánh dấu đầu tiên hẹn 1 lần flush sau -Dserver.lobby.coalesceMs.
+ * Mọi thay đổi trong cửa sổ đó được gửi chung trong 1 lần flush, đọc trạng
+ * thái mới nhất lúc flush.
+ *
+ * Flush luôn chạy trên thread riêng không giữ lock nào: nơi gọi broadcast
+ * thường đang giữ lock phòng (RoomThread/RoomPlayerManager), mà dựng
+ * ROOMS_LIST lại cần lock của các phòng khác → gửi ngay trong thread gọi
+ * có thể deadlock khi 2 phòng cùng đổi người.
+ *
+ * coalesceMs = 0 → flush ngay khi thread broadcast rảnh (vẫn gộp các lần
+ * gọi đến trong lúc đang chờ).
+ *
+ * Metrics (so sánh requested / sent = mức giảm số message):
+ * - lobby.playerList.requested / lobby.playerList.sent
+ * - lobby.roomsList.requested / lobby.roomsList.sent
+ * - lobby.coalesceDelay: từ lần đánh dấu đầu tiên tới lúc flush
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class LobbyBroadcaster {
+    private static final int PLAYER_LIST = 1;
+    private static final int ROOMS_LIST = 2;
+
+    private final int windowMs;
+    private final AtomicInteger dirty = new AtomicInteger();
+    private final ScheduledExecutorService scheduler;
+    private volatile long firstMarkedAt;
+
+    public LobbyBroadcaster(int windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lobby-broadcaster");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void requestPlayerList() {
+        ServerMetrics.increment("lobby.playerList.requested");
+        request(PLAYER_LIST);
+    }
+
+    public void requestRoomsList() {
+        ServerMetrics.increment("lobby.roomsList.requested");
+        request(ROOMS_LIST);
+    }
+
+    private void request(int flag) {
+        int before = dirty.getAndUpdate(d -> d | flag);
+        if (before == 0) {
+            // Lần đánh dấu đầu tiên của cửa sổ → hẹn flush
+            firstMarkedAt = System.nanoTime();
+            scheduler.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        ServerMetrics.histogram("lobby.coalesceDelay").recordNanos(System.nanoTime() - firstMarkedAt);
+        // Lấy + xóa cờ trước khi gửi: thay đổi xảy ra trong lúc gửi sẽ hẹn
+        // 1 lần flush mới
+        int flags = dirty.getAndSet(0);
+        try {
+            send(flags);
+        } catch (RuntimeException e) {
+            System.out.println("❌ Lỗi khi broadcast sảnh: " + e.getMessage());
+        }
+    }
+
+    private static void send(int flags) {
+        if ((flags & PLAYER_LIST) != 0) {
+            ServerMetrics.increment("lobby.playerList.sent");
+            Server.publishPlayerList();
+        }
+        if ((flags & ROOMS_LIST) != 0) {
+            ServerMetrics.increment("lobby.roomsList.sent");
+            Server.publishRoomsList();
+        }
+    }
+}
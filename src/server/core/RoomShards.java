@@ -0,0 +1,95 @@
+package server.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * ROOM SHARDS - MỖI CORE 1 VÒNG LẶP, MỖI PHÒNG GẮN CỐ ĐỊNH VÀO 1 VÒNG
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * -Dserver.rooms.shards=N vòng lặp (mặc định = số core), mỗi vòng là 1
+ * thread "room-shard-N" với hàng đợi lệnh + hẹn giờ riêng.
+ *
+ * Phòng mới được gắn vào shard đang giữ ít phòng nhất và ở đó suốt đời:
+ * - Lệnh của phòng (hộp thư RoomThread) chạy trên thread của shard
+ * - Timer lượt của phòng cũng tới hạn trên chính thread đó
+ * → trạng thái 1 phòng chỉ bao giờ bị đúng 1 thread chạm vào.
+ *
+ * Phạm vi: chỉ phòng và timer của phòng được chia shard. Kết nối vẫn thuộc
+ * transport (writer thread / event loop NIO), còn trạng thái sảnh dùng chung
+ * giữa các shard vẫn là map/list đồng thời trong Server: rooms,
+ * activeClients, playerScores, presence, topics. Mọi thay đổi lên chúng phải
+ * nguyên tử trên chính map đó (merge/compute, không get rồi put).
+ *
+ * Metrics: rooms.shard.N.rooms, rooms.shard.N.queued
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class RoomShards {
+    /**
+     * 1 vòng lặp: thread riêng + số phòng đang gắn vào
+     */
+    public static final class Shard implements Executor {
+        private final ScheduledThreadPoolExecutor loop;
+        private final AtomicInteger rooms = new AtomicInteger();
+
+        private Shard(int index) {
+            String name = "room-shard-" + index;
+            this.loop = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+            loop.setRemoveOnCancelPolicy(true);
+            ServerMetrics.gauge("rooms.shard." + index + ".rooms", rooms::get);
+            ServerMetrics.gauge("rooms.shard." + index + ".queued", () -> loop.getQueue().size());
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            loop.execute(command);
+        }
+
+        /**
+         * Bộ hẹn giờ của shard (callback chạy trên thread của shard)
+         */
+        public ScheduledExecutorService scheduler() {
+            return loop;
+        }
+
+        /**
+         * Phòng gắn vào shard này đã giải tán
+         */
+        public void release() {
+            rooms.decrementAndGet();
+        }
+    }
+
+    private static final Shard[] SHARDS = new Shard[Math.max(1, ServerConfig.ROOM_SHARDS)];
+
+    static {
+        for (int i = 0; i < SHARDS.length; i++) {
+            SHARDS[i] = new Shard(i);
+        }
+    }
+
+    private RoomShards() {
+    }
+
+    /**
+     * Chọn shard cho phòng mới (ít phòng nhất)
+     */
+    public static synchronized Shard assign() {
+        Shard best = SHARDS[0];
+        for (Shard shard : SHARDS) {
+            if (shard.rooms.get() < best.rooms.get()) {
+                best = shard;
+            }
+        }
+        best.rooms.incrementAndGet();
+        return best;
+    }
+}
@@ -8,6 +8,7 @@ import server.managers.RoomPlayerManager;
 import server.managers.GameFlowManager;
 import server.managers.KickManager;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * ═══════════════════════════════════════════════════════════════════════════
@@ -19,6 +20,17 @@ import java.util.*;
  * - Logic game (rút bài, turn-based, timeout)
  * - Tính điểm & xếp hạng
  * 
+ * ⚙️ MÔ HÌNH ACTOR (không còn thread riêng cho mỗi phòng):
+ * - Mọi lệnh (JOIN, LEAVE, READY, START, DRAW, KICK, timeout...) được xếp
+ * vào hộp thư của phòng và chạy lần lượt, không bao giờ song song →
+ * GameFlowManager/RoomPlayerManager/KickManager không cần khóa
+ * - Hộp thư = vòng lặp shard mà phòng được gắn vào lúc tạo (RoomShards,
+ * mỗi core 1 thread) → hàng nghìn phòng dùng chung vài thread, timer lượt
+ * cũng tới hạn trên đúng thread đó
+ * - Lệnh trả về ngay; kết quả gửi cho client bằng message như trước
+ * - Đọc trạng thái (isFull, getPlayerCount) không qua hộp thư
+ * - Metrics: rooms.commands, rooms.mailboxWait
+ * 
  * ═══════════════════════════════════════════════════════════════════════════
  * 📡 PROTOCOL MESSAGES GỬI ĐI (Server → Client):
  * ═══════════════════════════════════════════════════════════════════════════
@@ -124,8 +136,12 @@ import java.util.*;
  * 
  * ═══════════════════════════════════════════════════════════════════════════
  */
-public class RoomThread extends Thread {
+public class RoomThread {
     private String roomName;
+    // Vòng lặp (1 thread) mà phòng được gắn vào suốt đời; hàng đợi của shard
+    // chính là hộp thư của phòng (FIFO, 1 thread → lệnh chạy lần lượt)
+    private final RoomShards.Shard shard = RoomShards.assign();
+    private boolean closed; // phòng đã giải tán (chỉ đọc/ghi trên thread của shard)
     private List<ClientHandler> players = Collections.synchronizedList(new ArrayList<>());
     private Map<String, Boolean> playerReady = new HashMap<>(); // Trạng thái sẵn sàng của từng người
 
@@ -149,69 +165,150 @@ public class RoomThread extends Thread {
         this.gameFlowManager = new GameFlowManager(roomName, players, db, gameState, broadcastManager, playerManager,
                 scoreManager);
         this.kickManager = new KickManager(roomName, players, gameState, playerManager, scoreManager, broadcastManager);
+        System.out.println("🧩 Phòng " + roomName + " đã sẵn sàng.");
     }
 
-    public synchronized boolean isFull() {
-        return playerManager.isFull();
+    /**
+     * Xếp lệnh vào hộp thư của phòng (trả về ngay, lệnh chạy sau theo thứ tự)
+     */
+    private void submit(Runnable command) {
+        long enqueuedAt = System.nanoTime();
+        shard.execute(() -> {
+            ServerMetrics.histogram("rooms.mailboxWait").recordNanos(System.nanoTime() - enqueuedAt);
+            ServerMetrics.increment("rooms.commands");
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                // Executor của shard nuốt lỗi im lặng → tự in ra
+                e.printStackTrace();
+            }
+        });
     }
 
-    public synchronized int getPlayerCount() {
-        return playerManager.getPlayerCount();
-    }
+    // ═══════════════════════════════════════════════════════════════
+    // ĐỌC TRẠNG THÁI (gọi từ thread bất kỳ, không qua hộp thư)
+    // ═══════════════════════════════════════════════════════════════
 
-    public synchronized void addPlayer(ClientHandler p) {
-        playerManager.addPlayer(p);
+    public boolean isFull() {
+        return playerManager.isFull();
     }
 
-    public synchronized void removePlayer(ClientHandler p) {
-        boolean roomEmpty = playerManager.removePlayer(p, gameState);
-        if (roomEmpty) {
-            this.interrupt();
-        }
+    public int getPlayerCount() {
+        return playerManager.getPlayerCount();
     }
 
     public int getPlayerIndex(ClientHandler p) {
         return playerManager.getPlayerIndex(p);
     }
 
-    public void run() {
-        System.out.println("🧩 Phòng " + roomName + " đã sẵn sàng.");
+    // Lấy thông tin phòng để hiển thị
+    public String getRoomInfo() {
+        return roomName + "|" + playerManager.getPlayerCount() + "/6";
+    }
 
-        // Chờ thread kết thúc
-        while (!Thread.currentThread().isInterrupted()) {
-            try {
-                Thread.sleep(Long.MAX_VALUE);
-            } catch (InterruptedException e) {
-                System.out.println("🛑 [" + roomName + "] đã dừng.");
-                break;
+    // ═══════════════════════════════════════════════════════════════
+    // LỆNH (xếp vào hộp thư = hàng đợi của shard, chạy tuần tự trên thread room-shard-N)
+    // ═══════════════════════════════════════════════════════════════
+
+    // Người tạo phòng (CREATE): phòng vừa tạo chưa thể đầy hay giải tán,
+    // ROOM_CREATED do thread của client gửi
+    public void addHost(ClientHandler p) {
+        submit(() -> playerManager.addPlayer(p));
+    }
+
+    /**
+     * JOIN: kiểm tra, thêm và trả lời đều chạy trong hộp thư của phòng →
+     * client nhận đúng 1 kết quả; currentRoom/status chỉ được đặt khi đã vào
+     * phòng thật
+     * 📤 GỬI: "JOIN_OK;RoomName" | "ROOM_FULL" | "JOIN_FAIL"
+     */
+    public void addPlayer(ClientHandler p) {
+        submit(() -> {
+            if (closed) {
+                // JOIN lấy phòng từ rooms trước khi người cuối rời → phòng đã
+                // giải tán, không cho vào (tránh kẹt trong phòng không còn trong rooms)
+                p.sendMessage("JOIN_FAIL"); // 📤 GỬI: "JOIN_FAIL" → phòng vừa giải tán
+                return;
+            }
+            if (players.contains(p)) {
+                p.sendMessage("JOIN_OK;" + roomName); // JOIN lặp lại: đã ở trong phòng
+                return;
+            }
+            if (!playerManager.addPlayer(p)) {
+                return; // ROOM_FULL đã gửi
             }
+            p.setCurrentRoom(roomName);
+            if (p.isDisconnected()) {
+                // Ngắt kết nối trước khi lệnh JOIN chạy: cleanup() chưa thấy
+                // currentRoom nên không xóa → tự xóa ở đây
+                removeFromRoom(p);
+                return;
+            }
+            p.sendMessage("JOIN_OK;" + roomName); // 📤 GỬI: "JOIN_OK;RoomName" → tham gia thành công
+            System.out.println("👤 " + p.username + " tham gia: " + roomName);
+            Server.broadcastRoomsList();
+        });
+    }
+
+    public void removePlayer(ClientHandler p) {
+        submit(() -> removeFromRoom(p));
+    }
+
+    // Phòng trống sau khi xóa → đã bị xóa khỏi rooms, trả chỗ cho shard
+    private void removeFromRoom(ClientHandler p) {
+        // LEAVE lặp lại / ngắt kết nối sau khi đã rời: không làm gì (tránh
+        // phòng đã giải tán xóa nhầm phòng mới trùng tên trong rooms)
+        if (closed || !players.contains(p)) {
+            return;
+        }
+        if (playerManager.removePlayer(p, gameState)) {
+            gameFlowManager.abandonMatch(); // người cuối rời giữa ván → vẫn ghi ván
+            closed = true;
+            shard.release();
         }
     }
 
-    public synchronized void setPlayerReady(String username, boolean ready) {
-        playerManager.setPlayerReady(username, ready);
+    /**
+     * Bộ hẹn giờ trên vòng lặp của phòng (TurnManager dùng cho timer lượt)
+     */
+    public ScheduledExecutorService scheduler() {
+        return shard.scheduler();
     }
 
-    public synchronized boolean allPlayersReady() {
-        return playerManager.allPlayersReady();
+    public void setPlayerReady(String username, boolean ready) {
+        submit(() -> playerManager.setPlayerReady(username, ready));
     }
 
     public void startGame() {
-        gameFlowManager.startGame();
+        submit(gameFlowManager::startGame);
     }
 
-    // legacy shuffle removed; using Deck instead
+    public void playerDrawCard(int playerID) {
+        submit(() -> gameFlowManager.playerDrawCard(playerID));
+    }
 
-    public synchronized void playerDrawCard(int playerID) {
-        gameFlowManager.playerDrawCard(playerID);
+    public void drawCard(ClientHandler player) {
+        submit(() -> gameFlowManager.drawCard(player));
     }
 
-    public synchronized void drawCard(ClientHandler player) {
-        gameFlowManager.drawCard(player);
+    // Gửi ROOM_UPDATE chỉ cho 1 client (dùng khi client mới vào phòng cần snapshot)
+    public void sendRoomUpdateTo(ClientHandler target) {
+        submit(() -> broadcastManager.sendRoomUpdateTo(target, playerManager.getHostIndex()));
     }
 
-    // Xử lý timeout - kick người chơi (called by TurnManager)
-    public synchronized void handleTimeout() {
+    // Xử lý timeout - kick người chơi (called by TurnManager qua TimerService)
+    public void handleTimeout(long timerId) {
+        submit(() -> {
+            // Bỏ qua timer của lượt cũ (người chơi đã rút ngay lúc timer tới hạn)
+            if (!gameState.getTurnManager().isActiveTimer(timerId)) {
+                ServerMetrics.increment("timers.stale");
+                return;
+            }
+            processTimeout();
+        });
+    }
+
+    private void processTimeout() {
         KickManager.TimeoutResult result = kickManager.handleTimeout();
         if (!result.shouldContinue)
             return;
@@ -230,13 +327,12 @@ public class RoomThread extends Thread {
         gameFlowManager.nextTurn();
     }
 
-    // Gửi ROOM_UPDATE chỉ cho 1 client (dùng khi client mới vào phòng cần snapshot)
-    public synchronized void sendRoomUpdateTo(ClientHandler target) {
-        broadcastManager.sendRoomUpdateTo(target, playerManager.getHostIndex());
-    }
-
     // Kick người chơi (chỉ host mới được kick, và chỉ khi chưa chơi)
     public void kickPlayer(String targetUsername, ClientHandler requester) {
+        submit(() -> processKick(targetUsername, requester));
+    }
+
+    private void processKick(String targetUsername, ClientHandler requester) {
         KickManager.KickResult result = kickManager.kickPlayer(targetUsername, requester);
 
         switch (result.status) {
@@ -258,7 +354,7 @@ public class RoomThread extends Thread {
                 targetPlayer.resetCurrentRoom();
 
                 // XÓA NGƯỜI CHƠI KHỎI PHÒNG TRƯỚC khi gửi message
-                removePlayer(targetPlayer);
+                removeFromRoom(targetPlayer);
 
                 System.out.println("👢 [Server] Kicking " + targetUsername + "...");
 
@@ -276,9 +372,4 @@ public class RoomThread extends Thread {
                 break;
         }
     }
-
-    // Lấy thông tin phòng để hiển thị
-    public synchronized String getRoomInfo() {
-        return roomName + "|" + playerManager.getPlayerCount() + "/6";
-    }
 }
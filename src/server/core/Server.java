@@ -1,6 +1,10 @@
 package server.core;
 
 import server.database.Database;
+import server.managers.PresenceManager;
+import server.managers.TopicManager;
+import server.network.NioServer;
+import server.network.OutboundFrame;
 import java.io.*;
 import java.net.*;
 import java.util.*;
@@ -13,9 +17,10 @@ import java.util.concurrent.*;
  * 
  * 🔧 CẤU HÌNH QUAN TRỌNG:
  * 
- * 1. PORT SERVER (dòng 23):
- * ServerSocket serverSocket = new ServerSocket(5000);
+ * 1. PORT SERVER (xem ServerConfig.java):
+ * java -Dserver.port=5000 ...
  * *** THAY ĐỔI 5000 THÀNH PORT KHÁC NẾU CẦN ***
+ * Transport: -Dserver.transport=blocking (mặc định) hoặc nio
  * ⚠️ Client PHẢI dùng cùng port này (xem LoginScreen.java dòng 35)
  * 
  * 2. DATABASE (xem Database.java dòng 13):
@@ -70,30 +75,52 @@ import java.util.concurrent.*;
  * ═══════════════════════════════════════════════════════════════════════════
  */
 public class Server {
-    // Dữ liệu dùng chung - Thread-safe collections
-    public static Map<String, String> accounts = new HashMap<>(); // Username -> PasswordHash
+    // Dữ liệu dùng chung giữa các room shard - Thread-safe collections (cập nhật bằng merge/compute)
     public static Map<String, RoomThread> rooms = new ConcurrentHashMap<>();
     public static List<ClientHandler> activeClients = Collections.synchronizedList(new ArrayList<>());
     public static Map<String, Integer> playerScores = new ConcurrentHashMap<>(); // Điểm của người chơi (cache)
+    public static final PresenceManager presence = new PresenceManager(); // Danh sách online có phiên bản
+    public static final TopicManager topics = new TopicManager(); // Ai nhận broadcast nào
+    public static final LobbyBroadcaster lobby = new LobbyBroadcaster(ServerConfig.LOBBY_COALESCE_MS); // Gộp broadcast sảnh
 
     // Database handler
     public static Database db;
 
     public static void main(String[] args) {
-        try (ServerSocket serverSocket = new ServerSocket(5000)) {
-            // Init database & load accounts
-            db = new Database();
-            db.ensureCardsSeeded();
-            accounts = db.loadAccounts();
+        // Init database (tài khoản nạp dần khi đăng nhập - AccountCache)
+        db = new Database();
+        db.ensureCardsSeeded();
 
-            InetAddress localHost = InetAddress.getLocalHost();
-            System.out.println("🟢 Server đang chạy trên cổng 5000");
-            System.out.println("📡 IP: " + localHost.getHostAddress());
+        ServerMetrics.gauge("sessions.active", activeClients::size);
+        ServerMetrics.gauge("rooms.active", rooms::size);
+        ServerMetrics.gauge("sessions.threadsStarted", ThreadMode::startedCount);
+        ServerMetrics.gauge("outbound.queuedFrames.total", () -> sumOutbound(false));
+        ServerMetrics.gauge("outbound.queuedFrames.max", () -> sumOutbound(true));
+        ServerMetrics.gauge("slow.clients", Server::countSlowClients);
+        ServerMetrics.gauge("topics.lobbyPlayers.subscribers", () -> topics.subscriberCount(TopicManager.LOBBY_PLAYERS));
+        ServerMetrics.gauge("topics.lobbyRooms.subscribers", () -> topics.subscriberCount(TopicManager.LOBBY_ROOMS));
+        ServerMetrics.startReporter(ServerConfig.METRICS_INTERVAL_SEC);
+
+        if (ServerConfig.isNioTransport()) {
+            runNio();
+        } else {
+            runBlocking();
+        }
+    }
+
+    /**
+     * Chế độ mặc định: mỗi client 1 thread ClientHandler
+     * (platform hoặc virtual thread tùy -Dserver.threads)
+     */
+    private static void runBlocking() {
+        long clientSeq = 0;
+        try (ServerSocket serverSocket = new ServerSocket(ServerConfig.PORT)) {
+            printStartupInfo();
 
             while (true) {
                 Socket socket = serverSocket.accept();
                 System.out.println("👤 Người dùng mới kết nối.");
-                new ClientHandler(socket, accounts, rooms, activeClients, db).start();
+                ThreadMode.start("client-" + (++clientSeq), new ClientHandler(socket, rooms, activeClients, db));
             }
 
         } catch (IOException e) {
@@ -101,6 +128,57 @@ public class Server {
         }
     }
 
+    /**
+     * Chế độ NIO (-Dserver.transport=nio): vài event loop phục vụ mọi kết nối
+     */
+    private static void runNio() {
+        try {
+            NioServer nioServer = new NioServer(ServerConfig.PORT, ServerConfig.IO_THREADS,
+                    ServerConfig.WORKER_THREADS,
+                    connection -> new ClientHandler(connection, rooms, activeClients, db));
+            printStartupInfo();
+            nioServer.serve();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void printStartupInfo() throws UnknownHostException {
+        InetAddress localHost = InetAddress.getLocalHost();
+        System.out.println("🟢 Server đang chạy trên cổng " + ServerConfig.PORT + " (transport=" + ServerConfig.TRANSPORT
+                + ", threads=" + (ThreadMode.isVirtual() ? "virtual" : "platform") + ")");
+        System.out.println("📡 IP: " + localHost.getHostAddress());
+    }
+
+    /**
+     * Tổng (hoặc max) số frame đang chờ gửi của tất cả client
+     */
+    private static long sumOutbound(boolean max) {
+        long result = 0;
+        synchronized (activeClients) {
+            for (ClientHandler client : activeClients) {
+                int depth = client.getOutboundQueueDepth();
+                result = max ? Math.max(result, depth) : result + depth;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Số client đang tụt lại (SlowConsumerPolicy)
+     */
+    private static long countSlowClients() {
+        long count = 0;
+        synchronized (activeClients) {
+            for (ClientHandler client : activeClients) {
+                if (client.isSlowConsumer()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * Tìm số phòng nhỏ nhất còn trống (Room_1, Room_2, ...)
      * Nếu Room_1 trống thì trả về 1, không phải tăng mãi
@@ -142,31 +220,25 @@ public class Server {
      * - Khi client gửi GET_PLAYER_LIST
      * - Sau khi game kết thúc (điểm thay đổi)
      * 
+     * ⚡ Client có capability PRESENCE1 chỉ nhận phần thay đổi
+     * ("PRESENCE_DELTA|seq|+user:status:pts|-user|") - xem PresenceManager.
+     * Không có gì thay đổi so với lần gửi trước → không gửi gì.
+     * 
+     * 👥 Chỉ gửi cho client đăng ký topic lobby.players (TopicManager).
+     * 
+     * ⏱️ Không gửi ngay: các lần gọi trong cửa sổ -Dserver.lobby.coalesceMs
+     * được gộp thành 1 lần gửi (LobbyBroadcaster).
+     * 
      * ═══════════════════════════════════════════════════════════════════════════
      */
     public static void broadcastPlayerList() {
-        List<ClientHandler> snapshot;
-        String msg;
-
-        // Synchronized khi iterate để tránh ConcurrentModificationException
-        synchronized (activeClients) {
-            StringBuilder sb = new StringBuilder("PLAYER_LIST|");
-            for (ClientHandler client : activeClients) {
-                if (client.username != null) {
-                    int pts = playerScores.getOrDefault(client.username, 0);
-                    sb.append(client.username).append(":").append(client.getStatus())
-                            .append(":").append(pts).append("|");
-                }
-            }
-            msg = sb.toString();
-            // Tạo snapshot để send bên ngoài synchronized block
-            snapshot = new ArrayList<>(activeClients);
-        }
+        lobby.requestPlayerList();
+    }
 
-        // Send message bên ngoài synchronized block để tránh block lâu
-        for (ClientHandler client : snapshot) {
-            client.sendMessage(msg); // 📤 GỬI: "PLAYER_LIST|user1:status:pts|..." → danh sách người online
-        }
+    // Gửi thật (gọi từ LobbyBroadcaster)
+    static void publishPlayerList() {
+        // Client PRESENCE1 nhận PRESENCE_DELTA, client cũ nhận PLAYER_LIST đầy đủ
+        presence.publish(activeClients);
     }
 
     /**
@@ -196,28 +268,28 @@ public class Server {
      * - Khi có phòng mới được tạo
      * - Khi có người vào/rời phòng
      * - Khi phòng bị xóa (trống người)
-     * - Khi client gửi GET_ROOMS
+     * 
+     * 👥 Chỉ gửi cho client đăng ký topic lobby.rooms (TopicManager).
+     * 
+     * ⏱️ Gộp theo cửa sổ giống broadcastPlayerList (LobbyBroadcaster).
      * 
      * ═══════════════════════════════════════════════════════════════════════════
      */
     public static void broadcastRoomsList() {
-        List<ClientHandler> snapshot;
-        String msg;
-
-        synchronized (activeClients) {
-            StringBuilder sb = new StringBuilder("ROOMS_LIST|");
-            for (Map.Entry<String, RoomThread> e : rooms.entrySet()) {
-                String name = e.getKey();
-                RoomThread rt = e.getValue();
-                int count = rt.getPlayerCount();
-                sb.append(name).append(":").append(count).append("/").append(6).append("|");
-            }
-            msg = sb.toString();
-            snapshot = new ArrayList<>(activeClients);
-        }
+        lobby.requestRoomsList();
+    }
 
-        for (ClientHandler client : snapshot) {
-            client.sendMessage(msg); // 📤 GỬI: "ROOMS_LIST|room1:count/6|..." → danh sách phòng
+    // Gửi thật (gọi từ LobbyBroadcaster)
+    static void publishRoomsList() {
+        StringBuilder sb = new StringBuilder("ROOMS_LIST|");
+        for (Map.Entry<String, RoomThread> e : rooms.entrySet()) {
+            String name = e.getKey();
+            RoomThread rt = e.getValue();
+            int count = rt.getPlayerCount();
+            sb.append(name).append(":").append(count).append("/").append(6).append("|");
         }
+        // Chỉ client đang xem sảnh (topic lobby.rooms), không gửi cho người
+        // đang ngồi trong phòng
+        topics.publish(TopicManager.LOBBY_ROOMS, new OutboundFrame(sb.toString())); // 📤 GỬI: "ROOMS_LIST|room1:count/6|..."
     }
 }
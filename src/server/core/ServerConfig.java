@@ -0,0 +1,167 @@
+package server.core;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * SERVER CONFIG - CẤU HÌNH KHỞI ĐỘNG SERVER
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Tất cả cấu hình đọc từ System properties (truyền bằng -D khi chạy java):
+ *
+ * • -Dserver.port=5000
+ * → Cổng lắng nghe (mặc định 5000)
+ *
+ * • -Dserver.transport=blocking | nio
+ * → blocking: mỗi client 1 thread đọc readUTF() (mặc định, như cũ)
+ * → nio: dùng Selector/SocketChannel, vài event-loop thread phục vụ
+ * hàng nghìn kết nối
+ *
+ * • -Dserver.nio.ioThreads=N
+ * → Số event-loop thread (mặc định = số core / 2, tối thiểu 1)
+ *
+ * • -Dserver.nio.workerThreads=N
+ * → Số thread xử lý lệnh (LOGIN, GET_HISTORY... có gọi database)
+ *
+ * • -Dserver.threads=platform | virtual
+ * → Thread cho mỗi ClientHandler (chế độ blocking):
+ * platform = thread OS như cũ, virtual = virtual thread (cần JDK 21+)
+ *
+ * • -Dserver.rooms.shards=N
+ * → Số vòng lặp phòng (RoomShards, mặc định = số core); mỗi phòng gắn cố
+ * định vào 1 vòng, lệnh + timer của phòng chỉ chạy trên thread đó
+ *
+ * • -Dserver.outbound.maxFrames=4096
+ * → Số frame tối đa trong hàng đợi gửi của 1 client (vượt quá → bỏ message)
+ *
+ * • -Dserver.outbound.highWatermarkBytes=262144 / lowWatermarkBytes=65536
+ * → Vượt high: client bị đánh dấu "chậm" (không writable),
+ * xuống dưới low: writable trở lại
+ *
+ * • -Dserver.slow.pendingBytes=1048576 / unwritableMs=2000
+ * → Client bị coi là "tụt lại" khi số byte chờ gửi vượt ngưỡng hoặc không
+ * writable liên tục quá N ms (xem SlowConsumerPolicy)
+ *
+ * • -Dserver.slow.maxCriticalFrames=512
+ * → Client đang tụt lại mà message trong game (YOUR_TURN, DRAW...) dồn quá
+ * số này → ngắt kết nối
+ *
+ * • -Dserver.protocol=text | binary (mặc định text)
+ * → text: luôn dùng writeUTF như cũ (kể cả khi client xin BIN1)
+ * → binary: client nào xin BIN1 lúc LOGIN sẽ được dùng frame nhị phân
+ * (BinaryProtocol); quay lại text chỉ cần khởi động lại không có cờ này
+ *
+ * • -Dserver.lobby.coalesceMs=75
+ * → Gộp các lần broadcast PLAYER_LIST/ROOMS_LIST trong cửa sổ N ms thành
+ * 1 lần gửi (LobbyBroadcaster), 0 = gửi ngay khi thread broadcast rảnh
+ *
+ * • -Dserver.rng.seed=N
+ * → Chế độ tái lập: mọi phòng lấy luồng ngẫu nhiên tách từ seed này (xem
+ * DealRandom); không đặt = seed ngẫu nhiên mỗi lần chạy. Seed của từng ván
+ * luôn được in ra log lúc bắt đầu ván
+ *
+ * • -Dserver.db.matchIdBlock=32
+ * → Số MatchID giữ trước mỗi lần (MatchIdPool), bắt đầu ván không phải
+ * chờ INSERT; tối đa 1000 (giới hạn dòng VALUES của SQL Server)
+ *
+ * • -Dserver.db.pool.min=2 / max=10
+ * → Số kết nối database giữ sẵn / tối đa (DatabaseConnection)
+ *
+ * • -Dserver.db.pool.waitMs=5000 / leakMs=10000 / statementCache=32
+ * → Chờ kết nối tối đa N ms; kết nối mượn quá N ms bị báo rò rỉ (0 = tắt);
+ * số PreparedStatement giữ lại trên mỗi kết nối
+ *
+ * • -Dserver.db.writeBatch=256
+ * → Số sự kiện (điểm, kết quả ván) tối đa ghi trong 1 transaction của
+ * WriteBehindQueue
+ *
+ * • -Dserver.db.writeQueueMax=100000
+ * → Số sự kiện chờ ghi của WriteBehindQueue quá ngưỡng này → cảnh báo
+ * (không bỏ sự kiện)
+ *
+ * • -Dserver.db.playerIdCache=10000
+ * → Số username → PlayerID giữ trong PlayerIdCache
+ *
+ * • -Dserver.accounts.cacheSize=10000
+ * → Số tài khoản giữ trong AccountCache (nạp khi đăng nhập, không đọc cả
+ * bảng Players lúc khởi động)
+ *
+ * • -Dserver.odds.samples=20000, -Dserver.odds.threads=<số core>
+ * → Số lần thử Monte Carlo mỗi tay và số thread fork/join của OddsService
+ *
+ * • -Dserver.metrics.intervalSec=60
+ * → Chu kỳ in thống kê (threads, RSS, latency...) ra console, 0 = tắt
+ *
+ * VÍ DỤ:
+ * java -Dserver.transport=nio -cp ... server.core.Server
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class ServerConfig {
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    public static final int PORT = intProperty("server.port", 5000);
+    public static final String TRANSPORT = System.getProperty("server.transport", "blocking");
+    public static final int IO_THREADS = intProperty("server.nio.ioThreads", Math.max(1, CORES / 2));
+    public static final int WORKER_THREADS = intProperty("server.nio.workerThreads", Math.max(2, CORES * 2));
+    public static final String THREAD_MODE = System.getProperty("server.threads", "platform");
+    public static final int ROOM_SHARDS = intProperty("server.rooms.shards", CORES);
+    public static final int OUTBOUND_MAX_FRAMES = intProperty("server.outbound.maxFrames", 4096);
+    public static final int OUTBOUND_HIGH_WATERMARK = intProperty("server.outbound.highWatermarkBytes", 256 * 1024);
+    public static final int OUTBOUND_LOW_WATERMARK = intProperty("server.outbound.lowWatermarkBytes", 64 * 1024);
+    public static final int SLOW_PENDING_BYTES = intProperty("server.slow.pendingBytes", 1024 * 1024);
+    public static final int SLOW_UNWRITABLE_MS = intProperty("server.slow.unwritableMs", 2000);
+    public static final int SLOW_MAX_CRITICAL_FRAMES = intProperty("server.slow.maxCriticalFrames", 512);
+    public static final boolean BINARY_PROTOCOL = "binary".equalsIgnoreCase(System.getProperty("server.protocol", "text"));
+    public static final int LOBBY_COALESCE_MS = intProperty("server.lobby.coalesceMs", 75);
+    public static final int METRICS_INTERVAL_SEC = intProperty("server.metrics.intervalSec", 60);
+    public static final int MATCH_ID_BLOCK = intProperty("server.db.matchIdBlock", 32);
+    public static final int DB_POOL_MIN = intProperty("server.db.pool.min", 2);
+    public static final int DB_POOL_MAX = intProperty("server.db.pool.max", 10);
+    public static final int DB_POOL_WAIT_MS = intProperty("server.db.pool.waitMs", 5000);
+    public static final int DB_POOL_LEAK_MS = intProperty("server.db.pool.leakMs", 10_000);
+    public static final int DB_STATEMENT_CACHE = intProperty("server.db.pool.statementCache", 32);
+    public static final int DB_WRITE_BATCH = intProperty("server.db.writeBatch", 256);
+    public static final int DB_WRITE_QUEUE_MAX = intProperty("server.db.writeQueueMax", 100_000);
+    public static final int DB_PLAYER_ID_CACHE = intProperty("server.db.playerIdCache", 10_000);
+    public static final int ACCOUNT_CACHE_SIZE = intProperty("server.accounts.cacheSize", 10_000);
+    public static final int ODDS_SAMPLES = intProperty("server.odds.samples", 20_000);
+    public static final int ODDS_THREADS = intProperty("server.odds.threads", CORES);
+    public static final Long RNG_SEED = longProperty("server.rng.seed"); // null = không tái lập
+
+    private ServerConfig() {
+    }
+
+    public static boolean isNioTransport() {
+        return "nio".equalsIgnoreCase(TRANSPORT);
+    }
+
+    public static boolean isVirtualThreadMode() {
+        return "virtual".equalsIgnoreCase(THREAD_MODE);
+    }
+
+    static int intProperty(String key, int defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("⚠️ Cấu hình không hợp lệ " + key + "=" + value + ", dùng mặc định " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    // null nếu không đặt hoặc không hợp lệ
+    static Long longProperty(String key) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("⚠️ Cấu hình không hợp lệ " + key + "=" + value + ", bỏ qua");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package server.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * SERVER METRICS - THỐNG KÊ RUNTIME CỦA SERVER
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Registry dùng chung cho toàn server:
+ * - counter: đếm sự kiện (LongAdder, không khóa)
+ * - gauge: giá trị đọc tại thời điểm in (số thread, RSS, số client...)
+ * - histogram: độ trễ (LatencyHistogram)
+ *
+ * In ra console mỗi -Dserver.metrics.intervalSec giây (0 = tắt).
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class ServerMetrics {
+    private static final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+    static {
+        gauge("jvm.threads.live", () -> ManagementFactory.getThreadMXBean().getThreadCount());
+        gauge("jvm.threads.peak", () -> ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        gauge("jvm.threads.createdTotal", () -> ManagementFactory.getThreadMXBean().getTotalStartedThreadCount());
+        gauge("process.rssKb", ServerMetrics::readRssKb);
+    }
+
+    private ServerMetrics() {
+    }
+
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    public static void add(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    public static long count(String name) {
+        LongAdder adder = counters.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    public static String snapshot() {
+        StringBuilder sb = new StringBuilder("📊 METRICS");
+        for (Map.Entry<String, LongSupplier> e : gauges.entrySet()) {
+            sb.append("\n   ").append(e.getKey()).append(" = ").append(e.getValue().getAsLong());
+        }
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) {
+            sb.append("\n   ").append(e.getKey()).append(" = ").append(e.getValue().sum());
+        }
+        for (Map.Entry<String, LatencyHistogram> e : histograms.entrySet()) {
+            sb.append("\n   ").append(e.getKey()).append(" : ").append(e.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Chạy thread nền in snapshot định kỳ
+     */
+    public static void startReporter(int intervalSec) {
+        if (intervalSec <= 0) {
+            return;
+        }
+        Thread reporter = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(intervalSec * 1000L);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                System.out.println(snapshot());
+            }
+        }, "metrics-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    /**
+     * RSS (KB) của process từ /proc/self/status, -1 nếu không phải Linux
+     */
+    private static long readRssKb() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(status)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,80 @@
+package server.core;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * THREAD MODE - TẠO THREAD CHO CLIENT (PLATFORM HOẶC VIRTUAL)
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * -Dserver.threads=platform (mặc định): mỗi ClientHandler là 1 thread OS như
+ * trước (RoomThread không còn thread riêng, xem RoomThread).
+ *
+ * -Dserver.threads=virtual: chạy trên virtual thread (Loom, JDK 21+). Code
+ * vẫn blocking như cũ (readUTF/writeUTF, JDBC) nhưng thread bị "park" thay
+ * vì chiếm 1 thread OS + stack riêng.
+ *
+ * Gọi Thread.ofVirtual() qua reflection để vẫn build được bằng JDK 11/17;
+ * nếu JVM không hỗ trợ thì tự quay về platform thread.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class ThreadMode {
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_START;
+    private static final AtomicLong started = new AtomicLong();
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method start = null;
+        if (ServerConfig.isVirtualThreadMode()) {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                name = builderClass.getMethod("name", String.class);
+                start = builderClass.getMethod("start", Runnable.class);
+            } catch (ReflectiveOperationException e) {
+                System.out.println("⚠️ JVM không hỗ trợ virtual thread (cần JDK 21+), dùng platform thread");
+            }
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_START = start;
+    }
+
+    private ThreadMode() {
+    }
+
+    public static boolean isVirtual() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Số thread client đã tạo từ lúc khởi động
+     */
+    public static long startedCount() {
+        return started.get();
+    }
+
+    /**
+     * Tạo & chạy thread theo chế độ đã cấu hình
+     */
+    public static Thread start(String name, Runnable task) {
+        started.incrementAndGet();
+        if (OF_VIRTUAL != null) {
+            try {
+                Object builder = OF_VIRTUAL.invoke(null);
+                builder = BUILDER_NAME.invoke(builder, name);
+                return (Thread) BUILDER_START.invoke(builder, task);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Không tạo được virtual thread", e);
+            }
+        }
+        Thread thread = new Thread(task, name);
+        thread.start();
+        return thread;
+    }
+}
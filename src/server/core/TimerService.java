@@ -0,0 +1,79 @@
+package server.core;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * TIMER SERVICE - HẸN GIỜ LƯỢT TRÊN VÒNG LẶP SHARD CỦA PHÒNG
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Thay cho java.util.Timer tạo mới mỗi lượt (mỗi Timer = 1 thread OS, 1 ván
+ * 6 người ≈ 18 thread): timer lượt được đặt trên bộ hẹn giờ của shard mà
+ * phòng được gắn vào (RoomShards, RoomThread.scheduler()) → không tạo thread
+ * nào, hủy/đặt lại chỉ là thao tác trên hàng đợi của shard, và callback chạy
+ * luôn trên thread của phòng (cùng thread với hộp thư lệnh).
+ *
+ * Metrics:
+ * - timers.scheduled / timers.cancelled / timers.fired
+ * - timers.pending: số hẹn giờ đang chờ
+ * - timers.jitter: trễ từ hạn tới lúc callback bắt đầu chạy
+ * - so sánh số thread tạo ra: jvm.threads.createdTotal
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class TimerService {
+    private static final AtomicInteger pending = new AtomicInteger();
+
+    static {
+        ServerMetrics.gauge("timers.pending", pending::get);
+    }
+
+    private TimerService() {
+    }
+
+    /**
+     * Handle của 1 lần hẹn giờ (hủy được, hủy nhiều lần không sao)
+     */
+    public static final class Timeout {
+        private final ScheduledFuture<?> future;
+
+        private Timeout(ScheduledFuture<?> future) {
+            this.future = future;
+        }
+
+        public void cancel() {
+            if (future.cancel(false)) {
+                pending.decrementAndGet();
+                ServerMetrics.increment("timers.cancelled");
+            }
+        }
+    }
+
+    /**
+     * Chạy task sau delayMs ms ngay trên thread của scheduler cho trước
+     */
+    public static Timeout schedule(ScheduledExecutorService on, long delayMs, Runnable task) {
+        Runnable timed = timed(delayMs, task);
+        ServerMetrics.increment("timers.scheduled");
+        pending.incrementAndGet();
+        return new Timeout(on.schedule(timed, delayMs, TimeUnit.MILLISECONDS));
+    }
+
+    // Bọc task: đo trễ so với hạn, không để lỗi làm chết thread
+    private static Runnable timed(long delayMs, Runnable task) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        return () -> {
+            pending.decrementAndGet();
+            ServerMetrics.histogram("timers.jitter").recordNanos(System.nanoTime() - deadline);
+            ServerMetrics.increment("timers.fired");
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.out.println("❌ Lỗi trong timer: " + e.getMessage());
+            }
+        };
+    }
+}
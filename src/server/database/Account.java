@@ -0,0 +1,32 @@
+package server.database;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * ACCOUNT - 1 DÒNG PLAYERS DÙNG CHO ĐĂNG NHẬP
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Kết quả của PlayerRepository.loginOrCreate (1 lượt gọi database) và là
+ * giá trị trong cache tài khoản của Database.
+ *
+ * points chỉ đúng tại thời điểm đọc; điểm trong lúc server chạy lấy từ
+ * Server.playerScores.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class Account {
+    public final int playerId;
+    public final String passwordHash;
+    public final int points;
+    public final boolean created; // true nếu tài khoản vừa được tạo bởi lần đăng nhập này
+
+    public Account(int playerId, String passwordHash, int points, boolean created) {
+        this.playerId = playerId;
+        this.passwordHash = passwordHash;
+        this.points = points;
+        this.created = created;
+    }
+
+    public boolean matches(String passwordHash) {
+        return this.passwordHash != null && this.passwordHash.equals(passwordHash);
+    }
+}
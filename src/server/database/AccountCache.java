@@ -0,0 +1,161 @@
+package server.database;
+
+import server.core.ServerMetrics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * ACCOUNT CACHE - CACHE TÀI KHOẢN CÓ GIỚI HẠN (SEGMENTED LRU)
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Thay cho việc nạp toàn bộ bảng Players lúc khởi động: tài khoản chỉ vào
+ * cache khi đăng nhập (Database.login), tối đa -Dserver.accounts.cacheSize
+ * mục (mặc định 10.000).
+ *
+ * Segmented LRU (2 danh sách):
+ * - probation: tài khoản mới vào (đăng nhập 1 lần)
+ * - protected (80% dung lượng): tài khoản được dùng lại khi đang ở probation
+ * (reconnect, đăng nhập nhiều lần); tràn → phần cũ nhất rơi về probation
+ * - Đầy → bỏ mục cũ nhất của probation → 1 đợt người chơi mới đăng nhập 1
+ * lần không đẩy được người chơi quen ra khỏi cache
+ *
+ * Đọc: ConcurrentHashMap, không khóa. Cập nhật thứ tự LRU dùng tryLock():
+ * đang có thread khác giữ khóa thì bỏ qua lần cập nhật đó (thứ tự gần
+ * đúng, không bao giờ chờ).
+ *
+ * Metrics: login.accountCache.hits, login.accountCache.misses,
+ * login.accountCache.evictions, login.accountCache.size
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class AccountCache {
+    private final int capacity;
+    private final int protectedCapacity;
+    private final Map<String, Node> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Node probation = new Node(null, null); // đầu danh sách vòng (mới nhất ở next)
+    private final Node protectedSegment = new Node(null, null);
+    private int protectedSize; // chỉ đổi khi giữ lock
+
+    public AccountCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.protectedCapacity = this.capacity * 4 / 5;
+        ServerMetrics.gauge("login.accountCache.size", data::size);
+    }
+
+    /**
+     * Tài khoản đã cache, null nếu chưa có
+     */
+    public Account get(String username) {
+        Node node = data.get(username);
+        if (node == null) {
+            ServerMetrics.increment("login.accountCache.misses");
+            return null;
+        }
+        ServerMetrics.increment("login.accountCache.hits");
+        if (lock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.account;
+    }
+
+    public void put(String username, Account account) {
+        lock.lock();
+        try {
+            Node old = data.get(username);
+            if (old != null) {
+                old.account = account;
+                onAccess(old);
+                return;
+            }
+            Node node = new Node(username, account);
+            data.put(username, node);
+            linkFirst(probation, node);
+            while (data.size() > capacity) {
+                evictOne();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(String username) {
+        lock.lock();
+        try {
+            Node node = data.remove(username);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // SLRU (chỉ gọi khi giữ lock)
+    // ═══════════════════════════════════════════════════════════════
+
+    private void onAccess(Node node) {
+        if (node.prev == null) {
+            return; // vừa bị bỏ khỏi cache
+        }
+        unlink(node);
+        linkFirst(protectedSegment, node);
+        while (protectedSize > protectedCapacity) {
+            Node demoted = protectedSegment.prev; // cũ nhất
+            unlink(demoted);
+            linkFirst(probation, demoted);
+        }
+    }
+
+    private void evictOne() {
+        Node victim = probation.prev != probation ? probation.prev : protectedSegment.prev;
+        unlink(victim);
+        data.remove(victim.username, victim);
+        ServerMetrics.increment("login.accountCache.evictions");
+    }
+
+    private void linkFirst(Node head, Node node) {
+        node.isProtected = head == protectedSegment;
+        if (node.isProtected) {
+            protectedSize++;
+        }
+        node.prev = head;
+        node.next = head.next;
+        head.next.prev = node;
+        head.next = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.isProtected) {
+            protectedSize--;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static final class Node {
+        final String username;
+        volatile Account account;
+        Node prev;
+        Node next;
+        boolean isProtected;
+
+        Node(String username, Account account) {
+            this.username = username;
+            this.account = account;
+            if (username == null) { // nút đầu danh sách: vòng rỗng
+                prev = this;
+                next = this;
+            }
+        }
+    }
+}
@@ -3,7 +3,12 @@ package server.database;
 
 
 
+import server.core.ServerConfig;
+import server.core.ServerMetrics;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ═══════════════════════════════════════════════════════════════════════════
@@ -15,6 +20,11 @@ import java.util.Map;
  * - DatabaseConnection: Quản lý kết nối
  * - PlayerRepository: Operations với Players table
  * - MatchRepository: Operations với Matches & MatchResults tables
+ * - MatchIdPool: MatchID giữ trước theo khối
+ * - WriteBehindQueue: ghi điểm + kết quả ván ở nền, theo lô
+ * - PlayerIdCache: username → PlayerID (tra database 1 lần mỗi người chơi)
+ * - AccountCache: tài khoản đã đăng nhập (SLRU có giới hạn, nạp dần khi
+ * đăng nhập, không đọc cả bảng Players lúc khởi động)
  * 
  * Schema:
  * - Players(PlayerID, Username, PasswordHash, TotalPoints)
@@ -29,19 +39,75 @@ public class Database {
     private DatabaseConnection dbConnection;
     private PlayerRepository playerRepo;
     private MatchRepository matchRepo;
+    private MatchIdPool matchIds;
+    private WriteBehindQueue writeBehind;
+    private PlayerIdCache playerIds;
+    private final AccountCache accounts = new AccountCache(ServerConfig.ACCOUNT_CACHE_SIZE);
+    private final Map<String, CompletableFuture<Account>> loginsInFlight = new ConcurrentHashMap<>();
 
     public Database() {
         this.dbConnection = new DatabaseConnection();
         this.playerRepo = new PlayerRepository(dbConnection);
         this.matchRepo = new MatchRepository(dbConnection);
+        this.matchIds = new MatchIdPool(matchRepo, ServerConfig.MATCH_ID_BLOCK);
+        this.playerIds = new PlayerIdCache(ServerConfig.DB_PLAYER_ID_CACHE);
+        this.writeBehind = new WriteBehindQueue(dbConnection, playerRepo, matchRepo, matchIds, playerIds,
+                ServerConfig.DB_WRITE_BATCH, ServerConfig.DB_WRITE_QUEUE_MAX);
     }
 
     // ═══════════════════════════════════════════════════════════════════
     // PLAYER OPERATIONS - Delegate to PlayerRepository
     // ═══════════════════════════════════════════════════════════════════
 
+    // Cache trước, chưa có mới hỏi database (rồi nhớ lại)
     public Integer getPlayerId(String username) {
-        return playerRepo.getPlayerId(username);
+        Integer id = playerIds.get(username);
+        if (id == null) {
+            id = playerRepo.getPlayerId(username);
+            if (id != null) {
+                playerIds.put(username, id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Tài khoản để đăng nhập: cache trước, chưa có → 1 lượt gọi database
+     * (tạo mới nếu username chưa tồn tại). Người gọi so mật khẩu.
+     * Nhiều lần đăng nhập cùng username cùng lúc (reconnect) → chỉ 1 lượt gọi
+     * database, các lần còn lại chờ kết quả của lượt đó.
+     *
+     * @return Account hoặc null nếu database lỗi
+     */
+    public Account login(String username, String passwordHash) {
+        Account cached = accounts.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<Account> mine = new CompletableFuture<>();
+        CompletableFuture<Account> running = loginsInFlight.putIfAbsent(username, mine);
+        if (running != null) {
+            ServerMetrics.increment("login.coalesced");
+            Account shared = running.join();
+            // Tài khoản vừa được tạo bởi lượt kia, không phải lượt này
+            return shared != null && shared.created
+                    ? new Account(shared.playerId, shared.passwordHash, shared.points, false)
+                    : shared;
+        }
+        Account account = null;
+        try {
+            account = playerRepo.loginOrCreate(username, passwordHash);
+            if (account != null) {
+                accounts.put(username, account.created
+                        ? new Account(account.playerId, account.passwordHash, account.points, false)
+                        : account);
+                playerIds.put(username, account.playerId);
+            }
+        } finally {
+            loginsInFlight.remove(username, mine);
+            mine.complete(account);
+        }
+        return account;
     }
 
     public boolean authenticate(String username, String passwordHash) {
@@ -49,31 +115,47 @@ public class Database {
     }
 
     public Integer createPlayer(String username, String passwordHash) {
-        return playerRepo.createPlayer(username, passwordHash);
+        playerIds.invalidate(username);
+        accounts.invalidate(username);
+        Integer id = playerRepo.createPlayer(username, passwordHash);
+        if (id != null) {
+            playerIds.put(username, id);
+        }
+        return id;
     }
 
     public void updateTotalPoints(int playerId, int delta) {
         playerRepo.updateTotalPoints(playerId, delta);
     }
 
-    public Integer getTotalPoints(String username) {
-        return playerRepo.getTotalPoints(username);
+    // Ghi ở nền (WriteBehindQueue), không chờ database
+    public void addPoints(String username, Integer playerId, int delta) {
+        writeBehind.addPoints(username, playerId, delta);
     }
 
-    public Map<String, String> loadAccounts() {
-        return playerRepo.loadAccounts();
+    public Integer getTotalPoints(String username) {
+        return playerRepo.getTotalPoints(username);
     }
 
     // ═══════════════════════════════════════════════════════════════════
     // MATCH OPERATIONS - Delegate to MatchRepository
     // ═══════════════════════════════════════════════════════════════════
 
-    public Integer createMatch(int totalPlayers) {
-        return matchRepo.createMatch(totalPlayers);
+    // MatchID giữ trước theo khối (không INSERT lúc bắt đầu ván); null khi
+    // hàng đợi trống → saveMatch(null, ...) để writer gắn MatchID lúc ghi
+    public Integer nextMatchId() {
+        return matchIds.next();
+    }
+
+    public void endMatch(int matchId, int totalPlayers, long startedAt, Integer winnerPlayerId) {
+        matchRepo.endMatch(matchId, totalPlayers, startedAt, winnerPlayerId);
     }
 
-    public void endMatch(int matchId, Integer winnerPlayerId) {
-        matchRepo.endMatch(matchId, winnerPlayerId);
+    // Ghi ở nền (WriteBehindQueue): UPDATE Matches + INSERT MatchResults
+    public void saveMatch(Integer matchId, int totalPlayers, long startedAt, String winner, Integer winnerId,
+            List<WriteBehindQueue.ResultRow> results) {
+        writeBehind.saveMatch(
+                new WriteBehindQueue.MatchRecord(matchId, totalPlayers, startedAt, winner, winnerId, results));
     }
 
     public void insertMatchResult(int matchId, int playerId, int rankPosition,
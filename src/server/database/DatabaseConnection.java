@@ -1,16 +1,43 @@
 package server.database;
+
+import server.core.ServerConfig;
+import server.core.ServerMetrics;
 import java.sql.*;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ═══════════════════════════════════════════════════════════════════════════
- * DATABASE CONNECTION - QUẢN LÝ KẾT NỐI DATABASE
+ * DATABASE CONNECTION - POOL KẾT NỐI DATABASE
  * ═══════════════════════════════════════════════════════════════════════════
  * 
  * Class này xử lý:
  * - Kết nối đến SQL Server
  * - Load JDBC driver
+ * - Pool kết nối dùng lại (trước đây mỗi câu query mở 1 kết nối mới:
+ * TCP + đăng nhập TDS, kết thúc 1 ván mở hơn 10 kết nối)
  * - Seed dữ liệu Cards
  * 
+ * POOL:
+ * - getConnection() mượn 1 kết nối (ưu tiên kết nối vừa trả, LIFO), close()
+ * trả lại → code repository giữ nguyên try-with-resources như cũ
+ * - Tối đa -Dserver.db.pool.max kết nối; hết → chờ tối đa
+ * -Dserver.db.pool.waitMs rồi SQLException
+ * - Thread "db-pool-maintenance" (5 giây 1 lần): mở thêm cho đủ
+ * -Dserver.db.pool.min, đóng kết nối rảnh quá 5 phút, báo kết nối bị giữ
+ * quá -Dserver.db.pool.leakMs (kèm stack nơi mượn)
+ * - Kết nối rảnh quá 30 giây được kiểm tra isValid() trước khi cho mượn
+ * - PreparedStatement cache theo từng kết nối (xem PooledConnection)
+ * 
+ * Metrics: db.pool.active, db.pool.idle, db.pool.total, db.pool.wait,
+ * db.pool.created, db.pool.discarded, db.pool.timeouts, db.pool.leaks
+ * 
  * ⚠️ QUAN TRỌNG: Cấu hình database connection tại đây
  * 
  * ═══════════════════════════════════════════════════════════════════════════
@@ -21,22 +48,145 @@ public class DatabaseConnection {
     private static final String USER = "sa";
     private static final String PASS = "123";
 
+    private static final long VALIDATE_AFTER_MS = 30_000; // rảnh lâu hơn → isValid() trước khi cho mượn
+    private static final long IDLE_TIMEOUT_MS = 5 * 60_000; // rảnh lâu hơn (và trên min) → đóng
+
+    private final int minSize = Math.max(0, ServerConfig.DB_POOL_MIN);
+    private final int maxSize = Math.max(1, ServerConfig.DB_POOL_MAX);
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits = new Semaphore(maxSize, true);
+    private final AtomicInteger total = new AtomicInteger();
+    private volatile boolean fillFailing;
+
     public DatabaseConnection() {
         try {
             Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("SQLServer JDBC Driver not found", e);
         }
+        ServerMetrics.gauge("db.pool.active", borrowed::size);
+        ServerMetrics.gauge("db.pool.idle", idle::size);
+        ServerMetrics.gauge("db.pool.total", total::get);
+
+        ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain, 0, 5, TimeUnit.SECONDS);
     }
 
     /**
-     * Lấy connection đến database
+     * Mượn 1 kết nối từ pool (close() để trả lại)
      * 
      * @return Connection object
-     * @throws SQLException nếu không kết nối được
+     * @throws SQLException nếu không kết nối được hoặc chờ quá lâu
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASS);
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(ServerConfig.DB_POOL_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                ServerMetrics.increment("db.pool.timeouts");
+                throw new SQLException("Hết kết nối trong pool (" + maxSize + " đang được dùng)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Bị ngắt khi chờ kết nối", e);
+        }
+        try {
+            PooledConnection pc = takeIdle();
+            if (pc == null) {
+                pc = open();
+            }
+            borrowed.add(pc);
+            ServerMetrics.histogram("db.pool.wait").recordNanos(System.nanoTime() - start);
+            return pc.lease(ServerConfig.DB_POOL_LEAK_MS > 0);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Trả kết nối về pool (gọi từ close() của proxy, đúng 1 lần mỗi lần mượn);
+    // transaction còn mở bị rollback, không reset được → bỏ kết nối
+    void release(PooledConnection pc) {
+        borrowed.remove(pc);
+        if (pc.isBroken() || !pc.reset() || total.get() > maxSize) {
+            discard(pc);
+        } else {
+            pc.idleSince = System.currentTimeMillis();
+            idle.offerFirst(pc);
+        }
+        permits.release();
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pc.idleSince < VALIDATE_AFTER_MS || pc.isValid()) {
+                return pc;
+            }
+            discard(pc);
+        }
+        return null;
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection real = DriverManager.getConnection(URL, USER, PASS);
+        total.incrementAndGet();
+        ServerMetrics.increment("db.pool.created");
+        return new PooledConnection(this, real, ServerConfig.DB_STATEMENT_CACHE);
+    }
+
+    private void discard(PooledConnection pc) {
+        total.decrementAndGet();
+        ServerMetrics.increment("db.pool.discarded");
+        pc.closePhysical();
+    }
+
+    private void maintain() {
+        long now = System.currentTimeMillis();
+
+        // Phát hiện rò rỉ: kết nối mượn quá lâu chưa trả (báo 1 lần mỗi lần mượn)
+        long leakMs = ServerConfig.DB_POOL_LEAK_MS;
+        if (leakMs > 0) {
+            for (PooledConnection pc : borrowed) {
+                if (!pc.leakReported && now - pc.borrowedAt > leakMs) {
+                    pc.leakReported = true;
+                    ServerMetrics.increment("db.pool.leaks");
+                    System.out.println("⚠️ Kết nối database bị giữ quá " + leakMs + "ms");
+                    if (pc.borrowSite != null) {
+                        pc.borrowSite.printStackTrace(System.out);
+                    }
+                }
+            }
+        }
+
+        // Đóng bớt kết nối rảnh lâu (cũ nhất nằm cuối deque)
+        PooledConnection oldest;
+        while (total.get() > minSize && (oldest = idle.peekLast()) != null
+                && now - oldest.idleSince > IDLE_TIMEOUT_MS) {
+            if (idle.removeLastOccurrence(oldest)) {
+                discard(oldest);
+            }
+        }
+
+        // Mở thêm cho đủ min
+        while (total.get() < minSize) {
+            try {
+                PooledConnection pc = open();
+                pc.idleSince = System.currentTimeMillis();
+                idle.offerLast(pc);
+                fillFailing = false;
+            } catch (SQLException e) {
+                if (!fillFailing) {
+                    fillFailing = true;
+                    System.out.println("DatabaseConnection pool error: " + e.getMessage());
+                }
+                return;
+            }
+        }
     }
 
     /**
@@ -0,0 +1,133 @@
+package server.database;
+
+import server.core.ServerMetrics;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * MATCH ID POOL - MATCHID GIỮ TRƯỚC THEO KHỐI
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Trước đây mỗi lần bắt đầu ván gọi INSERT Matches và chờ kết quả ngay trên
+ * thread của phòng. Giờ MatchID được giữ trước theo khối
+ * (-Dserver.db.matchIdBlock, mặc định 32, tối đa MAX_BLOCK_SIZE) bằng 1 câu
+ * INSERT, bắt đầu ván chỉ lấy 1 số ra khỏi hàng đợi (không khóa, không gọi
+ * database).
+ *
+ * - Khởi động và còn dưới nửa khối → thread "match-id-prefetch" giữ thêm 1
+ * khối (chỉ thread này gọi INSERT → không bao giờ giữ trùng 2 khối)
+ * - Hết hẳn (database chậm/mất kết nối) → next() trả null ngay, không bao
+ * giờ INSERT trên thread của phòng; ván vẫn bắt đầu, MatchID được gắn lúc
+ * ghi kết quả (WriteBehindQueue gọi nextBlocking() trên thread db-writer)
+ * - MatchID giữ mà không dùng (server tắt) là dòng TotalPlayers = 0, lịch
+ * sử bỏ qua các dòng này
+ *
+ * Metrics: db.matchIds.available, db.matchIds.reserved,
+ * db.matchIds.empty (ván bắt đầu khi hàng đợi trống)
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class MatchIdPool {
+    /**
+     * SQL Server nhận tối đa 1000 dòng trong 1 danh sách VALUES; khối lớn hơn
+     * → mọi lần giữ khối đều lỗi và nextBlocking() luôn trả null
+     */
+    public static final int MAX_BLOCK_SIZE = 1000;
+
+    private final MatchRepository matchRepo;
+    private final int blockSize;
+    private final ConcurrentLinkedQueue<Integer> ids = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger available = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "match-id-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public MatchIdPool(MatchRepository matchRepo, int blockSize) {
+        this.matchRepo = matchRepo;
+        if (blockSize > MAX_BLOCK_SIZE) {
+            System.out.println("⚠️ MatchIdPool: matchIdBlock " + blockSize + " vượt giới hạn VALUES của SQL Server,"
+                    + " dùng " + MAX_BLOCK_SIZE);
+        }
+        this.blockSize = Math.min(MAX_BLOCK_SIZE, Math.max(1, blockSize));
+        ServerMetrics.gauge("db.matchIds.available", available::get);
+        prefetch(); // ván đầu tiên không phải chờ
+    }
+
+    /**
+     * Lấy 1 MatchID chưa dùng, không bao giờ chờ database
+     *
+     * @return MatchID hoặc null nếu hàng đợi đang trống (gắn sau bằng nextBlocking)
+     */
+    public Integer next() {
+        Integer id = poll();
+        if (id == null) {
+            ServerMetrics.increment("db.matchIds.empty");
+        }
+        if (available.get() < blockSize / 2 + 1) {
+            prefetch();
+        }
+        return id;
+    }
+
+    /**
+     * Lấy 1 MatchID, hết thì giữ khối mới và chờ (chỉ gọi từ thread nền,
+     * không gọi từ thread của phòng). Chạy trên thread prefetch → xếp sau
+     * lần prefetch đang chạy thay vì giữ thêm 1 khối song song.
+     *
+     * @return MatchID hoặc null nếu database lỗi
+     */
+    public Integer nextBlocking() throws InterruptedException {
+        try {
+            return prefetcher.submit(() -> {
+                Integer id = poll();
+                return id != null ? id : reserveBlock(true);
+            }).get();
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private Integer poll() {
+        Integer id = ids.poll();
+        if (id != null) {
+            available.decrementAndGet();
+        }
+        return id;
+    }
+
+    private void prefetch() {
+        if (refilling.compareAndSet(false, true)) {
+            prefetcher.execute(() -> {
+                try {
+                    reserveBlock(false);
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        }
+    }
+
+    // Giữ 1 khối; takeFirst → trả về số đầu tiên cho người gọi thay vì cho vào hàng đợi
+    private Integer reserveBlock(boolean takeFirst) {
+        List<Integer> block = matchRepo.reserveMatchIds(blockSize);
+        if (block.isEmpty()) {
+            return null;
+        }
+        ServerMetrics.add("db.matchIds.reserved", block.size());
+        int from = takeFirst ? 1 : 0;
+        for (int i = from; i < block.size(); i++) {
+            ids.add(block.get(i));
+        }
+        available.addAndGet(block.size() - from);
+        return takeFirst ? block.get(0) : null;
+    }
+}
@@ -4,6 +4,7 @@ package server.database;
 
 
 import java.sql.*;
+import java.util.*;
 
 /**
  * ═══════════════════════════════════════════════════════════════════════════
@@ -11,9 +12,10 @@ import java.sql.*;
  * ═══════════════════════════════════════════════════════════════════════════
  * 
  * Class này xử lý:
- * - Tạo ván đấu mới
+ * - Giữ trước MatchID theo khối (MatchIdPool)
  * - Kết thúc ván đấu
  * - Lưu kết quả từng người chơi
+ * - Ghi kết quả nhiều ván theo lô (WriteBehindQueue, trong transaction)
  * - Lấy lịch sử ván đấu
  * - Lấy chi tiết ván đấu
  * 
@@ -27,42 +29,51 @@ public class MatchRepository {
     }
 
     /**
-     * Tạo ván đấu mới
+     * Giữ trước 1 khối MatchID (1 câu INSERT cho cả khối)
+     * Các dòng giữ chỗ có TotalPlayers = 0 cho tới khi ván kết thúc (endMatch)
      * 
-     * @param totalPlayers Tổng số người chơi trong ván
-     * @return MatchID hoặc null nếu thất bại
+     * @param count Số MatchID cần giữ (tối đa MatchIdPool.MAX_BLOCK_SIZE = 1000
+     *              dòng VALUES của SQL Server)
+     * @return Danh sách MatchID (rỗng nếu thất bại)
      */
-    public Integer createMatch(int totalPlayers) {
-        String sql = "INSERT INTO Matches(TotalPlayers) VALUES(?)";
+    public List<Integer> reserveMatchIds(int count) {
+        StringBuilder sql = new StringBuilder("INSERT INTO Matches(TotalPlayers) OUTPUT inserted.MatchID VALUES ");
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "(0)" : ",(0)");
+        }
+        List<Integer> ids = new ArrayList<>();
         try (Connection con = dbConnection.getConnection();
-                PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setInt(1, totalPlayers);
-            ps.executeUpdate();
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next())
-                    return rs.getInt(1);
-            }
+                PreparedStatement ps = con.prepareStatement(sql.toString());
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next())
+                ids.add(rs.getInt(1));
         } catch (SQLException e) {
-            System.out.println("MatchRepository createMatch error: " + e.getMessage());
+            System.out.println("MatchRepository reserveMatchIds error: " + e.getMessage());
         }
-        return null;
+        Collections.sort(ids);
+        return ids;
     }
 
     /**
-     * Kết thúc ván đấu
+     * Kết thúc ván đấu (ghi luôn số người chơi + giờ bắt đầu vào dòng đã giữ)
      * 
      * @param matchId        ID của ván đấu
+     * @param totalPlayers   Tổng số người chơi trong ván
+     * @param startedAt      Thời điểm bắt đầu ván (epoch millis)
      * @param winnerPlayerId ID người thắng (có thể null)
      */
-    public void endMatch(int matchId, Integer winnerPlayerId) {
-        String sql = "UPDATE Matches SET EndTime = GETDATE(), WinnerID = ? WHERE MatchID = ?";
+    public void endMatch(int matchId, int totalPlayers, long startedAt, Integer winnerPlayerId) {
+        String sql = "UPDATE Matches SET TotalPlayers = ?, StartTime = ?, EndTime = GETDATE(), WinnerID = ? "
+                + "WHERE MatchID = ?";
         try (Connection con = dbConnection.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, totalPlayers);
+            ps.setTimestamp(2, new Timestamp(startedAt));
             if (winnerPlayerId == null)
-                ps.setNull(1, Types.INTEGER);
+                ps.setNull(3, Types.INTEGER);
             else
-                ps.setInt(1, winnerPlayerId);
-            ps.setInt(2, matchId);
+                ps.setInt(3, winnerPlayerId);
+            ps.setInt(4, matchId);
             ps.executeUpdate();
         } catch (SQLException e) {
             System.out.println("MatchRepository endMatch error: " + e.getMessage());
@@ -97,6 +108,51 @@ public class MatchRepository {
         }
     }
 
+    /**
+     * Ghi nhiều ván đã kết thúc: UPDATE Matches + INSERT MatchResults, mỗi
+     * loại 1 lần executeBatch (dùng connection của transaction)
+     *
+     * @param ids username → PlayerID (người không có PlayerID bị bỏ qua)
+     */
+    public void saveMatchesBatch(Connection con, List<WriteBehindQueue.MatchRecord> matches,
+            Map<String, Integer> ids) throws SQLException {
+        if (matches.isEmpty())
+            return;
+        String matchSql = "UPDATE Matches SET TotalPlayers = ?, StartTime = ?, EndTime = GETDATE(), WinnerID = ? "
+                + "WHERE MatchID = ?";
+        String resultSql = "INSERT INTO MatchResults(MatchID, PlayerID, RankPosition, Score, HandType, Cards) " +
+                "VALUES(?,?,?,?,?,?)";
+        try (PreparedStatement psMatch = con.prepareStatement(matchSql);
+                PreparedStatement psResult = con.prepareStatement(resultSql)) {
+            for (WriteBehindQueue.MatchRecord m : matches) {
+                Integer winnerId = m.winnerId != null ? m.winnerId : m.winner != null ? ids.get(m.winner) : null;
+                psMatch.setInt(1, m.totalPlayers);
+                psMatch.setTimestamp(2, new Timestamp(m.startedAt));
+                if (winnerId == null)
+                    psMatch.setNull(3, Types.INTEGER);
+                else
+                    psMatch.setInt(3, winnerId);
+                psMatch.setInt(4, m.matchId);
+                psMatch.addBatch();
+
+                for (WriteBehindQueue.ResultRow r : m.results) {
+                    Integer pid = r.playerId != null ? r.playerId : ids.get(r.username);
+                    if (pid == null)
+                        continue;
+                    psResult.setInt(1, m.matchId);
+                    psResult.setInt(2, pid);
+                    psResult.setInt(3, r.rankPosition);
+                    psResult.setInt(4, r.score);
+                    psResult.setString(5, r.handType);
+                    psResult.setString(6, r.cardsText);
+                    psResult.addBatch();
+                }
+            }
+            psMatch.executeBatch();
+            psResult.executeBatch();
+        }
+    }
+
     /**
      * Lấy lịch sử ván đấu (danh sách tóm tắt)
      * Format: matchId|startTime|endTime|numPlayers|winner\n...
@@ -110,6 +166,7 @@ public class MatchRepository {
                 "pw.Username AS WinnerName " +
                 "FROM Matches m " +
                 "LEFT JOIN Players pw ON m.WinnerID = pw.PlayerID " +
+                "WHERE m.TotalPlayers > 0 " + // bỏ MatchID đã giữ chưa dùng
                 "ORDER BY m.MatchID DESC";
         try (Connection con = dbConnection.getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
@@ -150,6 +207,7 @@ public class MatchRepository {
         String matchSql = "SELECT TOP(?) m.MatchID, m.StartTime, m.EndTime, m.TotalPlayers, " +
                 "pw.Username AS WinnerName " +
                 "FROM Matches m LEFT JOIN Players pw ON m.WinnerID = pw.PlayerID " +
+                "WHERE m.TotalPlayers > 0 " + // bỏ MatchID đã giữ chưa dùng
                 "ORDER BY m.MatchID DESC";
         try (Connection con = dbConnection.getConnection();
                 PreparedStatement psMatch = con.prepareStatement(matchSql)) {
@@ -0,0 +1,66 @@
+package server.database;
+
+import server.core.ServerMetrics;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * PLAYER ID CACHE - USERNAME → PLAYERID DÙNG CHUNG CHO MỌI REPOSITORY
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * PlayerID không bao giờ đổi sau khi tạo tài khoản → cache không cần hết
+ * hạn. Được nạp lúc đăng nhập (Database.getPlayerId / createPlayer), sau đó
+ * ghi điểm, ghi kết quả ván (WriteBehindQueue) lấy ID từ đây thay vì
+ * SELECT PlayerID mỗi lần.
+ *
+ * - Giới hạn -Dserver.db.playerIdCache mục (mặc định 10.000); đầy → bỏ bớt
+ * vài mục bất kỳ (người đang online sẽ được nạp lại lúc đăng nhập lần sau
+ * hoặc lúc ghi, không sai dữ liệu)
+ * - Không cache "không tồn tại": username chưa có vẫn hỏi database
+ * - createPlayer → invalidate rồi put ID mới
+ *
+ * Metrics: db.playerIds.hits, db.playerIds.misses, db.playerIds.size
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class PlayerIdCache {
+    private final int capacity;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    public PlayerIdCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        ServerMetrics.gauge("db.playerIds.size", ids::size);
+    }
+
+    /**
+     * PlayerID đã cache, null nếu chưa có (không hỏi database)
+     */
+    public Integer get(String username) {
+        Integer id = ids.get(username);
+        ServerMetrics.increment(id != null ? "db.playerIds.hits" : "db.playerIds.misses");
+        return id;
+    }
+
+    public void put(String username, int playerId) {
+        if (ids.size() >= capacity && !ids.containsKey(username)) {
+            evict();
+        }
+        ids.put(username, playerId);
+    }
+
+    public void invalidate(String username) {
+        ids.remove(username);
+    }
+
+    // Bỏ khoảng 1/16 số mục (theo thứ tự bảng băm, coi như ngẫu nhiên)
+    private void evict() {
+        int toRemove = Math.max(1, capacity / 16);
+        Iterator<String> it = ids.keySet().iterator();
+        while (toRemove-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -4,8 +4,7 @@ package server.database;
 
 
 import java.sql.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
  * ═══════════════════════════════════════════════════════════════════════════
@@ -16,7 +15,8 @@ import java.util.Map;
  * - Xác thực đăng nhập
  * - Tạo tài khoản mới
  * - Lấy/cập nhật điểm người chơi
- * - Load danh sách tài khoản
+ * - Đăng nhập / tạo tài khoản trong 1 lượt gọi database (loginOrCreate)
+ * - Tra PlayerID + cộng điểm theo lô (WriteBehindQueue, trong transaction)
  * 
  * ═══════════════════════════════════════════════════════════════════════════
  */
@@ -47,6 +47,42 @@ public class PlayerRepository {
         return null;
     }
 
+    /**
+     * Đăng nhập trong 1 lượt gọi database: username chưa có → tạo mới với
+     * mật khẩu này; luôn trả về dòng Players (PlayerID, PasswordHash,
+     * TotalPoints). Người gọi tự so mật khẩu (Account.matches).
+     * Kiểm tra + INSERT nằm trong 1 transaction (UPDLOCK, HOLDLOCK) → 2 lần
+     * đăng nhập cùng lúc của 1 username mới không tạo 2 dòng.
+     *
+     * @return Account hoặc null nếu database lỗi
+     */
+    public Account loginOrCreate(String username, String passwordHash) {
+        String sql = "SET NOCOUNT ON; SET XACT_ABORT ON; "
+                + "DECLARE @created BIT = 0; "
+                + "BEGIN TRAN; "
+                + "IF NOT EXISTS (SELECT 1 FROM Players WITH (UPDLOCK, HOLDLOCK) WHERE Username = ?) "
+                + "BEGIN "
+                + "INSERT INTO Players(Username, PasswordHash, TotalPoints) VALUES(?,?,0); "
+                + "SET @created = 1; "
+                + "END; "
+                + "COMMIT; "
+                + "SELECT PlayerID, PasswordHash, TotalPoints, @created FROM Players WHERE Username = ?";
+        try (Connection con = dbConnection.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, username);
+            ps.setString(2, username);
+            ps.setString(3, passwordHash);
+            ps.setString(4, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next())
+                    return new Account(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getBoolean(4));
+            }
+        } catch (SQLException e) {
+            System.out.println("PlayerRepository loginOrCreate error: " + e.getMessage());
+        }
+        return null;
+    }
+
     /**
      * Xác thực đăng nhập
      * 
@@ -107,6 +143,56 @@ public class PlayerRepository {
         }
     }
 
+    /**
+     * Tra PlayerID của nhiều username (dùng connection của transaction)
+     * Mỗi câu tra tối đa 64 username; số tham số làm tròn lên lũy thừa của 2
+     * → chỉ vài câu SQL khác nhau, dùng lại được PreparedStatement đã cache
+     *
+     * @return Map username → PlayerID (username không tồn tại thì không có)
+     */
+    public Map<String, Integer> getPlayerIds(Connection con, Collection<String> usernames) throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> names = new ArrayList<>(usernames);
+        for (int from = 0; from < names.size(); from += 64) {
+            List<String> chunk = names.subList(from, Math.min(names.size(), from + 64));
+            int params = Integer.highestOneBit(chunk.size() * 2 - 1);
+            StringBuilder sql = new StringBuilder("SELECT Username, PlayerID FROM Players WHERE Username IN (");
+            for (int i = 0; i < params; i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            sql.append(")");
+            try (PreparedStatement ps = con.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params; i++) {
+                    ps.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1))); // lặp lại tên cuối cho đủ
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        ids.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Cộng điểm cho nhiều người chơi bằng 1 lần executeBatch
+     *
+     * @param deltas PlayerID → điểm thay đổi
+     */
+    public void addTotalPointsBatch(Connection con, Map<Integer, Integer> deltas) throws SQLException {
+        if (deltas.isEmpty())
+            return;
+        String sql = "UPDATE Players SET TotalPoints = TotalPoints + ? WHERE PlayerID = ?";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Integer> d : deltas.entrySet()) {
+                ps.setInt(1, d.getValue());
+                ps.setInt(2, d.getKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
     /**
      * Lấy tổng điểm của người chơi
      * 
@@ -126,24 +212,4 @@ public class PlayerRepository {
         }
         return null;
     }
-
-    /**
-     * Load tất cả tài khoản vào cache
-     * 
-     * @return Map<Username, PasswordHash>
-     */
-    public Map<String, String> loadAccounts() {
-        Map<String, String> map = new HashMap<>();
-        String sql = "SELECT Username, PasswordHash FROM Players";
-        try (Connection con = dbConnection.getConnection();
-                Statement st = con.createStatement();
-                ResultSet rs = st.executeQuery(sql)) {
-            while (rs.next()) {
-                map.put(rs.getString(1), rs.getString(2));
-            }
-        } catch (SQLException e) {
-            System.out.println("PlayerRepository loadAccounts error: " + e.getMessage());
-        }
-        return map;
-    }
 }
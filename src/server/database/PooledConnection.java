@@ -0,0 +1,310 @@
+package server.database;
+
+import server.core.ServerMetrics;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * POOLED CONNECTION - 1 KẾT NỐI VẬT LÝ TRONG POOL + CACHE PREPAREDSTATEMENT
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Mỗi lần mượn (lease) trả về 1 proxy Connection mới:
+ * - close() → trả kết nối về pool (không đóng socket), gọi lần 2 không sao
+ * - Dùng proxy sau khi close() → SQLException (không đụng tới người mượn sau)
+ *
+ * prepareStatement(sql) / prepareStatement(sql, autoGeneratedKeys): câu SQL
+ * cố định của các repository được prepare 1 lần trên mỗi kết nối rồi giữ
+ * lại (LRU, -Dserver.db.pool.statementCache). close() của statement chỉ
+ * clearParameters() + clearBatch() + clearWarnings() để lần sau dùng lại.
+ *
+ * Trả kết nối về pool → reset(): transaction còn mở (người mượn quên
+ * commit/rollback) bị rollback, autoCommit về true, xóa warnings → người
+ * mượn sau luôn nhận kết nối sạch.
+ *
+ * Lỗi SQLState 08xxx (mất kết nối) → kết nối bị đánh dấu hỏng, bị bỏ khi
+ * trả về thay vì quay lại pool.
+ *
+ * Metrics: db.stmtCache.hits, db.stmtCache.misses, db.query.<lệnh>.<bảng>,
+ * db.pool.rollbacks (transaction còn mở lúc trả kết nối)
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+final class PooledConnection {
+    private static final ClassLoader LOADER = PooledConnection.class.getClassLoader();
+
+    private final DatabaseConnection pool;
+    private final Connection real;
+    private final Map<String, CachedStatement> statements;
+    private volatile boolean broken;
+
+    long idleSince; // lúc trả về pool (millis)
+    volatile long borrowedAt; // lúc được mượn (millis)
+    volatile Throwable borrowSite; // nơi mượn (chỉ ghi khi bật phát hiện rò rỉ)
+    volatile boolean leakReported;
+
+    PooledConnection(DatabaseConnection pool, Connection real, int cacheSize) {
+        this.pool = pool;
+        this.real = real;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= cacheSize) {
+                    return false;
+                }
+                CachedStatement cached = eldest.getValue();
+                cached.evicted = true;
+                if (!cached.inUse) {
+                    closeQuietly(cached.statement);
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Cho mượn kết nối: proxy mới, close() của proxy trả kết nối về pool
+     */
+    Connection lease(boolean trackSite) {
+        borrowedAt = System.currentTimeMillis();
+        borrowSite = trackSite ? new Throwable("Nơi mượn kết nối") : null;
+        leakReported = false;
+        return (Connection) Proxy.newProxyInstance(LOADER, new Class<?>[] { Connection.class }, new Lease());
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    boolean isValid() {
+        try {
+            return !broken && real.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Đưa kết nối về trạng thái mặc định trước khi vào lại pool
+     *
+     * @return false nếu không reset được (kết nối phải bị bỏ)
+     */
+    boolean reset() {
+        try {
+            if (!real.getAutoCommit()) {
+                ServerMetrics.increment("db.pool.rollbacks");
+                real.rollback();
+                real.setAutoCommit(true);
+            }
+            real.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            broken = true;
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        synchronized (statements) {
+            for (CachedStatement cached : statements.values()) {
+                closeQuietly(cached.statement);
+            }
+            statements.clear();
+        }
+        try {
+            real.close();
+        } catch (SQLException e) {
+        }
+    }
+
+    // Statement đã cache của câu SQL này, hoặc prepare mới (không cache nếu
+    // câu đó đang được dùng dở trên chính kết nối này)
+    private CachedStatement prepare(String sql, Integer autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + "#" + sql;
+        synchronized (statements) {
+            CachedStatement cached = statements.get(key);
+            if (cached != null && !cached.inUse) {
+                ServerMetrics.increment("db.stmtCache.hits");
+                cached.inUse = true;
+                return cached;
+            }
+            ServerMetrics.increment("db.stmtCache.misses");
+            PreparedStatement ps = autoGeneratedKeys == null
+                    ? real.prepareStatement(sql)
+                    : real.prepareStatement(sql, autoGeneratedKeys);
+            CachedStatement fresh = new CachedStatement(ps, metricName(sql));
+            fresh.inUse = true;
+            if (cached == null) {
+                statements.put(key, fresh);
+            } else {
+                fresh.evicted = true; // bản dùng 1 lần, đóng khi close()
+            }
+            return fresh;
+        }
+    }
+
+    private void release(CachedStatement cached) {
+        synchronized (statements) {
+            cached.inUse = false;
+            if (!cached.evicted) {
+                try {
+                    cached.statement.clearParameters();
+                    cached.statement.clearBatch();
+                    cached.statement.clearWarnings();
+                    return;
+                } catch (SQLException e) {
+                    statements.values().remove(cached);
+                }
+            }
+        }
+        closeQuietly(cached.statement);
+    }
+
+    // "db.query.select.Players" từ "SELECT ... FROM Players ...";
+    // nhiều câu lệnh (SET NOCOUNT ON; ...) → "db.query.batch.<bảng đầu tiên>"
+    private static String metricName(String sql) {
+        String[] words = sql.trim().split("[\\s(]+");
+        String verb = words[0].toLowerCase(Locale.ROOT);
+        if (!verb.equals("select") && !verb.equals("insert") && !verb.equals("update") && !verb.equals("delete")) {
+            verb = "batch";
+        }
+        String table = "?";
+        for (int i = 0; i < words.length - 1; i++) {
+            String w = words[i].toUpperCase(Locale.ROOT);
+            if (w.equals("FROM") || w.equals("INTO") || (w.equals("UPDATE") && i == 0)) {
+                table = words[i + 1];
+                break;
+            }
+        }
+        return "db.query." + verb + "." + table;
+    }
+
+    private static void closeQuietly(Statement st) {
+        try {
+            st.close();
+        } catch (SQLException e) {
+        }
+    }
+
+    // Gọi phương thức thật, lỗi mất kết nối (SQLState 08xxx) → đánh dấu hỏng
+    private Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    broken = true;
+                }
+            }
+            throw cause;
+        }
+    }
+
+    private static final class CachedStatement {
+        final PreparedStatement statement;
+        final String metric;
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(PreparedStatement statement, String metric) {
+            this.statement = statement;
+            this.metric = metric;
+        }
+    }
+
+    /**
+     * Proxy Connection của 1 lần mượn
+     */
+    private final class Lease implements InvocationHandler {
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || real.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + real;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Kết nối đã trả về pool");
+            }
+            if (method.getName().equals("prepareStatement")) {
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1 || (types.length == 2 && types[1] == int.class)) {
+                    CachedStatement cached = prepare((String) args[0], types.length == 2 ? (Integer) args[1] : null);
+                    return Proxy.newProxyInstance(LOADER, new Class<?>[] { PreparedStatement.class },
+                            new StatementUse(cached, (Connection) proxy));
+                }
+            }
+            return call(real, method, args);
+        }
+    }
+
+    /**
+     * Proxy PreparedStatement: close() trả statement về cache, đo thời gian execute*
+     */
+    private final class StatementUse implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection connection;
+        private boolean closed;
+
+        StatementUse(CachedStatement cached, Connection connection) {
+            this.cached = cached;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(cached);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement đã đóng");
+            }
+            if (!name.startsWith("execute")) {
+                return call(cached.statement, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return call(cached.statement, method, args);
+            } finally {
+                ServerMetrics.histogram(cached.metric).recordNanos(System.nanoTime() - start);
+            }
+        }
+    }
+}
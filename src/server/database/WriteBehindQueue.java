@@ -0,0 +1,408 @@
+package server.database;
+
+import server.core.ServerMetrics;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * WRITE-BEHIND QUEUE - GHI KẾT QUẢ VÁN VÀ ĐIỂM XUỐNG DATABASE Ở NỀN
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Trước đây kết thúc ván phải chờ khoảng 4N+1 lượt gọi database (getPlayerId
+ * + updateTotalPoints, getPlayerId + insertMatchResult cho từng người, rồi
+ * endMatch) ngay trên thread của phòng. Giờ thread phòng chỉ xếp sự kiện vào
+ * hàng đợi (không chờ SQL Server):
+ * - addPoints(username, playerId, delta): cộng/trừ điểm
+ * - saveMatch(MatchRecord): dòng Matches + các dòng MatchResults của 1 ván
+ *
+ * Thread "db-writer" lấy tối đa -Dserver.db.writeBatch sự kiện mỗi lần, ghi
+ * trong 1 transaction:
+ * 0. Ván bắt đầu khi MatchIdPool trống (matchId null) → lấy MatchID ở đây,
+ * trên thread db-writer (có thể chờ INSERT giữ khối, thread phòng thì không)
+ * 1. PlayerID lấy từ phiên đăng nhập / PlayerIdCache; chỉ username chưa có
+ * trong cache mới tra bằng 1 câu SELECT ... IN (...)
+ * 2. UPDATE Players (điểm gộp theo người chơi) - executeBatch
+ * 3. UPDATE Matches + INSERT MatchResults - executeBatch
+ *
+ * Lỗi → rollback, rồi:
+ * - Lỗi tạm thời (mất kết nối SQLState 08xxx, deadlock 40001 / SQL Server
+ * 1205, timeout HYT00 / HYT01 / -2) → giữ nguyên lô, thử lại sau 1, 2, 4...
+ * tối đa 30 giây
+ * - Lỗi khác (dữ liệu sai, ràng buộc...) thử lại cũng không qua → chia đôi
+ * lô tới khi còn đúng sự kiện lỗi; sự kiện đó được in log và đưa vào danh
+ * sách dead letter (giữ 100 mục gần nhất), phần còn lại vẫn được ghi →
+ * 1 sự kiện hỏng không chặn writer mãi mãi
+ *
+ * Hàng đợi quá -Dserver.db.writeQueueMax sự kiện (database chậm/mất kết
+ * nối lâu) → cảnh báo 1 lần, không bỏ sự kiện; xuống dưới nửa ngưỡng →
+ * báo đã hồi phục. Tắt server (Ctrl+C) → chờ ghi nốt tối đa 10 giây.
+ * Hàng đợi nằm trong RAM: server chết đột ngột thì mất phần chưa ghi (điểm
+ * trong Server.playerScores vẫn đúng cho tới lúc đó).
+ *
+ * Metrics: db.writer.pending, db.writer.lag (xếp hàng → commit),
+ * db.writer.flushTime, db.writer.flushes, db.writer.events,
+ * db.writer.lastFlushSize, db.writer.failures (lỗi tạm thời),
+ * db.writer.splits, db.writer.deadLetters, db.writer.backlogAlarms
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class WriteBehindQueue {
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final long SHUTDOWN_WAIT_MS = 10_000;
+    private static final int DEAD_LETTER_KEEP = 100;
+
+    private final DatabaseConnection dbConnection;
+    private final PlayerRepository playerRepo;
+    private final MatchRepository matchRepo;
+    private final MatchIdPool matchIds;
+    private final PlayerIdCache playerIds;
+    private final int batchSize;
+    private final int maxPending;
+    private final LinkedBlockingQueue<Event> queue = new LinkedBlockingQueue<>();
+    private final Deque<String> deadLetters = new ArrayDeque<>(); // khóa: chính nó
+    private final AtomicBoolean backlogAlarm = new AtomicBoolean();
+    private final Thread writer;
+    private volatile boolean closing;
+    private volatile int lastFlushSize;
+
+    public WriteBehindQueue(DatabaseConnection dbConnection, PlayerRepository playerRepo,
+            MatchRepository matchRepo, MatchIdPool matchIds, PlayerIdCache playerIds, int batchSize,
+            int maxPending) {
+        this.dbConnection = dbConnection;
+        this.playerRepo = playerRepo;
+        this.matchRepo = matchRepo;
+        this.matchIds = matchIds;
+        this.playerIds = playerIds;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPending = Math.max(1, maxPending);
+        ServerMetrics.gauge("db.writer.pending", queue::size);
+        ServerMetrics.gauge("db.writer.lastFlushSize", () -> lastFlushSize);
+
+        writer = new Thread(this::run, "db-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drainOnShutdown, "db-writer-shutdown"));
+    }
+
+    /**
+     * Cộng delta điểm cho người chơi (ghi ở nền)
+     */
+    public void addPoints(String username, Integer playerId, int delta) {
+        enqueue(new Event(username, playerId, delta, null));
+    }
+
+    /**
+     * Lưu kết quả 1 ván (ghi ở nền)
+     */
+    public void saveMatch(MatchRecord match) {
+        enqueue(new Event(null, null, 0, match));
+    }
+
+    /**
+     * Các sự kiện bị bỏ vì lỗi không tạm thời (mới nhất ở cuối)
+     */
+    public List<String> deadLetters() {
+        synchronized (deadLetters) {
+            return new ArrayList<>(deadLetters);
+        }
+    }
+
+    private void enqueue(Event event) {
+        queue.add(event);
+        if (queue.size() > maxPending && backlogAlarm.compareAndSet(false, true)) {
+            ServerMetrics.increment("db.writer.backlogAlarms");
+            System.out.println("⚠️ WriteBehindQueue: " + queue.size() + " sự kiện chờ ghi (ngưỡng " + maxPending
+                    + ") - database chậm hoặc mất kết nối");
+        }
+    }
+
+    private void run() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        long backoff = 1000;
+        while (true) {
+            try {
+                if (batch.isEmpty()) {
+                    Event first = queue.poll(500, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        if (closing) {
+                            return;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                try {
+                    flush(batch);
+                    batch.clear();
+                } catch (SQLException | RuntimeException e) {
+                    if (isTransient(e)) {
+                        throw (SQLException) e;
+                    }
+                    isolate(batch);
+                }
+                backoff = 1000;
+                if (queue.size() < maxPending / 2 && backlogAlarm.compareAndSet(true, false)) {
+                    System.out.println("✅ WriteBehindQueue: hàng đợi đã xuống " + queue.size() + " sự kiện");
+                }
+            } catch (SQLException e) {
+                // Lỗi tạm thời: giữ nguyên phần lô chưa ghi, thử lại sau
+                ServerMetrics.increment("db.writer.failures");
+                System.out.println("WriteBehindQueue flush error (" + batch.size() + " sự kiện, thử lại sau "
+                        + backoff + "ms): " + e.getMessage());
+                if (closing) {
+                    return;
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void flush(List<Event> batch) throws SQLException, InterruptedException {
+        long start = System.nanoTime();
+        assignMatchIds(batch);
+
+        // PlayerID: đi kèm sự kiện (phiên đăng nhập) → cache → còn thiếu mới tra
+        Map<String, Integer> ids = new HashMap<>();
+        Map<String, Integer> pointDeltas = new HashMap<>();
+        List<MatchRecord> matches = new ArrayList<>();
+        for (Event e : batch) {
+            if (e.match != null) {
+                matches.add(e.match);
+                resolve(ids, e.match.winner, e.match.winnerId);
+                for (ResultRow row : e.match.results) {
+                    resolve(ids, row.username, row.playerId);
+                }
+            } else {
+                resolve(ids, e.username, e.playerId);
+                pointDeltas.merge(e.username, e.delta, Integer::sum);
+            }
+        }
+        Set<String> missing = new HashSet<>();
+        for (Map.Entry<String, Integer> id : ids.entrySet()) {
+            if (id.getValue() == null) {
+                missing.add(id.getKey());
+            }
+        }
+
+        try (Connection con = dbConnection.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                if (!missing.isEmpty()) {
+                    Map<String, Integer> found = playerRepo.getPlayerIds(con, missing);
+                    for (Map.Entry<String, Integer> f : found.entrySet()) {
+                        playerIds.put(f.getKey(), f.getValue());
+                    }
+                    ids.putAll(found);
+                }
+                Map<Integer, Integer> deltasById = new HashMap<>();
+                for (Map.Entry<String, Integer> d : pointDeltas.entrySet()) {
+                    Integer pid = ids.get(d.getKey());
+                    if (pid != null && d.getValue() != 0) {
+                        deltasById.merge(pid, d.getValue(), Integer::sum);
+                    }
+                }
+                playerRepo.addTotalPointsBatch(con, deltasById);
+                matchRepo.saveMatchesBatch(con, matches, ids);
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    con.rollback();
+                } catch (SQLException ignored) {
+                }
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+
+        long now = System.nanoTime();
+        for (Event e : batch) {
+            ServerMetrics.histogram("db.writer.lag").recordNanos(now - e.enqueuedAt);
+        }
+        ServerMetrics.histogram("db.writer.flushTime").recordNanos(now - start);
+        ServerMetrics.increment("db.writer.flushes");
+        ServerMetrics.add("db.writer.events", batch.size());
+        lastFlushSize = batch.size();
+    }
+
+    // Lô lỗi không tạm thời: chia đôi, ghi từng nửa theo thứ tự; còn 1 sự kiện
+    // vẫn lỗi → dead letter. Lỗi tạm thời giữa chừng → bỏ phần đầu lô đã xử
+    // lý khỏi batch rồi ném ra để run() thử lại phần còn lại.
+    private void isolate(List<Event> batch) throws SQLException, InterruptedException {
+        Deque<List<Event>> parts = new ArrayDeque<>();
+        parts.push(new ArrayList<>(batch));
+        int done = 0;
+        while (!parts.isEmpty()) {
+            List<Event> part = parts.pop();
+            try {
+                flush(part);
+                done += part.size();
+            } catch (SQLException | RuntimeException e) {
+                if (isTransient(e)) {
+                    batch.subList(0, done).clear();
+                    throw (SQLException) e;
+                }
+                if (part.size() == 1) {
+                    deadLetter(part.get(0), e);
+                    done++;
+                } else {
+                    ServerMetrics.increment("db.writer.splits");
+                    int half = part.size() / 2;
+                    parts.push(new ArrayList<>(part.subList(half, part.size())));
+                    parts.push(new ArrayList<>(part.subList(0, half)));
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    private void deadLetter(Event event, Exception cause) {
+        String entry = event + " → " + cause;
+        ServerMetrics.increment("db.writer.deadLetters");
+        System.out.println("❌ WriteBehindQueue bỏ sự kiện: " + entry);
+        synchronized (deadLetters) {
+            deadLetters.addLast(entry);
+            if (deadLetters.size() > DEAD_LETTER_KEEP) {
+                deadLetters.removeFirst();
+            }
+        }
+    }
+
+    // Thử lại có thể qua: mất kết nối, deadlock, timeout
+    static boolean isTransient(Exception e) {
+        if (!(e instanceof SQLException)) {
+            return false;
+        }
+        for (SQLException s = (SQLException) e; s != null; s = s.getNextException()) {
+            if (s instanceof SQLTransientException || s instanceof SQLRecoverableException) {
+                return true;
+            }
+            String state = s.getSQLState();
+            if (state != null && (state.startsWith("08") || state.equals("40001") || state.equals("HYT00")
+                    || state.equals("HYT01"))) {
+                return true;
+            }
+            if (s.getErrorCode() == 1205 || s.getErrorCode() == -2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Ván chưa có MatchID (pool trống lúc bắt đầu) → lấy ngay trên thread này;
+    // database lỗi → SQLException để giữ lô và thử lại
+    private void assignMatchIds(List<Event> batch) throws SQLException, InterruptedException {
+        for (Event e : batch) {
+            if (e.match != null && e.match.matchId == null) {
+                Integer id = matchIds.nextBlocking();
+                if (id == null) {
+                    throw new SQLException("Không giữ được MatchID", "08001");
+                }
+                e.match = e.match.withMatchId(id);
+            }
+        }
+    }
+
+    private void resolve(Map<String, Integer> ids, String username, Integer known) {
+        if (username == null || ids.get(username) != null) {
+            return;
+        }
+        ids.put(username, known != null ? known : playerIds.get(username));
+    }
+
+    // Shutdown hook: chờ writer ghi nốt hàng đợi
+    private void drainOnShutdown() {
+        closing = true;
+        try {
+            writer.join(SHUTDOWN_WAIT_MS);
+        } catch (InterruptedException e) {
+        }
+        if (!queue.isEmpty()) {
+            System.out.println("⚠️ Còn " + queue.size() + " sự kiện chưa ghi xuống database");
+        }
+    }
+
+    private static final class Event {
+        final String username;
+        final Integer playerId; // PlayerID của phiên đăng nhập, null → tra theo username
+        final int delta;
+        MatchRecord match; // matchId gắn sau nếu ván bắt đầu lúc pool trống
+        final long enqueuedAt = System.nanoTime();
+
+        Event(String username, Integer playerId, int delta, MatchRecord match) {
+            this.username = username;
+            this.playerId = playerId;
+            this.delta = delta;
+            this.match = match;
+        }
+
+        @Override
+        public String toString() {
+            if (match == null) {
+                return "addPoints(" + username + ", " + delta + ")";
+            }
+            return "saveMatch(#" + match.matchId + ", " + match.totalPlayers + " người, winner=" + match.winner
+                    + ", " + match.results.size() + " kết quả)";
+        }
+    }
+
+    /**
+     * 1 ván đã kết thúc: dòng Matches (đã giữ trước MatchID) + kết quả từng người
+     */
+    public static final class MatchRecord {
+        public final Integer matchId; // null → writer lấy từ MatchIdPool lúc ghi
+        public final int totalPlayers;
+        public final long startedAt; // epoch millis
+        public final String winner; // có thể null
+        public final Integer winnerId; // PlayerID của phiên đăng nhập, null → tra theo winner
+        public final List<ResultRow> results;
+
+        public MatchRecord(Integer matchId, int totalPlayers, long startedAt, String winner, Integer winnerId,
+                List<ResultRow> results) {
+            this.matchId = matchId;
+            this.totalPlayers = totalPlayers;
+            this.startedAt = startedAt;
+            this.winner = winner;
+            this.winnerId = winnerId;
+            this.results = results;
+        }
+
+        MatchRecord withMatchId(int id) {
+            return new MatchRecord(id, totalPlayers, startedAt, winner, winnerId, results);
+        }
+    }
+
+    /**
+     * 1 dòng MatchResults (playerId null → tra theo username lúc ghi)
+     */
+    public static final class ResultRow {
+        public final String username;
+        public final Integer playerId;
+        public final int rankPosition;
+        public final int score;
+        public final String handType;
+        public final String cardsText;
+
+        public ResultRow(String username, Integer playerId, int rankPosition, int score, String handType,
+                String cardsText) {
+            this.username = username;
+            this.playerId = playerId;
+            this.rankPosition = rankPosition;
+            this.score = score;
+            this.handType = handType;
+            this.cardsText = cardsText;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package server.game;
+
+import server.core.ServerConfig;
+import java.util.SplittableRandom;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * DEAL RANDOM - NGUỒN NGẪU NHIÊN CHIA BÀI, MỖI PHÒNG 1 LUỒNG RIÊNG
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * 1 SplittableRandom gốc cho cả server; mỗi phòng (GameLogic) lấy 1 luồng
+ * tách ra bằng split() lúc tạo phòng → các phòng không dùng chung object
+ * Random nào (không tranh chấp AtomicLong như java.util.Random).
+ *
+ * Mỗi ván lấy 1 seed long từ luồng của phòng, Deck.shuffle(seed) xáo bài
+ * hoàn toàn theo seed đó:
+ * - Seed được in ra log cùng MatchID lúc bắt đầu ván
+ * - Dựng lại đúng ván đó: new Deck().shuffle(seed) rồi rút theo thứ tự
+ *
+ * -Dserver.rng.seed=N: seed gốc cố định → phòng thứ k được tạo ra luôn
+ * nhận cùng 1 luồng, các ván của nó lặp lại y hệt giữa các lần chạy (benchmark,
+ * debug). Không đặt → seed gốc ngẫu nhiên.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class DealRandom {
+    private static final SplittableRandom MASTER = ServerConfig.RNG_SEED != null
+            ? new SplittableRandom(ServerConfig.RNG_SEED)
+            : new SplittableRandom();
+
+    static {
+        if (ServerConfig.RNG_SEED != null) {
+            System.out.println("🎲 Chế độ tái lập: server.rng.seed=" + ServerConfig.RNG_SEED);
+        }
+    }
+
+    private DealRandom() {
+    }
+
+    /**
+     * Luồng ngẫu nhiên riêng cho 1 phòng (chỉ dùng trên thread của phòng đó)
+     */
+    public static synchronized SplittableRandom newRoomStream() {
+        return MASTER.split();
+    }
+}
@@ -3,7 +3,6 @@ package server.game;
 import server.models.Card;
 import server.core.ClientHandler;
 import server.models.Deck;
-import server.models.Hand;
 import server.models.HandRank;
 import java.util.*;
 
@@ -16,33 +15,47 @@ import java.util.*;
  * - Khởi tạo & quản lý bộ bài (Deck)
  * - Rút bài cho người chơi
  * - Tính toán tay bài & xếp hạng
- * - Xác định người thắng
- * - Tính điểm thắng/thua
+ * - Xếp hạng người chơi 1 lần mỗi ván (MatchRanking)
  * 
  * ═══════════════════════════════════════════════════════════════════════════
  */
 public class GameLogic {
-    private Deck deck; // Bộ bài hiện tại
-    private Map<String, Hand> playerHands = new HashMap<>(); // Bài của từng người
-    private Map<String, Integer> drawCounts = new HashMap<>(); // Số lần rút của mỗi người
+    public static final int MAX_SEATS = 6;
+    private static final int MAX_CARDS = 3;
+
+    private final Deck deck = new Deck(); // Bộ bài của phòng (xáo lại mỗi ván, không tạo mới)
+    private final SplittableRandom random = DealRandom.newRoomStream(); // Luồng ngẫu nhiên riêng của phòng
+    private long roundSeed; // Seed xáo bài của ván hiện tại (in ra log để dựng lại ván)
+    // Trạng thái ván theo ghế (ghế = vị trí trong phòng lúc bắt đầu ván, lưu ở
+    // ClientHandler.getSeat()) → rút bài không tra map, không cấp phát
+    private final ClientHandler[] seats = new ClientHandler[MAX_SEATS]; // Người ngồi ghế (null = trống)
+    private final byte[][] seatCards = new byte[MAX_SEATS][MAX_CARDS]; // Code các lá đã rút (xem Card)
+    private final byte[] drawCounts = new byte[MAX_SEATS]; // Số lần rút của mỗi ghế
 
     /**
-     * Khởi tạo ván mới: tạo bộ bài mới & xáo bài
+     * Khởi tạo ván mới: xáo lại bộ bài theo seed mới, xếp ghế theo thứ tự
+     * trong phòng
      * 📤 GỬI: Không gửi gì
      * 📨 NHẬN: Không nhận gì
      */
     public void initializeNewRound(List<ClientHandler> players) {
-        deck = new Deck();
-        deck.shuffle();
-        playerHands.clear();
-        drawCounts.clear();
-
-        // Khởi tạo drawCount cho mỗi người
-        for (ClientHandler p : players) {
-            drawCounts.put(p.username, 0);
+        roundSeed = random.nextLong();
+        deck.shuffle(roundSeed);
+        reset();
+        for (int seat = 0; seat < players.size() && seat < MAX_SEATS; seat++) {
+            ClientHandler p = players.get(seat);
+            seats[seat] = p;
+            p.setSeat(seat);
         }
 
-        System.out.println("🎮 Khởi tạo ván mới, đã xáo bài");
+        System.out.println("🎮 Khởi tạo ván mới, đã xáo bài (seed=" + roundSeed + ")");
+    }
+
+    /**
+     * Seed xáo bài của ván hiện tại (new Deck().shuffle(seed) → đúng bộ bài đó)
+     */
+    public long getRoundSeed() {
+        return roundSeed;
     }
 
     /**
@@ -52,10 +65,15 @@ public class GameLogic {
      * 
      * @return Card rút được, hoặc null nếu không rút được
      */
-    public Card drawCardForPlayer(String username) {
+    public Card drawCardForPlayer(ClientHandler player) {
+        int seat = seatOf(player);
+        if (seat < 0) {
+            return null; // Không có ghế trong ván này (vào phòng khi ván đang chạy)
+        }
+
         // Kiểm tra đã rút đủ chưa
-        int cnt = drawCounts.getOrDefault(username, 0);
-        if (cnt >= 3) {
+        int cnt = drawCounts[seat];
+        if (cnt >= MAX_CARDS) {
             return null; // Đã rút đủ 3 lá
         }
 
@@ -66,181 +84,88 @@ public class GameLogic {
         }
 
         // Thêm vào tay bài
-        Hand hand = playerHands.computeIfAbsent(username, k -> new Hand());
-        hand.addCard(drawn);
-        drawCounts.put(username, cnt + 1);
+        seatCards[seat][cnt] = (byte) drawn.getCode();
+        drawCounts[seat] = (byte) (cnt + 1);
 
-        System.out.println("🂠 " + username + " rút: " + drawn + " (" + (cnt + 1) + "/3)");
+        System.out.println("🂠 " + player.username + " rút: " + drawn + " (" + (cnt + 1) + "/3)");
         return drawn;
     }
 
     /**
      * Kiểm tra người chơi đã rút đủ bài chưa
      */
-    public boolean hasDrawnMax(String username) {
-        return drawCounts.getOrDefault(username, 0) >= 3;
+    public boolean hasDrawnMax(ClientHandler player) {
+        return getDrawCount(player) >= MAX_CARDS;
     }
 
     /**
      * Lấy số lần đã rút của người chơi
      */
-    public int getDrawCount(String username) {
-        return drawCounts.getOrDefault(username, 0);
+    public int getDrawCount(ClientHandler player) {
+        int seat = seatOf(player);
+        return seat < 0 ? 0 : drawCounts[seat];
     }
 
     /**
-     * Lấy tay bài của người chơi
+     * Code các lá người chơi đã rút (bản sao, dùng cho OddsService)
      */
-    public Hand getPlayerHand(String username) {
-        return playerHands.get(username);
+    public byte[] getHandCodes(ClientHandler player) {
+        int seat = seatOf(player);
+        return seat < 0 ? new byte[0] : Arrays.copyOf(seatCards[seat], drawCounts[seat]);
     }
 
-    /**
-     * Tính toán xếp hạng tất cả người chơi
-     * 📤 GỬI: HAND_RANKS|user1:category:categoryName:score|...
-     * 📨 NHẬN: Không nhận gì
-     * 
-     * @return Map username -> HandRank
-     */
-    public Map<String, HandRank> calculateAllRanks() {
-        Map<String, HandRank> ranks = new HashMap<>();
-        for (Map.Entry<String, Hand> entry : playerHands.entrySet()) {
-            String username = entry.getKey();
-            Hand hand = entry.getValue();
-            HandRank rank = hand.getRank();
-            ranks.put(username, rank);
-        }
-        return ranks;
+    // Ghế của người chơi trong ván này, -1 nếu không có (ghế cache trên
+    // ClientHandler có thể là của ván ở phòng khác → so lại với seats)
+    private int seatOf(ClientHandler player) {
+        int seat = player.getSeat();
+        return seat >= 0 && seat < MAX_SEATS && seats[seat] == player ? seat : -1;
     }
 
-    /**
-     * Tính điểm modulo cho HighCard (tổng % 10)
-     * A=1, J=11, Q=12, K=13, còn lại là số
-     */
-    public Map<String, Integer> calculateModScores(Map<String, HandRank> ranks) {
-        Map<String, Integer> modScores = new HashMap<>();
-        for (Map.Entry<String, HandRank> entry : ranks.entrySet()) {
-            String username = entry.getKey();
-            HandRank rank = entry.getValue();
-            if (rank.getCategory() == 1) { // HighCard
-                Hand hand = playerHands.get(username);
-                if (hand != null) {
-                    modScores.put(username, computeModScore(hand));
-                }
-            }
+    // Bài của 1 ghế dạng "K♠,Q♠,J♠"
+    private String handString(int seat) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < drawCounts[seat]; i++) {
+            if (i > 0)
+                sb.append(",");
+            sb.append(Card.of(seatCards[seat][i]));
         }
-        return modScores;
-    }
-
-    /**
-     * Tính tổng điểm 3 lá % 10
-     */
-    private int computeModScore(Hand h) {
-        int sum = 0;
-        for (Card c : h.getCards()) {
-            String r = c.getRank();
-            int val;
-            switch (r) {
-                case "A":
-                    val = 1;
-                    break;
-                case "J":
-                    val = 11;
-                    break;
-                case "Q":
-                    val = 12;
-                    break;
-                case "K":
-                    val = 13;
-                    break;
-                default:
-                    try {
-                        val = Integer.parseInt(r);
-                    } catch (NumberFormatException ex) {
-                        val = 0;
-                    }
-            }
-            sum += val;
-        }
-        return sum % 10; // 0..9
+        return sb.toString();
     }
 
     /**
-     * Xác định người thắng
-     * 📤 GỬI: WINNER player1 tay=Straight Flush
+     * Xếp hạng tất cả người chơi (gọi 1 lần mỗi ván)
+     * 📤 GỬI: Không gửi gì
      * 📨 NHẬN: Không nhận gì
-     * 
-     * @return [winner_username, winner_rank, winner_mod_score]
+     *
+     * Mỗi người = 1 số long (strength << 32 | thứ tự), sort 1 lần mảng
+     * primitive. Bằng strength → ghế nhỏ hơn đứng trước.
+     *
+     * @return MatchRanking (winner ở vị trí 0)
      */
-    public WinnerResult determineWinner(Map<String, HandRank> ranks, Map<String, Integer> modScores) {
-        String winner = null;
-        HandRank winnerRank = null;
-        int winnerModScore = -1;
-
-        for (Map.Entry<String, HandRank> entry : ranks.entrySet()) {
-            String user = entry.getKey();
-            HandRank hr = entry.getValue();
-            int ms = hr.getCategory() == 1 ? modScores.getOrDefault(user, -1) : -1;
-
-            if (winner == null) {
-                winner = user;
-                winnerRank = hr;
-                winnerModScore = ms;
-                continue;
-            }
-
-            // So sánh category trước
-            if (hr.getCategory() > winnerRank.getCategory()) {
-                winner = user;
-                winnerRank = hr;
-                winnerModScore = ms;
-            } else if (hr.getCategory() == winnerRank.getCategory()) {
-                if (hr.getCategory() == 1) { // HighCard
-                    if (ms > winnerModScore || (ms == winnerModScore && hr.compareTo(winnerRank) > 0)) {
-                        winner = user;
-                        winnerRank = hr;
-                        winnerModScore = ms;
-                    }
-                } else { // Special hand tie-break
-                    if (hr.compareTo(winnerRank) > 0) {
-                        winner = user;
-                        winnerRank = hr;
-                        winnerModScore = ms;
-                    }
-                }
+    public MatchRanking rankPlayers() {
+        // Chỉ xếp ghế đã rút ít nhất 1 lá (kể cả người đã rời phòng giữa ván)
+        long[] keys = new long[MAX_SEATS];
+        int n = 0;
+        for (int seat = 0; seat < MAX_SEATS; seat++) {
+            if (seats[seat] != null && drawCounts[seat] > 0) {
+                int strength = HandEvaluator.strength(seatCards[seat], drawCounts[seat]);
+                keys[n++] = (long) strength << 32 | (MAX_SEATS - 1 - seat);
             }
         }
-
-        return new WinnerResult(winner, winnerRank, winnerModScore);
-    }
-
-    /**
-     * Sắp xếp người chơi theo thứ hạng tay bài (winner đầu tiên)
-     */
-    public List<String> sortPlayersByRank(Map<String, HandRank> ranks, Map<String, Integer> modScores) {
-        List<String> sortedPlayers = new ArrayList<>(ranks.keySet());
-        sortedPlayers.sort((u1, u2) -> {
-            HandRank hr1 = ranks.get(u1);
-            HandRank hr2 = ranks.get(u2);
-
-            // So sánh category trước
-            if (hr1.getCategory() != hr2.getCategory()) {
-                return hr2.getCategory() - hr1.getCategory(); // Category cao hơn lên trước
-            }
-
-            // Cùng category
-            if (hr1.getCategory() == 1) { // HighCard - so modulo
-                int mod1 = modScores.getOrDefault(u1, 0);
-                int mod2 = modScores.getOrDefault(u2, 0);
-                if (mod1 != mod2) {
-                    return mod2 - mod1; // Modulo cao hơn lên trước
-                }
-                return hr2.compareTo(hr1); // Tie-break
-            } else { // Special hand
-                return hr2.compareTo(hr1); // compareTo cao hơn lên trước
-            }
-        });
-        return sortedPlayers;
+        Arrays.sort(keys, 0, n);
+
+        String[] names = new String[n];
+        Integer[] playerIds = new Integer[n];
+        HandRank[] ranks = new HandRank[n];
+        String[] hands = new String[n];
+        for (int pos = 0; pos < n; pos++) {
+            int seat = MAX_SEATS - 1 - (int) keys[n - 1 - pos]; // đọc từ cuối = strength giảm dần
+            names[pos] = seats[seat].username;
+            playerIds[pos] = seats[seat].getPlayerId();
+            ranks[pos] = HandEvaluator.evaluate(seatCards[seat], drawCounts[seat]);
+            hands[pos] = handString(seat);
+        }
+        return new MatchRanking(names, playerIds, ranks, hands);
     }
 
     /**
@@ -250,12 +175,8 @@ public class GameLogic {
     public String buildShowHandsMessage(List<ClientHandler> players) {
         StringBuilder sb = new StringBuilder("SHOW_HANDS_ALL|");
         for (ClientHandler p : players) {
-            Hand h = playerHands.get(p.username);
-            if (h != null) {
-                sb.append(p.username).append("=").append(h.toShortString()).append("|");
-            } else {
-                sb.append(p.username).append("=").append("").append("|");
-            }
+            int seat = seatOf(p);
+            sb.append(p.username).append("=").append(seat >= 0 ? handString(seat) : "").append("|");
         }
         return sb.toString();
     }
@@ -264,15 +185,12 @@ public class GameLogic {
      * Tạo message HAND_RANKS
      * 📤 GỬI: HAND_RANKS|player1:4:Straight Flush:530|player2:1:HighCard:7|...
      */
-    public String buildHandRanksMessage(Map<String, HandRank> ranks, Map<String, Integer> modScores) {
+    public String buildHandRanksMessage(MatchRanking ranking) {
         StringBuilder sb = new StringBuilder("HAND_RANKS|");
-        for (Map.Entry<String, HandRank> entry : ranks.entrySet()) {
-            String user = entry.getKey();
-            HandRank hr = entry.getValue();
-            int displayScore = (hr.getCategory() == 1) ? modScores.getOrDefault(user, 0) : hr.toCompositeScore();
-            String categoryName = hr.getCategoryName();
-            sb.append(user).append(":").append(hr.getCategory())
-                    .append(":").append(categoryName).append(":").append(displayScore).append("|");
+        for (int i = 0; i < ranking.size(); i++) {
+            HandRank hr = ranking.rank(i);
+            sb.append(ranking.username(i)).append(":").append(hr.getCategory())
+                    .append(":").append(hr.getCategoryName()).append(":").append(ranking.displayScore(i)).append("|");
         }
         return sb.toString();
     }
@@ -281,23 +199,10 @@ public class GameLogic {
      * Reset state để chuẩn bị ván mới
      */
     public void reset() {
-        deck = null;
-        playerHands.clear();
-        drawCounts.clear();
-    }
-
-    /**
-     * Inner class để trả về kết quả winner
-     */
-    public static class WinnerResult {
-        public final String username;
-        public final HandRank rank;
-        public final int modScore;
-
-        public WinnerResult(String username, HandRank rank, int modScore) {
-            this.username = username;
-            this.rank = rank;
-            this.modScore = modScore;
+        // Không cần xóa ghế cache trên ClientHandler: seatOf() luôn so lại với seats
+        for (int seat = 0; seat < MAX_SEATS; seat++) {
+            seats[seat] = null;
+            drawCounts[seat] = 0;
         }
     }
 }
@@ -4,116 +4,189 @@ import server.models.Card;
 import server.models.HandRank;
 import java.util.*;
 
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * HAND EVALUATOR - BẢNG TRA SẴN CHO MỌI TAY 0..3 LÁ
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Evaluate a 3-card hand into tiers:
+ * 5 Three of a Kind
+ * 4 Straight Flush
+ * 3 Straight
+ * 2 Flush
+ * 1 High Card (Points)
+ *
+ * Kết quả chỉ phụ thuộc hạng từng lá + "cùng chất hay không", nên mọi tay
+ * được tính trước 1 lần lúc nạp class:
+ * key = ((h0 × 14 + h1) × 14 + h2) × 2 + đồngChất
+ * (h = hạng 0..12 theo thứ tự rút, 13 = chưa có lá) → 14³ × 2 = 5.488 ô,
+ * phủ toàn bộ 22.100 tổ hợp 3 lá và các tay chưa rút đủ.
+ * evaluate() = tính key + 1 lần đọc mảng, không sort, không cấp phát.
+ *
+ * STRENGTH (int, lớn hơn = mạnh hơn theo compareTo của HandRank):
+ * bit 24-26 category | 20-23 điểm mod 10 (chỉ HighCard) | 16-19 primary
+ * | 12-15 tieBreaker 1 | 8-11 tieBreaker 2 | 0-1 số lá
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
 public class HandEvaluator {
+    private static final int NO_CARD = 13;
+    private static final int TABLE_SIZE = 14 * 14 * 14 * 2;
+    private static final String[] CATEGORY_NAMES = { "", "HighCard", "Flush", "Straight", "StraightFlush",
+            "ThreeKind" };
+
+    private static final int[] STRENGTHS = new int[TABLE_SIZE];
+    private static final HandRank[] RANKS = new HandRank[TABLE_SIZE]; // HandRank dùng chung theo key
+
+    static {
+        int[] values = new int[3];
+        for (int key = 0; key < TABLE_SIZE; key++) {
+            boolean sameSuit = (key & 1) != 0;
+            int[] idx = { key / 2 / 196, key / 2 / 14 % 14, key / 2 % 14 };
+            int n = 0;
+            for (int h : idx) {
+                if (h != NO_CARD) {
+                    values[n++] = h + 2;
+                }
+            }
+            int strength = compute(values, n, sameSuit && n > 0);
+            STRENGTHS[key] = strength;
+            RANKS[key] = toHandRank(strength);
+        }
+    }
+
     /**
-     * Evaluate a 3-card hand into tiers:
-     * 5 Three of a Kind
-     * 4 Straight Flush
-     * 3 Straight
-     * 2 Flush
-     * 1 High Card (Points)
+     * HandRank của tay bài (object dùng chung, không tạo mới)
      */
     public static HandRank evaluate(List<Card> cards) {
-        if (cards == null || cards.size() == 0) {
-            return new HandRank(1, "HighCard", 0, Collections.emptyList());
+        return RANKS[key(cards)];
+    }
+
+    /**
+     * Strength của tay bài (1 lần đọc bảng)
+     */
+    public static int strength(List<Card> cards) {
+        return STRENGTHS[key(cards)];
+    }
+
+    /**
+     * Như trên, với count lá đầu của mảng code (GameLogic lưu bài theo ghế)
+     */
+    public static HandRank evaluate(byte[] codes, int count) {
+        return RANKS[key(codes, count)];
+    }
+
+    public static int strength(byte[] codes, int count) {
+        return STRENGTHS[key(codes, count)];
+    }
+
+    public static int category(int strength) {
+        return strength >>> 24;
+    }
+
+    // Tổng 3 lá % 10 (A=1, J=11, Q=12, K=13), chỉ khác 0 với HighCard
+    public static int modScore(int strength) {
+        return strength >>> 20 & 0xF;
+    }
+
+    public static int primaryValue(int strength) {
+        return strength >>> 16 & 0xF;
+    }
+
+    private static int key(List<Card> cards) {
+        int n = cards == null ? 0 : cards.size();
+        checkCount(n);
+        int key = 0;
+        int suit = -1;
+        boolean sameSuit = true;
+        for (int i = 0; i < 3; i++) {
+            int h = NO_CARD;
+            if (i < n) {
+                Card c = cards.get(i);
+                h = c.getRankValue() - 2;
+                if (suit >= 0 && c.getSuitIndex() != suit) {
+                    sameSuit = false;
+                }
+                suit = c.getSuitIndex();
+            }
+            key = key * 14 + h;
+        }
+        return key * 2 + (sameSuit ? 1 : 0);
+    }
+
+    private static int key(byte[] codes, int n) {
+        checkCount(n);
+        int key = 0;
+        int suit = -1;
+        boolean sameSuit = true;
+        for (int i = 0; i < 3; i++) {
+            int h = NO_CARD;
+            if (i < n) {
+                h = codes[i] % 13;
+                if (suit >= 0 && codes[i] / 13 != suit) {
+                    sameSuit = false;
+                }
+                suit = codes[i] / 13;
+            }
+            key = key * 14 + h;
         }
-        // Map rank string -> value 2..14
-        List<Integer> ranks = new ArrayList<>();
-        List<Integer> suits = new ArrayList<>();
-        for (Card c : cards) {
-            ranks.add(rankValue(c.getRank()));
-            suits.add(suitValue(c.getSuit()));
+        return key * 2 + (sameSuit ? 1 : 0);
+    }
+
+    private static void checkCount(int n) {
+        if (n > 3) {
+            throw new IllegalArgumentException("Tay bài tối đa 3 lá: " + n);
         }
-        Collections.sort(ranks); // ascending
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // DỰNG BẢNG (luật gốc, chỉ chạy lúc nạp class)
+    // ═══════════════════════════════════════════════════════════════
 
-        boolean isFlush = allEqual(suits);
-        boolean isThreeKind = allEqual(ranks);
-        boolean isStraight = isSequential(ranks);
+    private static int compute(int[] values, int n, boolean isFlush) {
+        int[] asc = Arrays.copyOf(values, n);
+        Arrays.sort(asc);
+        boolean isThreeKind = n == 3 && asc[0] == asc[1] && asc[1] == asc[2];
+        boolean isStraight = n == 3 && (asc[1] == asc[0] + 1 && asc[2] == asc[1] + 1
+                || asc[0] == 2 && asc[1] == 3 && asc[2] == 14); // A-2-3
+        // A-2-3: lá cao nhất là 3, không phải A
+        int top = n == 0 ? 0 : (isStraight && asc[2] == 14 && asc[0] == 2) ? 3 : asc[n - 1];
 
-        // THREE OF A KIND
-        if (isThreeKind && cards.size() == 3) {
-            int val = ranks.get(0); // all same
-            return new HandRank(5, "ThreeKind", val, Collections.emptyList());
+        if (isThreeKind) {
+            return pack(5, 0, asc[0], 0, 0, n);
         }
-        // STRAIGHT FLUSH
         if (isStraight && isFlush) {
-            int top = highestInStraight(ranks);
-            return new HandRank(4, "StraightFlush", top, Collections.emptyList());
+            return pack(4, 0, top, 0, 0, n);
         }
-        // STRAIGHT
         if (isStraight) {
-            int top = highestInStraight(ranks);
-            return new HandRank(3, "Straight", top, Collections.emptyList());
+            return pack(3, 0, top, 0, 0, n);
         }
-        // FLUSH
+        int tb1 = n >= 2 ? asc[n - 2] : 0;
+        int tb2 = n >= 3 ? asc[n - 3] : 0;
         if (isFlush) {
-            List<Integer> desc = new ArrayList<>(ranks);
-            Collections.sort(desc, Collections.reverseOrder());
-            return new HandRank(2, "Flush", desc.get(0), desc.subList(1, desc.size()));
+            return pack(2, 0, top, tb1, tb2, n);
         }
-        // HIGH CARD
-        List<Integer> desc = new ArrayList<>(ranks);
-        Collections.sort(desc, Collections.reverseOrder());
-        return new HandRank(1, "HighCard", desc.get(0), desc.subList(1, desc.size()));
-    }
-
-    private static boolean allEqual(List<Integer> list) {
-        for (int i = 1; i < list.size(); i++) {
-            if (!list.get(i).equals(list.get(0)))
-                return false;
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += asc[i] == 14 ? 1 : asc[i];
         }
-        return list.size() > 0;
-    }
-
-    private static boolean isSequential(List<Integer> ranksSortedAsc) {
-        if (ranksSortedAsc.size() != 3)
-            return false;
-        // Normal straight
-        if (ranksSortedAsc.get(1) == ranksSortedAsc.get(0) + 1 && ranksSortedAsc.get(2) == ranksSortedAsc.get(1) + 1)
-            return true;
-        // Handle A-2-3 (treat Ace as 1) -> ranks could be [2,3,14]
-        return ranksSortedAsc.get(0) == 2 && ranksSortedAsc.get(1) == 3 && ranksSortedAsc.get(2) == 14; // A-2-3
-    }
-
-    private static int highestInStraight(List<Integer> ranksSortedAsc) {
-        // For A-2-3 straight, highest should be 3 not Ace
-        if (ranksSortedAsc.get(0) == 2 && ranksSortedAsc.get(1) == 3 && ranksSortedAsc.get(2) == 14)
-            return 3;
-        return ranksSortedAsc.get(ranksSortedAsc.size() - 1);
+        return pack(1, sum % 10, top, tb1, tb2, n);
     }
 
-    private static int rankValue(String r) {
-        switch (r) {
-            case "J":
-                return 11;
-            case "Q":
-                return 12;
-            case "K":
-                return 13;
-            case "A":
-                return 14;
-            default:
-                try {
-                    return Integer.parseInt(r);
-                } catch (NumberFormatException e) {
-                    return 0;
-                }
-        }
+    private static int pack(int category, int mod, int primary, int tb1, int tb2, int n) {
+        return category << 24 | mod << 20 | primary << 16 | tb1 << 12 | tb2 << 8 | n;
     }
 
-    private static int suitValue(String s) {
-        // Map suits to 0..3 deterministic
-        switch (s) {
-            case "♠":
-                return 0;
-            case "♥":
-                return 1;
-            case "♦":
-                return 2;
-            case "♣":
-                return 3;
-            default:
-                return -1;
+    private static HandRank toHandRank(int strength) {
+        int category = category(strength);
+        List<Integer> tieBreakers = new ArrayList<>();
+        if (category <= 2) { // Flush / HighCard: các lá còn lại giảm dần
+            int n = strength & 0x3;
+            for (int i = 1; i < n; i++) {
+                tieBreakers.add(strength >>> (16 - 4 * i) & 0xF);
+            }
         }
+        return new HandRank(category, CATEGORY_NAMES[category], primaryValue(strength),
+                Collections.unmodifiableList(tieBreakers), strength);
     }
 }
@@ -0,0 +1,75 @@
+package server.game;
+
+import server.models.HandRank;
+import java.util.*;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * MATCH RANKING - XẾP HẠNG CUỐI VÁN (TÍNH 1 LẦN, DÙNG LẠI)
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Người chơi đã sắp theo strength giảm dần (HandEvaluator: category →
+ * điểm mod 10 nếu HighCard → primary → tie-breakers); vị trí 0 là người
+ * thắng. GameFlowManager dùng chung 1 bản cho HAND_RANKS, WINNER, RANKING,
+ * cập nhật điểm và lưu database.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class MatchRanking {
+    private final String[] usernames;
+    private final Integer[] playerIds; // PlayerID của phiên đăng nhập (có thể null)
+    private final HandRank[] ranks;
+    private final String[] hands; // "K♠,Q♠,J♠"
+
+    MatchRanking(String[] usernames, Integer[] playerIds, HandRank[] ranks, String[] hands) {
+        this.usernames = usernames;
+        this.playerIds = playerIds;
+        this.ranks = ranks;
+        this.hands = hands;
+    }
+
+    public int size() {
+        return usernames.length;
+    }
+
+    // Người thắng (null nếu không ai có bài)
+    public String winner() {
+        return usernames.length == 0 ? null : usernames[0];
+    }
+
+    public String username(int position) {
+        return usernames[position];
+    }
+
+    public Integer playerId(int position) {
+        return playerIds[position];
+    }
+
+    public HandRank rank(int position) {
+        return ranks[position];
+    }
+
+    // Bài đã rút dạng "K♠,Q♠,J♠" (lưu database)
+    public String hand(int position) {
+        return hands[position];
+    }
+
+    public boolean isHighCard(int position) {
+        return ranks[position].getCategory() == 1;
+    }
+
+    // Tổng 3 lá % 10 (chỉ có nghĩa với HighCard)
+    public int modScore(int position) {
+        return HandEvaluator.modScore(ranks[position].getStrength());
+    }
+
+    // Điểm hiển thị / lưu database: HighCard → điểm mod 10, còn lại → composite
+    public int displayScore(int position) {
+        return isHighCard(position) ? modScore(position) : ranks[position].toCompositeScore();
+    }
+
+    // Danh sách username theo thứ hạng (winner đầu tiên)
+    public List<String> usernames() {
+        return Collections.unmodifiableList(Arrays.asList(usernames));
+    }
+}
@@ -0,0 +1,244 @@
+package server.game;
+
+import server.core.ServerConfig;
+import server.core.ServerMetrics;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * ODDS SERVICE - XÁC SUẤT THẮNG CỦA TAY BÀI ĐANG RÚT DỞ
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Cho các lá người chơi đã rút (0..3) và số đối thủ, trả về xác suất thắng
+ * khi mọi người rút đủ 3 lá, theo đúng luật của game (so strength của
+ * HandEvaluator: ThreeKind > StraightFlush > Straight > Flush > HighCard
+ * theo điểm mod 10). Bài của đối thủ coi như chưa biết; hòa → chia đều.
+ *
+ * Cách tính:
+ * - 1 đối thủ, đã có ≥ 2 lá → duyệt hết (≤ 50 × 18.424 tay), kết quả chính xác
+ * - Còn lại → Monte Carlo -Dserver.odds.samples lần (mặc định 20.000), chia
+ * thành các task fork/join trên pool "odds-N" (-Dserver.odds.threads, mặc
+ * định = số core), mỗi task 1 SplittableRandom tách riêng
+ *
+ * Cache: tay bài được đưa về dạng chuẩn (sắp theo hạng, đổi tên chất theo
+ * thứ tự xuất hiện) + số đối thủ → vài nghìn khóa cho mọi tay có thể có.
+ * Cache giữ CompletableFuture → nhiều phòng hỏi cùng 1 tay chỉ tính 1 lần,
+ * các lần sau trả về ngay.
+ *
+ * 📤 GỬI (GameFlowManager, chỉ cho client có capability ODDS1):
+ * "ODDS;số lá đã rút;phần trăm thắng" (vd: "ODDS;2;37.5") sau mỗi DRAW
+ *
+ * Metrics: odds.queries, odds.cacheMisses, odds.cacheSize, odds.computeTime
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class OddsService {
+    public static final String CAPABILITY = "ODDS1";
+    private static final int MAX_OPPONENTS = GameLogic.MAX_SEATS - 1;
+    private static final int TASK_SAMPLES = 2_000; // số lần thử tối đa của 1 task lá
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, ServerConfig.ODDS_THREADS), pool -> {
+        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        t.setName("odds-" + t.getPoolIndex());
+        t.setDaemon(true);
+        return t;
+    }, null, false);
+    private static final SplittableRandom ROOT = new SplittableRandom();
+    private static final Map<Integer, CompletableFuture<Double>> CACHE = new ConcurrentHashMap<>();
+
+    static {
+        ServerMetrics.gauge("odds.cacheSize", CACHE::size);
+    }
+
+    private OddsService() {
+    }
+
+    /**
+     * Xác suất thắng (0..1) của tay bài gồm count lá đầu của codes
+     * (trả về ngay nếu đã có trong cache, nếu chưa thì tính trên pool odds)
+     */
+    public static CompletableFuture<Double> winProbability(byte[] codes, int count, int opponents) {
+        ServerMetrics.increment("odds.queries");
+        if (opponents <= 0) {
+            return CompletableFuture.completedFuture(1.0);
+        }
+        int[] hand = canonical(codes, count);
+        int opp = Math.min(opponents, MAX_OPPONENTS);
+        int key = opp | count << 3 | hand[0] << 5 | hand[1] << 11 | hand[2] << 17;
+        return CACHE.computeIfAbsent(key, k -> {
+            ServerMetrics.increment("odds.cacheMisses");
+            return CompletableFuture.supplyAsync(() -> compute(hand, count, opp), POOL);
+        });
+    }
+
+    // Sắp theo (hạng, chất), rồi đặt lại chất theo thứ tự xuất hiện → các tay
+    // chỉ khác tên chất dùng chung 1 khóa
+    private static int[] canonical(byte[] codes, int count) {
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = codes[i] % 13 * 4 + codes[i] / 13;
+        }
+        Arrays.sort(sorted);
+        int[] suitMap = { -1, -1, -1, -1 };
+        int nextSuit = 0;
+        int[] hand = new int[3];
+        for (int i = 0; i < count; i++) {
+            int rank = sorted[i] / 4;
+            int suit = sorted[i] % 4;
+            if (suitMap[suit] < 0) {
+                suitMap[suit] = nextSuit++;
+            }
+            hand[i] = suitMap[suit] * 13 + rank;
+        }
+        return hand;
+    }
+
+    private static double compute(int[] hand, int count, int opponents) {
+        long start = System.nanoTime();
+        byte[] mine = new byte[3];
+        boolean[] used = new boolean[52];
+        for (int i = 0; i < count; i++) {
+            mine[i] = (byte) hand[i];
+            used[hand[i]] = true;
+        }
+        byte[] rest = new byte[52 - count];
+        int r = 0;
+        for (int code = 0; code < 52; code++) {
+            if (!used[code]) {
+                rest[r++] = (byte) code;
+            }
+        }
+
+        double p;
+        if (opponents == 1 && count >= 2) {
+            p = exact(mine, count, rest);
+        } else {
+            int samples = Math.max(TASK_SAMPLES, ServerConfig.ODDS_SAMPLES);
+            SplittableRandom random;
+            synchronized (ROOT) {
+                random = ROOT.split();
+            }
+            p = POOL.invoke(new Simulation(mine, count, rest, opponents, samples, random)) / samples;
+        }
+        ServerMetrics.histogram("odds.computeTime").recordNanos(System.nanoTime() - start);
+        return p;
+    }
+
+    // 1 đối thủ: duyệt mọi lá còn thiếu của mình × mọi tay 3 lá của đối thủ
+    private static double exact(byte[] mine, int count, byte[] rest) {
+        double wins = 0;
+        long total = 0;
+        byte[] opp = new byte[3];
+        int n = rest.length;
+        int missing = 3 - count; // 0 hoặc 1
+        for (int m = missing == 0 ? -1 : 0; m < (missing == 0 ? 0 : n); m++) {
+            if (m >= 0) {
+                mine[2] = rest[m];
+            }
+            int my = HandEvaluator.strength(mine, 3);
+            for (int a = 0; a < n; a++) {
+                if (a == m)
+                    continue;
+                for (int b = a + 1; b < n; b++) {
+                    if (b == m)
+                        continue;
+                    for (int c = b + 1; c < n; c++) {
+                        if (c == m)
+                            continue;
+                        opp[0] = rest[a];
+                        opp[1] = rest[b];
+                        opp[2] = rest[c];
+                        int other = HandEvaluator.strength(opp, 3);
+                        wins += my > other ? 1 : my == other ? 0.5 : 0;
+                        total++;
+                    }
+                }
+            }
+        }
+        return wins / total;
+    }
+
+    /**
+     * Monte Carlo fork/join: trả về tổng phần thắng của samples lần thử
+     */
+    private static final class Simulation extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        private final byte[] mine;
+        private final int count;
+        private final byte[] rest;
+        private final int opponents;
+        private final int samples;
+        private final SplittableRandom random;
+
+        Simulation(byte[] mine, int count, byte[] rest, int opponents, int samples, SplittableRandom random) {
+            this.mine = mine;
+            this.count = count;
+            this.rest = rest;
+            this.opponents = opponents;
+            this.samples = samples;
+            this.random = random;
+        }
+
+        @Override
+        protected Double compute() {
+            if (samples > TASK_SAMPLES) {
+                int half = samples / 2;
+                // Tách RNG trước khi fork → mỗi task có luồng riêng, không dùng chung
+                Simulation left = new Simulation(mine, count, rest, opponents, half, random.split());
+                Simulation right = new Simulation(mine, count, rest, opponents, samples - half, random);
+                left.fork();
+                double r = right.compute();
+                return r + left.join();
+            }
+            return simulate();
+        }
+
+        private double simulate() {
+            byte[] deck = rest.clone();
+            byte[] hand = Arrays.copyOf(mine, 3);
+            byte[] opp = new byte[3];
+            int need = 3 - count + 3 * opponents;
+            double wins = 0;
+            for (int s = 0; s < samples; s++) {
+                // Fisher–Yates từng phần: chỉ xáo need lá đầu
+                for (int i = 0; i < need; i++) {
+                    int j = i + random.nextInt(deck.length - i);
+                    byte tmp = deck[i];
+                    deck[i] = deck[j];
+                    deck[j] = tmp;
+                }
+                int d = 0;
+                for (int i = count; i < 3; i++) {
+                    hand[i] = deck[d++];
+                }
+                int my = HandEvaluator.strength(hand, 3);
+                int best = 0;
+                int ties = 0;
+                for (int o = 0; o < opponents; o++) {
+                    opp[0] = deck[d++];
+                    opp[1] = deck[d++];
+                    opp[2] = deck[d++];
+                    int other = HandEvaluator.strength(opp, 3);
+                    if (other > best) {
+                        best = other;
+                        ties = 0;
+                    }
+                    if (other == best) {
+                        ties++;
+                    }
+                }
+                if (my > best) {
+                    wins += 1;
+                } else if (my == best) {
+                    wins += 1.0 / (ties + 1);
+                }
+            }
+            return wins;
+        }
+    }
+}
@@ -3,8 +3,8 @@ package server.handlers;
 
 
 
+import server.database.Account;
 import server.database.Database;
-import java.util.Map;
 
 /**
  * ═══════════════════════════════════════════════════════════════════════════
@@ -15,17 +15,15 @@ import java.util.Map;
  * - Xác thực username/password
  * - Tự động tạo tài khoản mới nếu chưa tồn tại
  * - Load điểm số từ database
- * - Cập nhật cache accounts
+ * - Cache tài khoản nằm trong Database (AccountCache)
  * 
  * ═══════════════════════════════════════════════════════════════════════════
  */
 public class AuthenticationHandler {
     private Database db;
-    private Map<String, String> accountsCache;
 
-    public AuthenticationHandler(Database db, Map<String, String> accountsCache) {
+    public AuthenticationHandler(Database db) {
         this.db = db;
-        this.accountsCache = accountsCache;
     }
 
     /**
@@ -33,41 +31,23 @@ public class AuthenticationHandler {
      * 📨 NHẬN: LOGIN;username;password
      * 📤 GỬI: LOGIN_OK hoặc LOGIN_FAIL
      * 
-     * LOGIC:
-     * 1. Thử authenticate với username/password
-     * 2. Nếu fail → kiểm tra username có tồn tại chưa
-     * 3. Nếu chưa tồn tại → tạo tài khoản mới
-     * 4. Load điểm số từ database
+     * LOGIC (tối đa 1 lượt gọi database, 0 nếu tài khoản đã có trong cache):
+     * 1. db.login: cache → PlayerRepository.loginOrCreate (tạo mới nếu
+     * username chưa tồn tại, trả về PlayerID + mật khẩu + điểm)
+     * 2. So mật khẩu: sai → thất bại
      * 
      * @return LoginResult với thông tin đăng nhập
      */
     public LoginResult handleLogin(String username, String password) {
-        boolean authenticated = db.authenticate(username, password);
-
-        if (!authenticated) {
-            // Kiểm tra user có tồn tại chưa
-            Integer existingId = db.getPlayerId(username);
-            if (existingId == null) {
-                // Chưa tồn tại → tạo mới
-                Integer newId = db.createPlayer(username, password);
-                if (newId != null) {
-                    accountsCache.put(username, password); // Cập nhật cache
-                    authenticated = true;
-                    System.out.println("🆕 Tạo tài khoản mới: " + username);
-                }
-            }
-            // Nếu đã tồn tại nhưng sai mật khẩu → vẫn thất bại
+        Account account = db.login(username, password);
+        if (account == null || !account.matches(password)) {
+            return new LoginResult(false, null, 0, null); // Database lỗi hoặc sai mật khẩu
         }
 
-        if (authenticated) {
-            // Load điểm số từ database
-            Integer pts = db.getTotalPoints(username);
-            int points = pts == null ? 0 : pts;
-
-            return new LoginResult(true, username, points);
+        if (account.created) {
+            System.out.println("🆕 Tạo tài khoản mới: " + username);
         }
-
-        return new LoginResult(false, null, 0);
+        return new LoginResult(true, username, account.points, account.playerId);
     }
 
     /**
@@ -77,11 +57,13 @@ public class AuthenticationHandler {
         public final boolean success;
         public final String username;
         public final int points;
+        public final Integer playerId; // PlayerID (null nếu thất bại)
 
-        public LoginResult(boolean success, String username, int points) {
+        public LoginResult(boolean success, String username, int points, Integer playerId) {
             this.success = success;
             this.username = username;
             this.points = points;
+            this.playerId = playerId;
         }
     }
 }
@@ -94,26 +94,20 @@ public class MessageHandler {
 
     /**
      * Xử lý JOIN;roomName
-     * 📤 GỬI: JOIN_OK;RoomName hoặc JOIN_FAIL hoặc ROOM_FULL
+     * 📤 GỬI: JOIN_FAIL nếu không có phòng; còn lại RoomThread.addPlayer trả
+     * lời JOIN_OK;RoomName / ROOM_FULL / JOIN_FAIL
      * 📨 NHẬN: JOIN;roomName
      * 
-     * @return [status, message] - status: "OK", "FAIL", "FULL"
+     * @return [status, message] - status: "QUEUED", "FAIL"
      */
     public String[] handleJoinRoom(ClientHandler client, String roomName) {
         RoomThread room = rooms.get(roomName);
         if (room == null) {
             return new String[] { "FAIL", "Phòng không tồn tại" };
         }
-        if (room.isFull()) {
-            return new String[] { "FULL", "Phòng đã đầy" };
-        }
 
         room.addPlayer(client);
-        client.setCurrentRoom(roomName);
-        Server.broadcastRoomsList();
-
-        System.out.println("👤 " + client.username + " tham gia: " + roomName);
-        return new String[] { "OK", roomName };
+        return new String[] { "QUEUED", roomName };
     }
 
     /**
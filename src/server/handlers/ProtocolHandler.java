@@ -88,13 +88,10 @@ public class ProtocolHandler {
         if (msg.startsWith("JOIN;")) {
             String roomName = msg.split(";")[1];
             RoomCommandHandler.RoomResult result = roomHandler.handleJoinRoom(client, roomName);
-            if (result.success) {
-                client.sendMessage("JOIN_OK;" + result.roomName);
-            } else if (result.status.equals("FULL")) {
-                client.sendMessage("ROOM_FULL");
-            } else {
+            if (!result.success) {
                 client.sendMessage("JOIN_FAIL");
             }
+            // Có phòng: RoomThread.addPlayer trả lời JOIN_OK / ROOM_FULL / JOIN_FAIL
             return true;
         }
 
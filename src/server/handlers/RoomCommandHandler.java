@@ -40,14 +40,15 @@ public class RoomCommandHandler {
      */
     public RoomResult handleCreateRoom(ClientHandler client) {
         String username = client.username;
-        int roomNumber = Server.findSmallestAvailableRoomNumber();
-        String roomName = "Room_" + roomNumber;
+        String roomName;
 
         synchronized (rooms) {
+            // Chọn số trong cùng lock với put: 2 lệnh CREATE đồng thời không
+            // được nhận cùng 1 tên (phòng trước sẽ bị ghi đè, mất khỏi rooms)
+            roomName = "Room_" + Server.findSmallestAvailableRoomNumber();
             RoomThread newRoom = new RoomThread(roomName, rooms, db);
             rooms.put(roomName, newRoom);
-            newRoom.start();
-            newRoom.addPlayer(client);
+            newRoom.addHost(client);
             client.setCurrentRoom(roomName);
         }
 
@@ -59,11 +60,12 @@ public class RoomCommandHandler {
     /**
      * Xử lý JOIN - Tham gia phòng
      * 📨 NHẬN: JOIN;RoomName
-     * 📤 GỬI: JOIN_OK;RoomName hoặc JOIN_FAIL hoặc ROOM_FULL
+     * 📤 GỬI: JOIN_FAIL nếu không có phòng; còn lại RoomThread.addPlayer trả
+     * lời (JOIN_OK;RoomName / ROOM_FULL / JOIN_FAIL) từ hộp thư của phòng
      * 
      * @param client   ClientHandler của người tham gia
      * @param roomName Tên phòng muốn join
-     * @return RoomResult với status
+     * @return RoomResult: QUEUED (phòng sẽ trả lời) hoặc NOT_FOUND
      */
     public RoomResult handleJoinRoom(ClientHandler client, String roomName) {
         RoomThread room = rooms.get(roomName);
@@ -72,16 +74,8 @@ public class RoomCommandHandler {
             return new RoomResult(false, "NOT_FOUND", roomName);
         }
 
-        if (room.isFull()) {
-            return new RoomResult(false, "FULL", roomName);
-        }
-
         room.addPlayer(client);
-        client.setCurrentRoom(roomName);
-        Server.broadcastRoomsList();
-
-        System.out.println("👤 " + client.username + " tham gia: " + roomName);
-        return new RoomResult(true, "OK", roomName);
+        return new RoomResult(true, "QUEUED", roomName);
     }
 
     /**
@@ -154,7 +148,7 @@ public class RoomCommandHandler {
      */
     public static class RoomResult {
         public final boolean success;
-        public final String status; // OK, CREATED, NOT_FOUND, FULL, ROOM_EXISTS
+        public final String status; // QUEUED, CREATED, NOT_FOUND, ROOM_EXISTS
         public final String roomName;
 
         public RoomResult(boolean success, String status, String roomName) {
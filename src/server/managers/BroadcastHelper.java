@@ -3,6 +3,7 @@ package server.managers;
 import server.core.ClientHandler;
 import server.core.RoomThread;
 import server.core.Server;
+import server.network.OutboundFrame;
 import java.util.List;
 import java.util.Map;
 
@@ -67,18 +68,19 @@ public class BroadcastHelper {
      * @param message Message cần gửi
      */
     public void broadcastToAll(String message) {
+        OutboundFrame frame = new OutboundFrame(message);
         synchronized (activeClients) {
             for (ClientHandler c : activeClients) {
-                c.sendMessage(message);
+                c.sendFrame(frame);
             }
         }
     }
 
     /**
-     * Broadcast PLAYER_LIST đến tất cả clients
+     * Broadcast PLAYER_LIST đến client đăng ký topic lobby.players
      */
     public void broadcastPlayerList() {
         String playerListMsg = buildPlayerListMessage();
-        broadcastToAll(playerListMsg);
+        Server.topics.publish(TopicManager.LOBBY_PLAYERS, new OutboundFrame(playerListMsg));
     }
 }
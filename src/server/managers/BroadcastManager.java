@@ -1,6 +1,8 @@
 package server.managers;
 
 import server.core.ClientHandler;
+import server.core.Server;
+import server.network.OutboundFrame;
 import java.util.*;
 
 /**
@@ -27,12 +29,11 @@ public class BroadcastManager {
     }
 
     /**
-     * Broadcast message đến tất cả players trong phòng
+     * Broadcast message đến tất cả players trong phòng (topic room.<tên>,
+     * encode 1 lần, mọi người nhận dùng chung frame)
      */
     public void broadcast(String msg) {
-        for (ClientHandler p : players) {
-            p.sendMessage(msg);
-        }
+        Server.topics.publish(TopicManager.room(roomName), new OutboundFrame(msg));
     }
 
     /**
@@ -1,12 +1,13 @@
 package server.managers;
 
 import server.models.Card;
-import server.models.Hand;
 import server.core.Server;
+import server.core.ServerMetrics;
 import server.core.ClientHandler;
 import server.database.Database;
-import server.game.GameLogic;
-import server.models.HandRank;
+import server.database.WriteBehindQueue;
+import server.game.MatchRanking;
+import server.game.OddsService;
 import java.util.*;
 
 /**
@@ -20,6 +21,8 @@ import java.util.*;
  * - Chuyển lượt
  * - Kết thúc game và tính điểm
  * 
+ * Chỉ được gọi từ hộp thư của RoomThread (tuần tự) → không cần synchronized.
+ * 
  * ═══════════════════════════════════════════════════════════════════════════
  */
 public class GameFlowManager {
@@ -48,7 +51,7 @@ public class GameFlowManager {
     /**
      * Bắt đầu game
      */
-    public synchronized void startGame() {
+    public void startGame() {
         if (!playerManager.hasEnoughPlayers()) {
             broadcastManager.broadcast("SYSTEM Chưa đủ người chơi để bắt đầu!");
             return;
@@ -58,8 +61,15 @@ public class GameFlowManager {
             return;
         }
 
+        long startedAt = System.nanoTime();
         gameState.startGame();
 
+        // MatchID lấy từ khối đã giữ trước (không bao giờ chờ INSERT; pool
+        // trống → null, writer gắn MatchID lúc ghi), dòng Matches được ghi đủ
+        // lúc kết thúc ván
+        Integer matchId = db != null ? db.nextMatchId() : null;
+        gameState.startMatch(matchId, players.size());
+
         // Khởi tạo game logic & turn manager
         gameState.getGameLogic().initializeNewRound(players);
         gameState.getTurnManager().initializeTurn(playerManager.getHostIndex());
@@ -75,18 +85,18 @@ public class GameFlowManager {
                                                                                                      // hệ thống
         broadcastManager.broadcastRoomUpdate(playerManager.getHostIndex());
         gameState.getTurnManager().notifyCurrentTurn(players);
+        // START → YOUR_TURN đầu tiên đã vào hàng đợi gửi
+        ServerMetrics.histogram("game.startToFirstTurn").recordNanos(System.nanoTime() - startedAt);
         gameState.getTurnManager().startTurnTimer();
 
-        // Tạo mới bản ghi Matches
-        Integer matchId = db != null ? db.createMatch(players.size()) : null;
-        gameState.setMatchId(matchId);
-        System.out.println("🎮 " + roomName + " bắt đầu, MatchID=" + matchId + ", không chia bài ban đầu.");
+        System.out.println("🎮 " + roomName + " bắt đầu, MatchID=" + matchId + ", seed="
+                + gameState.getGameLogic().getRoundSeed() + ", không chia bài ban đầu.");
     }
 
     /**
      * Rút bài (legacy method - giữ để tương thích)
      */
-    public synchronized void playerDrawCard(int playerID) {
+    public void playerDrawCard(int playerID) {
         if (!gameState.isGameStarted())
             return;
 
@@ -102,26 +112,25 @@ public class GameFlowManager {
     /**
      * Rút bài theo lượt
      */
-    public synchronized void drawCard(ClientHandler player) {
+    public void drawCard(ClientHandler player) {
         if (!gameState.isGameStarted() || players.isEmpty())
             return;
 
-        int idx = players.indexOf(player);
         int currentTurn = gameState.getTurnManager().getCurrentTurn();
-        if (idx != currentTurn) {
+        if (currentTurn >= players.size() || players.get(currentTurn) != player) {
             player.sendMessage("NOT_YOUR_TURN"); // 📤 GỬI: "NOT_YOUR_TURN" → chưa đến lượt rút bài
             return;
         }
 
         // Kiểm tra đã rút đủ chưa
-        if (gameState.getGameLogic().hasDrawnMax(player.username)) {
+        if (gameState.getGameLogic().hasDrawnMax(player)) {
             player.sendMessage("SYSTEM Bạn đã rút đủ 3 lá!"); // 📤 GỬI: "SYSTEM ..." → thông báo hệ thống
             nextTurn();
             return;
         }
 
         // Rút bài
-        Card drawn = gameState.getGameLogic().drawCardForPlayer(player.username);
+        Card drawn = gameState.getGameLogic().drawCardForPlayer(player);
         if (drawn == null) {
             player.sendMessage("SYSTEM Hết bài!"); // 📤 GỬI: "SYSTEM ..." → thông báo hệ thống
             nextTurn();
@@ -129,17 +138,30 @@ public class GameFlowManager {
         }
 
         // Gửi lá rút cho người chơi
-        int cnt = gameState.getGameLogic().getDrawCount(player.username);
+        int cnt = gameState.getGameLogic().getDrawCount(player);
         player.sendMessage("DRAW;" + drawn.toString()); // 📤 GỬI: "DRAW;K♠" → lá bài vừa rút được
         System.out.println("🂠 " + player.username + " rút: " + drawn + " (" + cnt + "/3)");
+        if (player.supportsOdds()) {
+            sendOdds(player, cnt);
+        }
 
         nextTurn();
     }
 
+    /**
+     * Gửi xác suất thắng hiện tại cho client ODDS1 (tính ngoài thread của
+     * phòng, tay đã gặp thì lấy ngay từ cache của OddsService)
+     */
+    private void sendOdds(ClientHandler player, int cnt) {
+        byte[] hand = gameState.getGameLogic().getHandCodes(player);
+        OddsService.winProbability(hand, hand.length, players.size() - 1)
+                .thenAccept(p -> player.sendMessage(String.format(Locale.ROOT, "ODDS;%d;%.1f", cnt, p * 100))); // 📤 GỬI: "ODDS;2;37.5" → % thắng sau lá vừa rút
+    }
+
     /**
      * Chuyển sang lượt tiếp theo
      */
-    public synchronized void nextTurn() {
+    public void nextTurn() {
         if (players.isEmpty()) {
             endGame();
             return;
@@ -158,7 +180,7 @@ public class GameFlowManager {
     /**
      * Kết thúc game
      */
-    public synchronized void endGame() {
+    public void endGame() {
         gameState.endGame();
 
         // Trường hợp đặc biệt: Chỉ còn 1 người
@@ -168,25 +190,18 @@ public class GameFlowManager {
             return;
         }
 
-        // Thu thập tay bài & xếp hạng
-        Map<String, HandRank> ranks = gameState.getGameLogic().calculateAllRanks();
-        Map<String, Integer> modScores = gameState.getGameLogic().calculateModScores(ranks);
+        // Xếp hạng 1 lần, dùng chung cho broadcast, điểm và database
+        MatchRanking ranking = gameState.getGameLogic().rankPlayers();
 
         // Broadcast toàn bộ bài
         String showAllMsg = gameState.getGameLogic().buildShowHandsMessage(players);
         broadcastManager.broadcast(showAllMsg); // 📤 GỬI: "SHOW_HANDS_ALL|user1=K♠,Q♠,J♠|..." → lật tất cả bài
 
-        // Xác định người thắng
-        GameLogic.WinnerResult winnerResult = gameState.getGameLogic().determineWinner(ranks, modScores);
-        String winner = winnerResult.username;
-        HandRank winnerRank = winnerResult.rank;
-        int winnerModScore = winnerResult.modScore;
-
         // Cập nhật điểm số
-        updateScoresAndBroadcast(ranks, modScores, winner, winnerRank, winnerModScore, timeoutPlayers);
+        updateScoresAndBroadcast(ranking, timeoutPlayers);
 
         // Lưu vào database
-        saveMatchResults(ranks, modScores, winner);
+        saveMatchResults(ranking);
 
         // Reset cho ván mới
         broadcastManager.broadcast("END;" + roomName); // 📤 GỬI: "END;RoomName" → ván kết thúc, sẵn sàng ván mới
@@ -207,7 +222,10 @@ public class GameFlowManager {
         int totalParticipants = 1 + timeoutPlayers.size();
         int winnerPoints = totalParticipants - 1;
 
-        scoreManager.updateScores(winner, new ArrayList<>(), timeoutPlayers);
+        scoreManager.updateScores(winner, new ArrayList<>(), timeoutPlayers, playerIds());
+        // Vẫn ghi dòng Matches (số người lúc bắt đầu + người thắng), nếu không
+        // MatchID đã giữ trước còn TotalPlayers = 0 và bị lịch sử bỏ qua
+        recordMatch(winner, lastPlayer.getPlayerId(), Collections.emptyList());
 
         broadcastManager.broadcast("WINNER " + winner + " - Chiến thắng do đối thủ timeout!"); // 📤 GỬI: "WINNER ..." →
                                                                                                // người thắng
@@ -234,31 +252,29 @@ public class GameFlowManager {
     /**
      * Cập nhật điểm và broadcast kết quả
      */
-    private void updateScoresAndBroadcast(Map<String, HandRank> ranks, Map<String, Integer> modScores,
-            String winner, HandRank winnerRank, int winnerModScore,
-            List<String> timeoutPlayers) {
-        int numPlayers = ranks.size();
+    private void updateScoresAndBroadcast(MatchRanking ranking, List<String> timeoutPlayers) {
+        String winner = ranking.winner();
+        int numPlayers = ranking.size();
         int totalParticipants = numPlayers + timeoutPlayers.size();
+        List<String> sortedPlayers = ranking.usernames();
 
         if (winner != null && totalParticipants > 1) {
-            List<String> losers = new ArrayList<>(ranks.keySet());
-            losers.remove(winner);
-            scoreManager.updateScores(winner, losers, timeoutPlayers);
+            scoreManager.updateScores(winner, sortedPlayers.subList(1, numPlayers), timeoutPlayers, playerIds());
         }
 
         // Gửi thông tin chi tiết về tay bài
-        String handRanksMsg = gameState.getGameLogic().buildHandRanksMessage(ranks, modScores);
+        String handRanksMsg = gameState.getGameLogic().buildHandRanksMessage(ranking);
         broadcastManager.broadcast(handRanksMsg); // 📤 GỬI: "HAND_RANKS|user1:4:Straight Flush:530|..." → loại tay bài
 
         if (winner != null) {
-            if (winnerRank.getCategory() == 1) {
-                broadcastManager.broadcast("WINNER " + winner + " tay=HighCard điểm=" + winnerModScore); // 📤 GỬI:
+            if (ranking.isHighCard(0)) {
+                broadcastManager.broadcast("WINNER " + winner + " tay=HighCard điểm=" + ranking.modScore(0)); // 📤 GỬI:
                                                                                                          // "WINNER
                                                                                                          // player1
                                                                                                          // tay=..." →
                                                                                                          // người thắng
             } else {
-                broadcastManager.broadcast("WINNER " + winner + " tay=" + winnerRank.getCategoryName()); // 📤 GỬI:
+                broadcastManager.broadcast("WINNER " + winner + " tay=" + ranking.rank(0).getCategoryName()); // 📤 GỬI:
                                                                                                          // "WINNER
                                                                                                          // player1
                                                                                                          // tay=..." →
@@ -267,7 +283,6 @@ public class GameFlowManager {
         }
 
         // Gửi bảng xếp hạng
-        List<String> sortedPlayers = gameState.getGameLogic().sortPlayersByRank(ranks, modScores);
         Map<String, Integer> scoreChanges = new HashMap<>();
         for (String user : sortedPlayers) {
             int change = user.equals(winner) ? (totalParticipants - 1) : -1;
@@ -279,27 +294,46 @@ public class GameFlowManager {
     }
 
     /**
-     * Lưu kết quả vào database
+     * Ván bị bỏ dở (người cuối cùng rời phòng khi đang chơi): vẫn ghi dòng
+     * Matches với số người lúc bắt đầu, không có người thắng
      */
-    private void saveMatchResults(Map<String, HandRank> ranks, Map<String, Integer> modScores, String winner) {
-        Integer matchId = gameState.getMatchId();
-        if (db == null || matchId == null)
+    public void abandonMatch() {
+        if (!gameState.isGameStarted())
             return;
+        gameState.endGame();
+        recordMatch(null, null, Collections.emptyList());
+        System.out.println("🏳️ Ván trong " + roomName + " bị bỏ dở (phòng trống).");
+    }
 
-        List<String> sortedPlayers = gameState.getGameLogic().sortPlayersByRank(ranks, modScores);
-        for (int i = 0; i < sortedPlayers.size(); i++) {
-            String user = sortedPlayers.get(i);
-            Hand h = gameState.getGameLogic().getPlayerHand(user);
-            HandRank r = ranks.get(user);
-            Integer pid = db.getPlayerId(user);
+    /**
+     * Lưu kết quả vào database (xếp vào WriteBehindQueue, thread phòng không
+     * chờ SQL Server)
+     */
+    private void saveMatchResults(MatchRanking ranking) {
+        List<WriteBehindQueue.ResultRow> results = new ArrayList<>(ranking.size());
+        for (int i = 0; i < ranking.size(); i++) {
+            results.add(new WriteBehindQueue.ResultRow(ranking.username(i), ranking.playerId(i), i + 1,
+                    ranking.displayScore(i), ranking.rank(i).getCategoryName(), ranking.hand(i)));
+        }
+        Integer winnerId = ranking.size() > 0 ? ranking.playerId(0) : null;
+        recordMatch(ranking.winner(), winnerId, results);
+    }
 
-            if (pid != null && h != null && r != null) {
-                int scoreVal = (r.getCategory() == 1) ? modScores.getOrDefault(user, 0) : r.toCompositeScore();
-                db.insertMatchResult(matchId, pid, i + 1, scoreVal, r.getCategoryName(), h.toShortString());
-            }
+    // username -> PlayerID của phiên đăng nhập, writer không phải tra lại
+    private Map<String, Integer> playerIds() {
+        Map<String, Integer> ids = new HashMap<>();
+        for (ClientHandler p : players) {
+            ids.put(p.username, p.getPlayerId());
         }
+        return ids;
+    }
 
-        Integer winPid = winner != null ? db.getPlayerId(winner) : null;
-        db.endMatch(matchId, winPid);
+    // Mọi cách kết thúc ván đều ghi dòng Matches (TotalPlayers = số người lúc
+    // bắt đầu); chỉ dòng TotalPlayers = 0 (MatchID giữ mà chưa dùng) bị lịch sử bỏ qua
+    private void recordMatch(String winner, Integer winnerId, List<WriteBehindQueue.ResultRow> results) {
+        if (db == null)
+            return;
+        db.saveMatch(gameState.getMatchId(), gameState.getMatchPlayers(), gameState.getMatchStartedAt(), winner, winnerId,
+                results);
     }
 }
@@ -19,6 +19,8 @@ import server.game.GameLogic;
 public class GameStateManager {
     private boolean gameStarted = false;
     private Integer matchId; // ID ván đấu trong DB
+    private int matchPlayers; // Số người lúc bắt đầu ván (ghi khi kết thúc ván)
+    private long matchStartedAt; // Giờ bắt đầu ván (epoch millis)
 
     // Delegates
     private GameLogic gameLogic;
@@ -54,6 +56,21 @@ public class GameStateManager {
         this.matchId = matchId;
     }
 
+    // Ghi lại thông tin bắt đầu ván (database chỉ được ghi lúc kết thúc)
+    public void startMatch(Integer matchId, int totalPlayers) {
+        this.matchId = matchId;
+        this.matchPlayers = totalPlayers;
+        this.matchStartedAt = System.currentTimeMillis();
+    }
+
+    public int getMatchPlayers() {
+        return matchPlayers;
+    }
+
+    public long getMatchStartedAt() {
+        return matchStartedAt;
+    }
+
     // ═══════════════════════════════════════════════════════════════
     // DELEGATE TO GameLogic
     // ═══════════════════════════════════════════════════════════════
@@ -1,6 +1,7 @@
 package server.managers;
 
 import server.core.ClientHandler;
+import server.core.Server;
 import java.util.*;
 
 /**
@@ -12,9 +13,12 @@ import java.util.*;
  * - Kick người chơi (bởi host)
  * - Xử lý timeout (tự động kick)
  * 
+ * Chạy trong hộp thư của RoomThread (tuần tự) → không cần synchronized.
+ * 
  * ═══════════════════════════════════════════════════════════════════════════
  */
 public class KickManager {
+    private String roomName;
     private List<ClientHandler> players;
 
     // Dependencies
@@ -25,6 +29,7 @@ public class KickManager {
     public KickManager(String roomName, List<ClientHandler> players,
             GameStateManager gameState, RoomPlayerManager playerManager,
             ScoreManager scoreManager, BroadcastManager broadcastManager) {
+        this.roomName = roomName;
         this.players = players;
         this.gameState = gameState;
         this.playerManager = playerManager;
@@ -36,7 +41,7 @@ public class KickManager {
      * 
      * @return callback để RoomThread thực hiện external calls (tránh deadlock)
      */
-    public synchronized KickResult kickPlayer(String targetUsername, ClientHandler requester) {
+    public KickResult kickPlayer(String targetUsername, ClientHandler requester) {
         // Không cho kick khi game đang chạy
         if (gameState.isGameStarted()) {
             return new KickResult(KickStatus.GAME_RUNNING, null);
@@ -73,7 +78,7 @@ public class KickManager {
      * 
      * @return callback để GameFlowManager xử lý tiếp
      */
-    public synchronized TimeoutResult handleTimeout() {
+    public TimeoutResult handleTimeout() {
         if (!gameState.isGameStarted() || players.isEmpty()) {
             return new TimeoutResult(false, null, -1);
         }
@@ -84,7 +89,7 @@ public class KickManager {
         System.out.println("⏰ Timeout! Loại: " + username);
 
         // Trừ điểm cho người timeout
-        scoreManager.applyTimeoutPenalty(username);
+        scoreManager.applyTimeoutPenalty(timedOut);
 
         // Lưu vào danh sách timeout
         gameState.getTurnManager().getTimeoutPlayers().add(username);
@@ -97,7 +102,8 @@ public class KickManager {
 
         // Loại khỏi phòng
         players.remove(currentTurn);
-        gameState.getGameLogic().getPlayerHand(username); // Clear hand
+        Server.topics.unsubscribe(TopicManager.room(roomName), timedOut);
+        // Bài đã rút vẫn giữ ở ghế cũ (vẫn được xếp hạng cuối ván như trước)
         timedOut.setStatus("free");
         timedOut.resetCurrentRoom();
 
@@ -0,0 +1,115 @@
+package server.managers;
+
+import server.core.ClientHandler;
+import server.core.Server;
+import server.core.ServerMetrics;
+import server.network.OutboundFrame;
+import java.util.*;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * PRESENCE MANAGER - DANH SÁCH NGƯỜI ONLINE CÓ PHIÊN BẢN
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Thay vì gửi lại toàn bộ PLAYER_LIST cho mọi client mỗi lần có người
+ * login/logout/đổi trạng thái/đổi điểm, server giữ bản "đã công bố" và chỉ
+ * gửi phần thay đổi kèm số thứ tự (seq):
+ *
+ * 📤 GỬI (client có capability PRESENCE1):
+ * • "PRESENCE_SNAPSHOT|seq|user1:status:pts|user2:status:pts|..."
+ * → Trả lời GET_PLAYER_LIST: toàn bộ danh sách tại seq
+ * • "PRESENCE_DELTA|seq|+user:status:pts|-user|..."
+ * → + = vào mới hoặc đổi trạng thái/điểm, - = rời server
+ *
+ * Client nhận delta có seq != seq cũ + 1 (mất message, bị bỏ khi tụt lại...)
+ * → gửi lại GET_PLAYER_LIST để lấy snapshot mới (resync).
+ *
+ * Client cũ (không có PRESENCE1) vẫn nhận PLAYER_LIST đầy đủ như trước.
+ *
+ * Snapshot và delta đều được xếp hàng trong cùng 1 lock. Snapshot đi làn
+ * REPLY (không bao giờ bị bỏ, gửi trước làn BULK của delta) → delta xếp sau
+ * snapshot luôn tới sau nó; delta cũ hơn tới sau thì client bỏ qua.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class PresenceManager {
+    public static final String CAPABILITY = "PRESENCE1";
+
+    // username → "status:pts" đã công bố (giữ thứ tự vào server)
+    private final Map<String, String> published = new LinkedHashMap<>();
+    private long seq = 0;
+
+    /**
+     * So sánh trạng thái hiện tại với bản đã công bố, gửi delta cho client
+     * PRESENCE1 và PLAYER_LIST đầy đủ cho client cũ (chỉ client đăng ký topic
+     * lobby.players). Không có gì thay đổi → không gửi gì.
+     *
+     * Trạng thái hiện tại được đọc bên trong lock → 2 lần publish đồng thời
+     * không thể công bố ngược thứ tự (bản cũ đè bản mới).
+     */
+    public synchronized void publish(List<ClientHandler> activeClients) {
+        Map<String, String> current = new LinkedHashMap<>();
+        synchronized (activeClients) {
+            for (ClientHandler client : activeClients) {
+                if (client.username != null) {
+                    int pts = Server.playerScores.getOrDefault(client.username, 0);
+                    current.put(client.username, client.getStatus() + ":" + pts);
+                }
+            }
+        }
+
+        StringBuilder delta = new StringBuilder();
+        for (Map.Entry<String, String> e : current.entrySet()) {
+            if (!e.getValue().equals(published.get(e.getKey()))) {
+                delta.append("+").append(e.getKey()).append(":").append(e.getValue()).append("|");
+            }
+        }
+        for (String user : published.keySet()) {
+            if (!current.containsKey(user)) {
+                delta.append("-").append(user).append("|");
+            }
+        }
+        if (delta.length() == 0) {
+            ServerMetrics.increment("presence.unchangedSkipped");
+            return;
+        }
+
+        seq++;
+        published.clear();
+        published.putAll(current);
+
+        OutboundFrame deltaFrame = new OutboundFrame("PRESENCE_DELTA|" + seq + "|" + delta);
+        OutboundFrame fullFrame = null;
+        for (ClientHandler client : Server.topics.subscribers(TopicManager.LOBBY_PLAYERS)) {
+            if (client.supportsPresenceDeltas()) {
+                client.sendFrame(deltaFrame); // 📤 GỬI: "PRESENCE_DELTA|seq|+user:status:pts|-user|..."
+            } else {
+                if (fullFrame == null) {
+                    fullFrame = new OutboundFrame(buildPlayerList(current));
+                }
+                client.sendFrame(fullFrame); // 📤 GỬI: "PLAYER_LIST|user1:status:pts|..." (client cũ)
+            }
+        }
+        ServerMetrics.increment("presence.deltas");
+    }
+
+    /**
+     * Gửi toàn bộ danh sách đã công bố kèm seq cho 1 client PRESENCE1
+     */
+    public synchronized void sendSnapshot(ClientHandler client) {
+        StringBuilder sb = new StringBuilder("PRESENCE_SNAPSHOT|").append(seq).append("|");
+        for (Map.Entry<String, String> e : published.entrySet()) {
+            sb.append(e.getKey()).append(":").append(e.getValue()).append("|");
+        }
+        client.sendMessage(sb.toString()); // 📤 GỬI: "PRESENCE_SNAPSHOT|seq|user1:status:pts|..."
+        ServerMetrics.increment("presence.snapshots");
+    }
+
+    private static String buildPlayerList(Map<String, String> current) {
+        StringBuilder sb = new StringBuilder("PLAYER_LIST|");
+        for (Map.Entry<String, String> e : current.entrySet()) {
+            sb.append(e.getKey()).append(":").append(e.getValue()).append("|");
+        }
+        return sb.toString();
+    }
+}
@@ -16,6 +16,9 @@ import java.util.*;
  * - Trạng thái ready của từng người
  * - Kiểm tra điều kiện bắt đầu game
  * 
+ * Thay đổi chỉ chạy trong hộp thư của RoomThread; isFull/getPlayerCount
+ * được đọc từ thread khác (players là synchronizedList).
+ * 
  * ═══════════════════════════════════════════════════════════════════════════
  */
 public class RoomPlayerManager {
@@ -44,12 +47,13 @@ public class RoomPlayerManager {
      * Thêm người chơi vào phòng
      * 📤 GỬI: "ROOM_FULL" (nếu phòng đầy)
      */
-    public synchronized boolean addPlayer(ClientHandler p) {
+    public boolean addPlayer(ClientHandler p) {
         if (players.size() >= MAX_PLAYERS) {
             p.sendMessage("ROOM_FULL"); // 📤 GỬI: "ROOM_FULL" → phòng đầy (max 6 người)
             return false;
         }
         players.add(p);
+        Server.topics.subscribe(TopicManager.room(roomName), p);
         p.setStatus("busy");
         playerReady.put(p.username, false);
         broadcastManager.broadcastRoomUpdate(hostIndex);
@@ -62,9 +66,10 @@ public class RoomPlayerManager {
      * 
      * @return true nếu phòng trống (cần xóa), false nếu còn người
      */
-    public synchronized boolean removePlayer(ClientHandler p, GameStateManager gameState) {
+    public boolean removePlayer(ClientHandler p, GameStateManager gameState) {
         int removedIndex = players.indexOf(p);
         players.remove(p);
+        Server.topics.unsubscribe(TopicManager.room(roomName), p);
         p.setStatus("free");
         playerReady.remove(p.username);
 
@@ -119,7 +124,7 @@ public class RoomPlayerManager {
     /**
      * Set trạng thái ready của người chơi
      */
-    public synchronized void setPlayerReady(String username, boolean ready) {
+    public void setPlayerReady(String username, boolean ready) {
         playerReady.put(username, ready);
         System.out.println("🔴 [" + roomName + "] " + username + " ready=" + ready);
         System.out.println("   Ready map: " + playerReady);
@@ -130,7 +135,7 @@ public class RoomPlayerManager {
     /**
      * Kiểm tra tất cả người chơi đã ready chưa
      */
-    public synchronized boolean allPlayersReady() {
+    public boolean allPlayersReady() {
         if (players.size() < 2)
             return false;
 
@@ -164,7 +169,7 @@ public class RoomPlayerManager {
     /**
      * Set tất cả người chơi về trạng thái busy
      */
-    public synchronized void setAllPlayersBusy() {
+    public void setAllPlayersBusy() {
         for (ClientHandler c : players) {
             c.setStatus("busy");
             playerReady.put(c.username, false);
@@ -174,7 +179,7 @@ public class RoomPlayerManager {
     /**
      * Set tất cả người chơi về trạng thái playing
      */
-    public synchronized void setAllPlayersPlaying() {
+    public void setAllPlayersPlaying() {
         for (ClientHandler c : players) {
             c.setStatus("playing");
         }
@@ -3,6 +3,7 @@ package server.managers;
 
 
 
+import server.core.ClientHandler;
 import server.core.Server;
 import server.database.Database;
 import java.util.*;
@@ -14,7 +15,7 @@ import java.util.*;
  * 
  * Class này xử lý:
  * - Tính điểm thắng/thua
- * - Cập nhật điểm vào Server.playerScores và Database
+ * - Cập nhật điểm vào Server.playerScores và Database (ghi ở nền)
  * - Tạo bảng xếp hạng (RANKING message)
  * - Xử lý điểm timeout
  * 
@@ -34,9 +35,12 @@ public class ScoreManager {
      * @param losers         List username của những người thua (không bao gồm
      *                       timeout)
      * @param timeoutPlayers List username của những người timeout
+     * @param playerIds      username -> PlayerID của phiên đăng nhập (null →
+     *                       writer tra theo username)
      * @return ScoreUpdate chứa thông tin điểm thay đổi
      */
-    public ScoreUpdate updateScores(String winner, List<String> losers, List<String> timeoutPlayers) {
+    public ScoreUpdate updateScores(String winner, List<String> losers, List<String> timeoutPlayers,
+            Map<String, Integer> playerIds) {
         Map<String, Integer> scoreChanges = new HashMap<>();
 
         // Tổng số người tham gia (kể cả timeout)
@@ -49,34 +53,21 @@ public class ScoreManager {
         // Điểm người thắng = tổng số người - 1
         int winnerPoints = totalParticipants - 1;
 
-        // Khởi tạo điểm cho tất cả người chơi nếu chưa có
-        Server.playerScores.putIfAbsent(winner, 0);
-        for (String loser : losers) {
-            Server.playerScores.putIfAbsent(loser, 0);
-        }
-
-        // Cập nhật điểm thắng
-        Server.playerScores.put(winner, Server.playerScores.get(winner) + winnerPoints);
+        // Cập nhật điểm thắng (merge: nguyên tử, 2 shard cùng cộng điểm 1 người không mất lần nào)
+        Server.playerScores.merge(winner, winnerPoints, Integer::sum);
         scoreChanges.put(winner, winnerPoints);
 
         // Người thua bị trừ 1 điểm
         for (String loser : losers) {
-            Server.playerScores.put(loser, Server.playerScores.get(loser) - 1);
+            Server.playerScores.merge(loser, -1, Integer::sum);
             scoreChanges.put(loser, -1);
         }
 
-        // Persist vào database
+        // Persist vào database (ghi ở nền, không chờ)
         if (db != null) {
-            Integer winId = db.getPlayerId(winner);
-            if (winId != null) {
-                db.updateTotalPoints(winId, winnerPoints);
-            }
-
+            db.addPoints(winner, playerIds.get(winner), winnerPoints);
             for (String loser : losers) {
-                Integer loserId = db.getPlayerId(loser);
-                if (loserId != null) {
-                    db.updateTotalPoints(loserId, -1);
-                }
+                db.addPoints(loser, playerIds.get(loser), -1);
             }
         }
 
@@ -86,17 +77,14 @@ public class ScoreManager {
     /**
      * Xử lý trừ điểm cho người timeout
      * 
-     * @param username Username của người timeout
+     * @param player Người timeout
      */
-    public void applyTimeoutPenalty(String username) {
-        Server.playerScores.putIfAbsent(username, 0);
-        Server.playerScores.put(username, Server.playerScores.get(username) - 1);
+    public void applyTimeoutPenalty(ClientHandler player) {
+        String username = player.username;
+        Server.playerScores.merge(username, -1, Integer::sum);
 
         if (db != null) {
-            Integer playerId = db.getPlayerId(username);
-            if (playerId != null) {
-                db.updateTotalPoints(playerId, -1);
-            }
+            db.addPoints(username, player.getPlayerId(), -1);
         }
     }
 
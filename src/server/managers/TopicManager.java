@@ -0,0 +1,110 @@
+package server.managers;
+
+import server.core.ClientHandler;
+import server.core.ServerMetrics;
+import server.network.OutboundFrame;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * TOPIC MANAGER - CHỈ GỬI BROADCAST CHO CLIENT ĐANG XEM
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Broadcast được gửi theo topic thay vì cho toàn bộ activeClients:
+ * - lobby.players: PLAYER_LIST / PRESENCE_DELTA (LobbyScreen, GameScreen)
+ * - lobby.rooms: ROOMS_LIST (chỉ LobbyScreen)
+ * - room.<tên phòng>: message trong phòng (ROOM_UPDATE, READY_STATUS...)
+ *
+ * Đăng ký:
+ * - Login → tự đăng ký lobby.players + lobby.rooms (client cũ nhận đủ như
+ * trước)
+ * - 📨 NHẬN: "SUBSCRIBE;lobby.rooms" / "UNSUBSCRIBE;lobby.rooms" → client
+ * tự bật/tắt topic lobby.* khi mở/đóng màn hình
+ * - room.<tên> do server quản lý: vào phòng → đăng ký, rời phòng/bị loại →
+ * hủy (client không tự đăng ký được)
+ * - Ngắt kết nối → hủy mọi topic
+ *
+ * Đăng ký lại không gửi bù trạng thái; client gửi GET_PLAYER_LIST /
+ * GET_ROOMS để lấy bản hiện tại.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class TopicManager {
+    public static final String LOBBY_PLAYERS = "lobby.players";
+    public static final String LOBBY_ROOMS = "lobby.rooms";
+    private static final String ROOM_PREFIX = "room.";
+
+    private final Map<String, Set<ClientHandler>> topics = new ConcurrentHashMap<>();
+
+    public static String room(String roomName) {
+        return ROOM_PREFIX + roomName;
+    }
+
+    /**
+     * true nếu client được tự đăng ký/hủy topic này bằng SUBSCRIBE/UNSUBSCRIBE
+     */
+    public static boolean isClientTopic(String topic) {
+        return LOBBY_PLAYERS.equals(topic) || LOBBY_ROOMS.equals(topic);
+    }
+
+    public void subscribe(String topic, ClientHandler client) {
+        // Thêm ngay trong compute: unsubscribe có thể xóa set rỗng khỏi map
+        // giữa lúc lấy set và lúc add (client bị thêm vào set đã bị bỏ)
+        topics.compute(topic, (k, subscribers) -> {
+            if (subscribers == null) {
+                subscribers = ConcurrentHashMap.newKeySet();
+            }
+            subscribers.add(client);
+            return subscribers;
+        });
+    }
+
+    public void unsubscribe(String topic, ClientHandler client) {
+        // Xóa topic khi không còn ai (phòng đã giải tán)
+        topics.computeIfPresent(topic, (k, subscribers) -> {
+            subscribers.remove(client);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    public void unsubscribeAll(ClientHandler client) {
+        for (String topic : new ArrayList<>(topics.keySet())) {
+            unsubscribe(topic, client);
+        }
+    }
+
+    public boolean isSubscribed(String topic, ClientHandler client) {
+        Set<ClientHandler> subscribers = topics.get(topic);
+        return subscribers != null && subscribers.contains(client);
+    }
+
+    /**
+     * Bản chụp danh sách client đang đăng ký topic
+     */
+    public List<ClientHandler> subscribers(String topic) {
+        Set<ClientHandler> subscribers = topics.get(topic);
+        return subscribers == null ? Collections.emptyList() : new ArrayList<>(subscribers);
+    }
+
+    public int subscriberCount(String topic) {
+        Set<ClientHandler> subscribers = topics.get(topic);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+
+    /**
+     * Gửi 1 frame dùng chung cho mọi client đang đăng ký topic
+     */
+    public void publish(String topic, OutboundFrame frame) {
+        Set<ClientHandler> subscribers = topics.get(topic);
+        if (subscribers == null) {
+            return;
+        }
+        int sent = 0;
+        for (ClientHandler client : subscribers) {
+            client.sendFrame(frame);
+            sent++;
+        }
+        ServerMetrics.add("topic.deliveries", sent);
+    }
+}
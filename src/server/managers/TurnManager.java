@@ -1,6 +1,7 @@
 package server.managers;
 
 import server.core.RoomThread;
+import server.core.TimerService;
 import server.game.GameLogic;
 import server.core.ClientHandler;
 import java.util.*;
@@ -12,15 +13,19 @@ import java.util.*;
  * 
  * Class này xử lý:
  * - Quản lý lượt hiện tại (ngược chiều kim đồng hồ)
- * - Timer 10 giây cho mỗi lượt
+ * - Timer 10 giây cho mỗi lượt (hẹn trên vòng lặp shard của phòng, không
+ * tạo thread)
  * - Xử lý timeout (kick người chơi, trừ điểm)
  * - Chuyển lượt
  * 
  * ═══════════════════════════════════════════════════════════════════════════
  */
 public class TurnManager {
+    private static final long TURN_TIMEOUT_MS = 10000;
+
     private int currentTurn = 0; // Index của người chơi hiện tại
-    private Timer turnTimer;
+    private volatile TimerService.Timeout turnTimer;
+    private volatile long timerId; // Tăng mỗi lần đặt timer → nhận ra timer cũ
     private List<String> timeoutPlayers = new ArrayList<>(); // Danh sách người bị timeout trong ván này
     private GameLogic gameLogic;
     private RoomThread roomThread; // Reference để callback
@@ -97,7 +102,7 @@ public class TurnManager {
             if (tried > players.size()) {
                 return false; // Kết thúc game
             }
-        } while (gameLogic.hasDrawnMax(players.get(currentTurn).username));
+        } while (gameLogic.hasDrawnMax(players.get(currentTurn)));
 
         return true;
     }
@@ -109,32 +114,36 @@ public class TurnManager {
      */
     public void startTurnTimer() {
         // Hủy timer cũ nếu có
-        if (turnTimer != null) {
-            turnTimer.cancel();
-            turnTimer = null;
-        }
+        cancelTimer();
 
-        turnTimer = new Timer();
-        turnTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                if (roomThread != null) {
-                    roomThread.handleTimeout();
-                }
-            }
-        }, 10000); // 10 giây
+        if (roomThread == null) {
+            return;
+        }
+        long id = ++timerId;
+        // Tới hạn trên vòng lặp shard của phòng → không đổi thread
+        turnTimer = TimerService.schedule(roomThread.scheduler(), TURN_TIMEOUT_MS, () -> roomThread.handleTimeout(id));
     }
 
     /**
      * Hủy timer (dùng khi game kết thúc)
      */
     public void cancelTimer() {
-        if (turnTimer != null) {
-            turnTimer.cancel();
+        TimerService.Timeout timer = turnTimer;
+        if (timer != null) {
+            timer.cancel();
             turnTimer = null;
         }
     }
 
+    /**
+     * true nếu timer id vẫn là timer của lượt hiện tại (chưa bị hủy/đặt lại).
+     * Timer đã tới hạn có thể vẫn chạy callback dù vừa bị hủy (đang chờ lock
+     * phòng) → phải kiểm tra lại trước khi loại người chơi.
+     */
+    public boolean isActiveTimer(long id) {
+        return turnTimer != null && timerId == id;
+    }
+
     /**
      * Xử lý timeout - cập nhật state
      * 📤 GỬI: ELIMINATED;Timeout...
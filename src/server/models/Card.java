@@ -1,18 +1,55 @@
 package server.models;
 
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * CARD - LÁ BÀI MÃ HÓA THÀNH 1 SỐ 0..51
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * code = chất × 13 + hạng
+ * - chất: 0 ♠, 1 ♥, 2 ♦, 3 ♣
+ * - hạng: 0 → "2", ..., 8 → "10", 9 → J, 10 → Q, 11 → K, 12 → A
+ *
+ * Cả server chỉ có đúng 52 object Card (flyweight, tạo 1 lần lúc nạp class):
+ * Card.of(code) trả về object dùng chung, Deck chỉ giữ byte[52] các code.
+ * Chuỗi hiển thị ("K♠") cũng tạo sẵn → toString() không cấp phát.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class Card {
+    public static final int COUNT = 52;
+    private static final String[] SUITS = { "♠", "♥", "♦", "♣" };
+    private static final String[] RANKS = { "2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K", "A" };
+    private static final Card[] ALL = new Card[COUNT];
 
+    static {
+        for (int code = 0; code < COUNT; code++) {
+            ALL[code] = new Card(code);
+        }
+    }
 
-// Lá bài với chất và hạng hiển thị (ví dụ: A♠)
-public class Card {
+    private final byte code;
     private final String suit; // ♠ ♥ ♦ ♣
     private final String rank; // 2–10, J, Q, K, A
+    private final String text; // rank + suit
+
+    private Card(int code) {
+        this.code = (byte) code;
+        this.suit = SUITS[code / 13];
+        this.rank = RANKS[code % 13];
+        this.text = rank + suit;
+    }
+
+    /**
+     * Lá bài dùng chung ứng với code 0..51
+     */
+    public static Card of(int code) {
+        return ALL[code];
+    }
 
-    public Card(String suit, String rank) {
-        this.suit = suit;
-        this.rank = rank;
+    public int getCode() {
+        return code;
     }
 
-    // them setter cho từng thuộc tính
     public String getSuit() {
         return suit;
     }
@@ -21,8 +58,18 @@ public class Card {
         return rank;
     }
 
+    // Giá trị hạng 2..14 (A = 14)
+    public int getRankValue() {
+        return code % 13 + 2;
+    }
+
+    // Chỉ số chất 0..3
+    public int getSuitIndex() {
+        return code / 13;
+    }
+
     @Override
     public String toString() {
-        return rank + suit;
+        return text;
     }
 }
@@ -1,30 +1,66 @@
 package server.models;
 
-
-
-
-import java.util.*;
-
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * DECK - BỘ 52 LÁ DẠNG byte[52] + CON TRỎ
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * - cards: code 0..51 của các lá (xem Card), tạo 1 lần khi tạo Deck
+ * - next: vị trí lá sẽ rút tiếp theo
+ *
+ * shuffle(seed) xáo tại chỗ (Fisher–Yates) và đưa con trỏ về đầu → 1 Deck
+ * dùng lại cho mọi ván của phòng. drawCard() chỉ tăng con trỏ: O(1), không
+ * cấp phát (trả về Card dùng chung).
+ *
+ * Thứ tự bài chỉ phụ thuộc seed (SplitMix64 tính tại chỗ, không tạo object
+ * Random): cùng seed → cùng ván, dùng để dựng lại ván khi replay/debug.
+ *
+ * Không synchronized: Deck thuộc 1 phòng, chỉ được dùng trên thread của
+ * phòng đó (RoomThread).
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
 public class Deck {
-    private final List<Card> cards = new ArrayList<>();
+    private final byte[] cards = new byte[Card.COUNT];
+    private int next;
 
     public Deck() {
-        String[] suits = { "♠", "♥", "♦", "♣" };
-        String[] ranks = { "2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K", "A" };
-        for (String s : suits) {
-            for (String r : ranks) {
-                cards.add(new Card(s, r));
-            }
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = (byte) i;
         }
     }
 
-    public void shuffle() {
-        Collections.shuffle(cards);
+    /**
+     * Xáo cả 52 lá theo seed và rút lại từ đầu
+     */
+    public void shuffle(long seed) {
+        // Luôn xáo từ thứ tự gốc → kết quả không phụ thuộc ván trước
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = (byte) i;
+        }
+        long state = seed;
+        for (int i = cards.length - 1; i > 0; i--) {
+            state += 0x9E3779B97F4A7C15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z ^= z >>> 31;
+            // 32 bit cao × (i + 1) >> 32 → 0..i (lệch tối đa (i+1)/2^32)
+            int j = (int) (((z >>> 32) * (i + 1)) >>> 32);
+            byte tmp = cards[i];
+            cards[i] = cards[j];
+            cards[j] = tmp;
+        }
+        next = 0;
     }
 
-    public synchronized Card drawCard() {
-        if (cards.isEmpty())
+    public Card drawCard() {
+        if (next >= cards.length)
             return null;
-        return cards.remove(0);
+        return Card.of(cards[next++]);
+    }
+
+    public int remaining() {
+        return cards.length - next;
     }
 }
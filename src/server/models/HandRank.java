@@ -13,18 +13,23 @@ import java.util.*;
  * 3 = Straight
  * 2 = Flush
  * 1 = High Card (Points)
+ *
+ * Các HandRank được HandEvaluator tạo sẵn và dùng chung (immutable);
+ * strength là dạng int của cùng thông tin (xem HandEvaluator).
  */
 public class HandRank implements Comparable<HandRank> {
     private final int category; // 1..5
     private final String categoryName; // human readable
     private final int primaryValue; // main tie-break (e.g. rank of trips, top of straight)
     private final List<Integer> tieBreakers; // remaining ranks for comparison desc
+    private final int strength; // HandEvaluator strength (kèm điểm mod 10 của HighCard)
 
-    public HandRank(int category, String categoryName, int primaryValue, List<Integer> tieBreakers) {
+    public HandRank(int category, String categoryName, int primaryValue, List<Integer> tieBreakers, int strength) {
         this.category = category;
         this.categoryName = categoryName;
         this.primaryValue = primaryValue;
         this.tieBreakers = tieBreakers == null ? Collections.emptyList() : tieBreakers;
+        this.strength = strength;
     }
 
     public int getCategory() {
@@ -43,6 +48,10 @@ public class HandRank implements Comparable<HandRank> {
         return tieBreakers;
     }
 
+    public int getStrength() {
+        return strength;
+    }
+
     // Composite score useful for DB numeric storage
     public int toCompositeScore() {
         int base = category * 1_000_000 + primaryValue * 10_000;
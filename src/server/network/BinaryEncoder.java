@@ -0,0 +1,323 @@
+package server.network;
+
+import server.core.ServerMetrics;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * BINARY ENCODER - CHUYỂN MESSAGE TEXT SANG FRAME BIN1 (1 KẾT NỐI)
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Message có opcode riêng được parse chặt theo đúng format text hiện tại;
+ * lệch format bất kỳ (tên chứa ':', lá bài lạ...) → gửi nguyên chuỗi bằng
+ * opcode TEXT, nên client luôn dựng lại được đúng chuỗi gốc.
+ *
+ * 2 bước:
+ * - encodeShared(): parse + encode 1 lần cho mọi người nhận (Encoded, bất
+ * biến, cache trong OutboundFrame)
+ * - encode(): theo từng kết nối, thêm USER_DEF cho ID kết nối đó chưa biết
+ *
+ * Mỗi kết nối nhớ session ID nào đã gửi USER_DEF, riêng cho từng làn
+ * (MessageClass.Lane) vì các làn có thể bị gửi lệch thứ tự nhau. Frame cần
+ * USER_DEF mới được ghép chung USER_DEF + frame chính thành 1 khối byte.
+ *
+ * encode() không thread-safe: OutboundQueue gọi encode() + xếp hàng trong
+ * synchronized để USER_DEF luôn đi trước frame dùng nó.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class BinaryEncoder {
+    /**
+     * Frame BIN1 dùng chung + danh sách session ID mà frame tham chiếu
+     */
+    static final class Encoded {
+        final byte[] frame;
+        final int[] ids;
+        final String[] names;
+
+        Encoded(byte[] frame, int[] ids, String[] names) {
+            this.frame = frame;
+            this.ids = ids;
+            this.names = names;
+        }
+    }
+
+    private static final int[] NO_IDS = new int[0];
+    private static final String[] NO_NAMES = new String[0];
+
+    private final BitSet[] known = { new BitSet(), new BitSet(), new BitSet() };
+    private boolean lastHadDefinitions;
+
+    /**
+     * Parse + encode message thành frame BIN1 dùng chung (chưa có USER_DEF)
+     */
+    static Encoded encodeShared(String msg) {
+        BodyWriter writer = new BodyWriter();
+        byte opcode = writer.encodeBody(msg);
+        if (opcode < 0) {
+            ServerMetrics.increment("protocol.binary.textFrames");
+            return new Encoded(BinaryProtocol.encodeText(msg), NO_IDS, NO_NAMES);
+        }
+        byte[] frame = BinaryProtocol.frame(opcode, writer.payload.toByteArray(), writer.payload.size());
+        return new Encoded(frame, Arrays.copyOf(writer.refIds, writer.refCount),
+                Arrays.copyOf(writer.refNames, writer.refCount));
+    }
+
+    /**
+     * Frame dùng chung + USER_DEF cho các ID kết nối này chưa biết; không có
+     * ID mới → trả lại đúng mảng dùng chung (không copy)
+     */
+    byte[] encode(Encoded encoded, MessageClass.Lane lane) {
+        lastHadDefinitions = false;
+        ByteArrayOutputStream withDefs = null;
+        BitSet laneKnown = known[lane.ordinal()];
+        for (int i = 0; i < encoded.ids.length; i++) {
+            if (!laneKnown.get(encoded.ids[i])) {
+                laneKnown.set(encoded.ids[i]);
+                if (withDefs == null) {
+                    withDefs = new ByteArrayOutputStream(encoded.frame.length + 32);
+                }
+                ByteArrayOutputStream def = new ByteArrayOutputStream(24);
+                BinaryProtocol.writeVarint(def, encoded.ids[i]);
+                byte[] name = encoded.names[i].getBytes(StandardCharsets.UTF_8);
+                def.write(name, 0, name.length);
+                byte[] defFrame = BinaryProtocol.frame(BinaryProtocol.OP_USER_DEF, def.toByteArray(), def.size());
+                withDefs.write(defFrame, 0, defFrame.length);
+            }
+        }
+        if (withDefs == null) {
+            return encoded.frame;
+        }
+        lastHadDefinitions = true;
+        withDefs.write(encoded.frame, 0, encoded.frame.length);
+        return withDefs.toByteArray();
+    }
+
+    /**
+     * true nếu frame vừa encode có kèm USER_DEF (không được để bản sau ghi đè)
+     */
+    public boolean lastHadDefinitions() {
+        return lastHadDefinitions;
+    }
+
+    /**
+     * Frame kèm USER_DEF bị bỏ → quên các ID đã đánh dấu của làn đó để lần
+     * sau gửi lại USER_DEF
+     */
+    public void forgetLane(MessageClass.Lane lane) {
+        known[lane.ordinal()].clear();
+    }
+
+    /**
+     * Trạng thái parse của 1 message (payload + session ID tham chiếu)
+     */
+    private static final class BodyWriter {
+        private final ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+        private int[] refIds = new int[8];
+        private String[] refNames = new String[8];
+        private int refCount;
+
+        // ═══════════════════════════════════════════════════════════════
+        // PARSE TEXT → PAYLOAD (trả -1 nếu không khớp format)
+        // ═══════════════════════════════════════════════════════════════
+
+        private byte encodeBody(String msg) {
+            switch (msg) {
+                case "YOUR_TURN":
+                    return BinaryProtocol.OP_YOUR_TURN;
+                case "WAIT":
+                    return BinaryProtocol.OP_WAIT;
+                case "NOT_YOUR_TURN":
+                    return BinaryProtocol.OP_NOT_YOUR_TURN;
+                default:
+                    break;
+            }
+            if (msg.startsWith("DRAW;")) {
+                int card = BinaryProtocol.cardByte(msg.substring("DRAW;".length()));
+                if (card < 0) {
+                    return -1;
+                }
+                payload.write(card);
+                return BinaryProtocol.OP_DRAW;
+            }
+            if (msg.startsWith("PLAYER_LIST|")) {
+                return encodePlayerList(msg.substring("PLAYER_LIST|".length())) ? BinaryProtocol.OP_PLAYER_LIST : -1;
+            }
+            if (msg.startsWith("READY_STATUS|")) {
+                return encodeReadyStatus(msg.substring("READY_STATUS|".length())) ? BinaryProtocol.OP_READY_STATUS : -1;
+            }
+            if (msg.startsWith("ROOM_UPDATE|")) {
+                return encodeRoomUpdate(msg) ? BinaryProtocol.OP_ROOM_UPDATE : -1;
+            }
+            if (msg.startsWith("SHOW_HANDS_ALL|")) {
+                return encodeShowHands(msg.substring("SHOW_HANDS_ALL|".length())) ? BinaryProtocol.OP_SHOW_HANDS_ALL : -1;
+            }
+            if (msg.startsWith("HAND_RANKS|")) {
+                return encodeHandRanks(msg.substring("HAND_RANKS|".length())) ? BinaryProtocol.OP_HAND_RANKS : -1;
+            }
+            return -1;
+        }
+
+        // "user:status:pts|user:status:pts|"
+        private boolean encodePlayerList(String body) {
+            String[] entries = entries(body);
+            if (entries == null) {
+                return false;
+            }
+            for (String entry : entries) {
+                String[] f = entry.split(":", -1);
+                if (f.length != 3) {
+                    return false;
+                }
+                int status = BinaryProtocol.statusByte(f[1]);
+                Integer pts = exactInt(f[2]);
+                if (status < 0 || pts == null || !user(f[0])) {
+                    return false;
+                }
+                payload.write(status);
+                BinaryProtocol.writeZigzag(payload, pts);
+            }
+            return true;
+        }
+
+        // "user:true|user:false|"
+        private boolean encodeReadyStatus(String body) {
+            String[] entries = entries(body);
+            if (entries == null) {
+                return false;
+            }
+            for (String entry : entries) {
+                String[] f = entry.split(":", -1);
+                if (f.length != 2 || !(f[1].equals("true") || f[1].equals("false")) || !user(f[0])) {
+                    return false;
+                }
+                payload.write(f[1].equals("true") ? 1 : 0);
+            }
+            return true;
+        }
+
+        // "ROOM_UPDATE|room|hostIndex|user1,user2,..."
+        private boolean encodeRoomUpdate(String msg) {
+            String[] f = msg.split("\\|", -1);
+            if (f.length != 4) {
+                return false;
+            }
+            Integer host = exactInt(f[2]);
+            if (host == null) {
+                return false;
+            }
+            BinaryProtocol.writeString(payload, f[1]);
+            BinaryProtocol.writeZigzag(payload, host);
+            if (!f[3].isEmpty()) {
+                for (String name : f[3].split(",", -1)) {
+                    if (!user(name)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        // "user=K♠,Q♠,J♠|user2=|"
+        private boolean encodeShowHands(String body) {
+            String[] entries = entries(body);
+            if (entries == null) {
+                return false;
+            }
+            for (String entry : entries) {
+                int eq = entry.indexOf('=');
+                if (eq < 0 || !user(entry.substring(0, eq))) {
+                    return false;
+                }
+                String cards = entry.substring(eq + 1);
+                String[] list = cards.isEmpty() ? new String[0] : cards.split(",", -1);
+                if (list.length > 255) {
+                    return false;
+                }
+                payload.write(list.length);
+                for (String card : list) {
+                    int b = BinaryProtocol.cardByte(card);
+                    if (b < 0) {
+                        return false;
+                    }
+                    payload.write(b);
+                }
+            }
+            return true;
+        }
+
+        // "user:category:categoryName:score|"
+        private boolean encodeHandRanks(String body) {
+            String[] entries = entries(body);
+            if (entries == null) {
+                return false;
+            }
+            for (String entry : entries) {
+                String[] f = entry.split(":", -1);
+                if (f.length != 4) {
+                    return false;
+                }
+                Integer category = exactInt(f[1]);
+                Integer score = exactInt(f[3]);
+                if (category == null || category < 0 || category > 255 || score == null || !user(f[0])) {
+                    return false;
+                }
+                payload.write(category);
+                BinaryProtocol.writeString(payload, f[2]);
+                BinaryProtocol.writeZigzag(payload, score);
+            }
+            return true;
+        }
+
+        // ═══════════════════════════════════════════════════════════════
+        // HELPER
+        // ═══════════════════════════════════════════════════════════════
+
+        /**
+         * Tách "a|b|c|" thành {a, b, c}; null nếu không kết thúc bằng '|'
+         */
+        private static String[] entries(String body) {
+            if (body.isEmpty()) {
+                return new String[0];
+            }
+            if (!body.endsWith("|")) {
+                return null;
+            }
+            return body.substring(0, body.length() - 1).split("\\|", -1);
+        }
+
+        /**
+         * Số nguyên mà khi in lại cho đúng chuỗi gốc ("+5", "05" → null)
+         */
+        private static Integer exactInt(String s) {
+            try {
+                int value = Integer.parseInt(s);
+                return String.valueOf(value).equals(s) ? value : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Ghi session ID của username vào payload và ghi nhớ để gửi USER_DEF
+         */
+        private boolean user(String name) {
+            if (name.isEmpty()) {
+                return false;
+            }
+            int id = SessionIds.idOf(name);
+            BinaryProtocol.writeVarint(payload, id);
+            if (refCount == refIds.length) {
+                refIds = Arrays.copyOf(refIds, refCount * 2);
+                refNames = Arrays.copyOf(refNames, refCount * 2);
+            }
+            refIds[refCount] = id;
+            refNames[refCount] = name;
+            refCount++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package server.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * BINARY PROTOCOL (BIN1) - FRAME NHỊ PHÂN CÓ OPCODE
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * THƯƠNG LƯỢNG:
+ * Client gửi "LOGIN;username;password;BIN1" (frame writeUTF như cũ).
+ * Server hỗ trợ → trả "LOGIN_OK;BIN1" rồi cả 2 chiều chuyển sang BIN1.
+ * Server cũ / client cũ → "LOGIN_OK" và tiếp tục dùng writeUTF.
+ *
+ * FRAME:
+ * [varint N][1 byte opcode][N-1 byte payload]
+ * → không còn giới hạn 65535 byte của writeUTF (tối đa MAX_FRAME_SIZE)
+ *
+ * OPCODE (server → client):
+ * • 0x00 TEXT             chuỗi UTF-8 bất kỳ (fallback cho mọi message)
+ * • 0x01 USER_DEF         varint id + UTF-8 username (định nghĩa session ID)
+ * • 0x10 YOUR_TURN, 0x11 WAIT, 0x12 NOT_YOUR_TURN (không payload)
+ * • 0x13 DRAW             1 byte lá bài
+ * • 0x20 PLAYER_LIST      {id, 1 byte status, zigzag điểm}*
+ * • 0x21 READY_STATUS     {id, 1 byte ready}*
+ * • 0x22 ROOM_UPDATE      chuỗi tên phòng, zigzag hostIndex, {id}*
+ * • 0x23 SHOW_HANDS_ALL   {id, 1 byte số lá, byte lá bài*}*
+ * • 0x24 HAND_RANKS       {id, 1 byte category, chuỗi tên, zigzag điểm}*
+ *
+ * Client → server chỉ dùng TEXT (lệnh ngắn).
+ *
+ * LÁ BÀI: 1 byte = suit * 13 + rank (suit ♠♥♦♣, rank 2..A) - giống thứ tự
+ * tạo bộ bài trong Deck
+ *
+ * USERNAME: thay bằng session ID (SessionIds), mỗi ID được gửi USER_DEF
+ * 1 lần trên mỗi kết nối trước frame đầu tiên dùng nó.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class BinaryProtocol {
+    public static final String VERSION = "BIN1";
+    public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    // Lệnh client gửi lên rất ngắn, giới hạn nhỏ để chặn frame rác
+    public static final int MAX_INBOUND_FRAME_SIZE = 64 * 1024;
+
+    public static final byte OP_TEXT = 0x00;
+    public static final byte OP_USER_DEF = 0x01;
+    public static final byte OP_YOUR_TURN = 0x10;
+    public static final byte OP_WAIT = 0x11;
+    public static final byte OP_NOT_YOUR_TURN = 0x12;
+    public static final byte OP_DRAW = 0x13;
+    public static final byte OP_PLAYER_LIST = 0x20;
+    public static final byte OP_READY_STATUS = 0x21;
+    public static final byte OP_ROOM_UPDATE = 0x22;
+    public static final byte OP_SHOW_HANDS_ALL = 0x23;
+    public static final byte OP_HAND_RANKS = 0x24;
+
+    static final String[] SUITS = { "♠", "♥", "♦", "♣" };
+    static final String[] RANKS = { "2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K", "A" };
+    static final String[] STATUSES = { "free", "busy", "playing" };
+
+    private BinaryProtocol() {
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // LÁ BÀI / STATUS
+    // ═══════════════════════════════════════════════════════════════
+
+    /**
+     * "K♠" → byte lá bài, -1 nếu không hợp lệ
+     */
+    public static int cardByte(String card) {
+        for (int s = 0; s < SUITS.length; s++) {
+            if (card.endsWith(SUITS[s])) {
+                String rank = card.substring(0, card.length() - SUITS[s].length());
+                for (int r = 0; r < RANKS.length; r++) {
+                    if (RANKS[r].equals(rank)) {
+                        return s * RANKS.length + r;
+                    }
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    static int statusByte(String status) {
+        for (int i = 0; i < STATUSES.length; i++) {
+            if (STATUSES[i].equals(status)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // VARINT
+    // ═══════════════════════════════════════════════════════════════
+
+    static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static void writeZigzag(ByteArrayOutputStream out, int value) {
+        writeVarint(out, (value << 1) ^ (value >> 31));
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint quá dài");
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // FRAME
+    // ═══════════════════════════════════════════════════════════════
+
+    /**
+     * Đóng gói opcode + payload thành 1 frame hoàn chỉnh
+     */
+    static byte[] frame(byte opcode, byte[] payload, int payloadLength) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payloadLength + 6);
+        writeVarint(out, payloadLength + 1);
+        out.write(opcode);
+        out.write(payload, 0, payloadLength);
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeText(String msg) {
+        byte[] bytes = msg.getBytes(StandardCharsets.UTF_8);
+        return frame(OP_TEXT, bytes, bytes.length);
+    }
+
+    /**
+     * Đọc header frame trong buffer (chế độ NIO) bắt đầu tại position
+     *
+     * @return {độ dài header, độ dài frame (opcode + payload)} hoặc null nếu
+     *         chưa đủ byte header
+     */
+    static int[] peekHeader(ByteBuffer buf) throws IOException {
+        int pos = buf.position();
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            if (pos + i >= buf.limit()) {
+                return null;
+            }
+            int b = buf.get(pos + i) & 0xFF;
+            value |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                return new int[] { i + 1, value };
+            }
+        }
+        throw new IOException("Header frame không hợp lệ");
+    }
+
+    /**
+     * Đọc 1 message client gửi lên (chế độ blocking)
+     */
+    public static String readMessage(DataInputStream in) throws IOException {
+        int length = readVarint(in);
+        checkInboundLength(length);
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return decodeInbound(body, 0, length);
+    }
+
+    static void checkInboundLength(int length) throws IOException {
+        if (length < 1 || length > MAX_INBOUND_FRAME_SIZE) {
+            throw new IOException("Độ dài frame không hợp lệ: " + length);
+        }
+    }
+
+    /**
+     * Decode thân frame (opcode + payload) client gửi lên - chỉ chấp nhận TEXT
+     */
+    static String decodeInbound(byte[] buf, int offset, int length) throws IOException {
+        if (buf[offset] != OP_TEXT) {
+            throw new IOException("Opcode không hỗ trợ từ client: " + buf[offset]);
+        }
+        return new String(buf, offset + 1, length - 1, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package server.network;
+
+import server.core.ThreadMode;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * BLOCKING TRANSPORT - SOCKET + WRITER THREAD RIÊNG
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * send() chỉ xếp frame vào OutboundQueue rồi đánh thức writer thread.
+ * Writer thread (platform/virtual theo ThreadMode) ghi frame ra socket (làn
+ * CRITICAL trước), gom các frame CRITICAL liên tiếp vào 1 lần flush.
+ *
+ * → Thread đang giữ lock phòng (RoomThread, GameFlowManager...) không bao giờ
+ * bị chặn vì 1 client mạng chậm.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class BlockingTransport implements Transport {
+    private final Socket socket;
+    private final OutputStream out;
+    private final OutboundQueue queue = new OutboundQueue();
+    private final Thread writer;
+    private volatile boolean closeRequested = false;
+    private volatile BinaryEncoder binary; // null = gửi writeUTF
+    private volatile boolean binaryInbound = false;
+
+    public BlockingTransport(Socket socket, String name) throws IOException {
+        this.socket = socket;
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+        this.writer = ThreadMode.start("writer-" + name, this::writeLoop);
+    }
+
+    @Override
+    public void send(OutboundFrame frame) throws IOException {
+        if (closeRequested || socket.isClosed()) {
+            throw new IOException("Kết nối đã đóng");
+        }
+        if (queue.offerFrame(frame, binary) == SlowConsumerPolicy.Action.EVICT) {
+            abort();
+            throw new SlowConsumerException("Client tụt lại (" + queue.depth() + " frame chờ gửi)");
+        }
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Ngắt ngay, bỏ các frame đang chờ → reader thread gặp lỗi và cleanup
+     */
+    private void abort() {
+        closeRequested = true;
+        queue.clear();
+        try {
+            socket.close();
+        } catch (IOException e) {
+        }
+        LockSupport.unpark(writer);
+    }
+
+    @Override
+    public void close() {
+        closeRequested = true;
+        LockSupport.unpark(writer);
+    }
+
+    @Override
+    public void upgradeToBinary(String ack) throws IOException {
+        binaryInbound = true;
+        send(ack);
+        binary = new BinaryEncoder();
+    }
+
+    @Override
+    public boolean isBinary() {
+        return binaryInbound;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closeRequested && !socket.isClosed();
+    }
+
+    @Override
+    public int queuedFrames() {
+        return queue.depth();
+    }
+
+    @Override
+    public long queuedBytes() {
+        return queue.pendingBytes();
+    }
+
+    @Override
+    public boolean isWritable() {
+        return queue.isWritable();
+    }
+
+    @Override
+    public boolean isSlow() {
+        return queue.isSlow();
+    }
+
+    /**
+     * Vòng lặp của writer thread: gửi hết hàng đợi, flush, rồi ngủ chờ frame mới
+     */
+    private void writeLoop() {
+        try {
+            while (true) {
+                byte[] frame = queue.poll();
+                if (frame != null) {
+                    out.write(frame);
+                    // Flush ngay khi hết làn CRITICAL để YOUR_TURN không nằm
+                    // trong buffer chờ frame BULK lớn phía sau
+                    if (queue.criticalDepth() == 0) {
+                        out.flush();
+                    }
+                    continue;
+                }
+                if (closeRequested) {
+                    break;
+                }
+                LockSupport.park(this);
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Socket lỗi → reader thread sẽ phát hiện và cleanup
+        } finally {
+            queue.clear();
+            try {
+                socket.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package server.network;
+
+/**
+ * Callback cho 1 kết nối NIO.
+ * Các callback của cùng 1 kết nối luôn được gọi tuần tự (không chồng nhau),
+ * nhưng có thể chạy trên các worker thread khác nhau.
+ */
+public interface ConnectionListener {
+    /**
+     * Nhận 1 message hoàn chỉnh từ client
+     */
+    void onMessage(String msg);
+
+    /**
+     * Kết nối đã đóng (client ngắt hoặc lỗi I/O)
+     */
+    void onClose();
+}
@@ -0,0 +1,117 @@
+package server.network;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * EVENT LOOP - 1 THREAD + 1 SELECTOR PHỤC VỤ NHIỀU KẾT NỐI
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Vòng lặp:
+ * 1. selector.select() → chờ kết nối nào có dữ liệu đọc / có thể ghi
+ * 2. Chạy các task được gửi từ thread khác (đăng ký kênh, bật OP_WRITE...)
+ * 3. Với mỗi key sẵn sàng → NioConnection.handleRead()/handleWrite()
+ *
+ * Mọi thao tác trên SelectionKey/SocketChannel chỉ chạy trên thread này,
+ * thread khác muốn tác động phải gọi execute().
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class EventLoop implements Runnable {
+    private final Selector selector;
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public EventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Gửi task để chạy trên thread của event loop
+     */
+    public void execute(Runnable task) {
+        pendingTasks.add(task);
+        if (!inEventLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Đăng ký kênh mới vào selector của loop này (chỉ đọc, OP_WRITE bật khi cần)
+     */
+    void register(SocketChannel channel, NioConnection connection) {
+        execute(() -> {
+            try {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.attach(key);
+            } catch (ClosedChannelException e) {
+                connection.closeNow();
+            }
+        });
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+                runPendingTasks();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (key.isValid() && key.isReadable()) {
+                        connection.handleRead();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.handleWrite();
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("⚠️ [" + thread.getName() + "] lỗi selector: " + e.getMessage());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+        }
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
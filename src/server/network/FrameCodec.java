@@ -0,0 +1,41 @@
+package server.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * FRAME CODEC - ENCODE/DECODE FRAME writeUTF
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Format giống hệt DataOutputStream.writeUTF() để client cũ không cần sửa:
+ * [2 byte độ dài (unsigned, big-endian)][N byte modified UTF-8]
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class FrameCodec {
+    public static final int HEADER_SIZE = 2;
+    public static final int MAX_PAYLOAD = 65535;
+
+    private FrameCodec() {
+    }
+
+    /**
+     * Encode message thành 1 frame hoàn chỉnh (gồm cả 2 byte độ dài)
+     */
+    public static byte[] encode(String msg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + msg.length() * 3);
+        new DataOutputStream(bytes).writeUTF(msg);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode 1 frame hoàn chỉnh bắt đầu tại offset (đã chắc chắn đủ byte)
+     */
+    public static String decode(byte[] buf, int offset, int frameLength) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(buf, offset, frameLength)).readUTF();
+    }
+}
@@ -0,0 +1,70 @@
+package server.network;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * MESSAGE CLASS - PHÂN LOẠI MESSAGE GỬI ĐI
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Lane (làn ưu tiên):
+ * - CRITICAL: message trong game và phản hồi lệnh ngắn (YOUR_TURN, DRAW,
+ * WAIT, SHOW_HANDS_ALL, ELIMINATED, RANKING, LOGIN_OK...) → luôn gửi trước
+ * - REPLY: phản hồi lớn cho 1 yêu cầu của client (HISTORY_DATA,
+ * HISTORY_DETAIL_DATA, MATCH_DETAIL_DATA, tới 64KB; PRESENCE_SNAPSHOT là
+ * điểm bắt đầu của mọi delta sau nó) → gửi sau CRITICAL, trước
+ * BULK; không bao giờ bị bỏ (client đang chờ đúng câu trả lời đó) và không
+ * tính vào server.slow.maxCriticalFrames
+ * - BULK: dữ liệu sảnh (PLAYER_LIST, PRESENCE_DELTA, ROOMS_LIST, ODDS) → chỉ gửi
+ * khi 2 làn trên trống
+ *
+ * Thứ tự giữ nguyên trong cùng 1 làn. Message REPLY/BULK là dữ liệu độc lập
+ * (kết quả truy vấn, ảnh chụp sảnh) nên bị làn trên vượt lên không sao.
+ *
+ * Message sảnh kiểu "ảnh chụp toàn bộ" (PLAYER_LIST, ROOMS_LIST, ODDS): bản mới
+ * thay thế hoàn toàn bản cũ → bản cũ còn nằm trong hàng đợi có thể bỏ.
+ * PRESENCE_DELTA thì không (mỗi delta chỉ chứa phần thay đổi); delta bị bỏ
+ * khi làn đầy → client thấy hụt seq và tự xin lại snapshot. Snapshot ở làn
+ * REPLY nên đi trước mọi delta xếp hàng sau nó; delta cũ hơn bị snapshot
+ * vượt lên thì client bỏ qua (seq ≤ seq của snapshot).
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class MessageClass {
+    public enum Lane {
+        CRITICAL, REPLY, BULK
+    }
+
+    private MessageClass() {
+    }
+
+    public static Lane lane(String msg) {
+        if (msg.startsWith("PLAYER_LIST|")
+                || msg.startsWith("PRESENCE_DELTA|")
+                || msg.startsWith("ROOMS_LIST|")
+                || msg.startsWith("ODDS;")) {
+            return Lane.BULK;
+        }
+        if (msg.startsWith("HISTORY_DATA")
+                || msg.startsWith("HISTORY_DETAIL_DATA")
+                || msg.startsWith("MATCH_DETAIL_DATA")
+                || msg.startsWith("PRESENCE_SNAPSHOT|")) {
+            return Lane.REPLY;
+        }
+        return Lane.CRITICAL;
+    }
+
+    /**
+     * Khóa thay thế của message, null nếu message không được phép bỏ
+     */
+    public static String supersedeKey(String msg) {
+        if (msg.startsWith("PLAYER_LIST|")) {
+            return "PLAYER_LIST";
+        }
+        if (msg.startsWith("ROOMS_LIST|")) {
+            return "ROOMS_LIST";
+        }
+        if (msg.startsWith("ODDS;")) {
+            return "ODDS";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,276 @@
+package server.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * NIO CONNECTION - 1 KẾT NỐI KHÔNG BLOCKING
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * - Đọc: event loop đọc byte vào readBuffer, cắt thành từng frame writeUTF
+ * (2 byte độ dài + payload) hoặc frame BIN1 sau khi đã thương lượng rồi chuyển message cho ConnectionListener qua
+ * SerialExecutor (giữ thứ tự, không chặn event loop khi lệnh gọi database)
+ * - Ghi: send() có thể gọi từ bất kỳ thread nào, frame được xếp vào
+ * OutboundQueue và event loop ghi ra kênh khi kênh sẵn sàng (OP_WRITE),
+ * gom nhiều frame vào 1 lần gathering write
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class NioConnection implements Transport {
+    private static final int INITIAL_READ_BUFFER = 1024;
+    // Số frame tối đa gom vào 1 lần gathering write
+    private static final int WRITE_BATCH = 16;
+
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    private final SerialExecutor inbound;
+    private ConnectionListener listener;
+    private SelectionKey key;
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+    private final OutboundQueue writeQueue = new OutboundQueue();
+    // Các frame đang ghi dở [batchStart, batchEnd) - chỉ event loop dùng
+    private final ByteBuffer[] writeBatch = new ByteBuffer[WRITE_BATCH];
+    private int batchStart = 0;
+    private int batchEnd = 0;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private volatile boolean open = true;
+    private volatile boolean closeRequested = false;
+    private volatile BinaryEncoder binary; // null = gửi writeUTF
+    private volatile boolean binaryInbound = false; // event loop đọc BIN1
+
+    public NioConnection(SocketChannel channel, EventLoop loop, SerialExecutor inbound) {
+        this.channel = channel;
+        this.loop = loop;
+        this.inbound = inbound;
+    }
+
+    void setListener(ConnectionListener listener) {
+        this.listener = listener;
+    }
+
+    // Chỉ gọi trên event loop
+    void attach(SelectionKey key) {
+        this.key = key;
+        if (!writeQueue.isEmpty() || closeRequested) {
+            handleWrite();
+        }
+    }
+
+    public String getRemoteAddress() {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // GHI (gọi từ bất kỳ thread nào)
+    // ═══════════════════════════════════════════════════════════════
+
+    @Override
+    public void send(OutboundFrame frame) throws IOException {
+        if (!open || closeRequested) {
+            throw new IOException("Kết nối đã đóng");
+        }
+        if (writeQueue.offerFrame(frame, binary) == SlowConsumerPolicy.Action.EVICT) {
+            closeRequested = true;
+            loop.execute(this::closeNow);
+            throw new SlowConsumerException("Client tụt lại (" + writeQueue.depth() + " frame chờ gửi)");
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void close() {
+        closeRequested = true;
+        scheduleFlush();
+    }
+
+    @Override
+    public void upgradeToBinary(String ack) throws IOException {
+        binaryInbound = true;
+        send(ack);
+        binary = new BinaryEncoder();
+    }
+
+    @Override
+    public boolean isBinary() {
+        return binaryInbound;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && !closeRequested;
+    }
+
+    @Override
+    public int queuedFrames() {
+        return writeQueue.depth();
+    }
+
+    @Override
+    public long queuedBytes() {
+        return writeQueue.pendingBytes();
+    }
+
+    @Override
+    public boolean isWritable() {
+        return writeQueue.isWritable();
+    }
+
+    @Override
+    public boolean isSlow() {
+        return writeQueue.isSlow();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(() -> {
+                flushScheduled.set(false);
+                if (key != null) {
+                    handleWrite();
+                }
+            });
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // EVENT LOOP CALLBACKS
+    // ═══════════════════════════════════════════════════════════════
+
+    void handleWrite() {
+        if (!open) {
+            return;
+        }
+        try {
+            while (true) {
+                if (batchStart == batchEnd && !fillWriteBatch()) {
+                    break;
+                }
+                // Gathering write: nhiều frame (mảng byte dùng chung) trong 1 syscall
+                channel.write(writeBatch, batchStart, batchEnd - batchStart);
+                while (batchStart < batchEnd && !writeBatch[batchStart].hasRemaining()) {
+                    writeBatch[batchStart++] = null;
+                }
+                if (batchStart < batchEnd) {
+                    // Socket buffer đầy → chờ OP_WRITE
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            if (closeRequested) {
+                closeNow();
+            }
+        } catch (IOException e) {
+            closeNow();
+        }
+    }
+
+    /**
+     * Lấy tối đa WRITE_BATCH frame từ hàng đợi (làn CRITICAL trước)
+     *
+     * @return false nếu hàng đợi trống
+     */
+    private boolean fillWriteBatch() {
+        batchStart = 0;
+        batchEnd = 0;
+        byte[] frame;
+        while (batchEnd < WRITE_BATCH && (frame = writeQueue.poll()) != null) {
+            writeBatch[batchEnd++] = ByteBuffer.wrap(frame);
+        }
+        return batchEnd > 0;
+    }
+
+    void handleRead() {
+        int n;
+        try {
+            n = channel.read(readBuffer);
+        } catch (IOException e) {
+            n = -1;
+        }
+        if (n < 0) {
+            closeNow();
+            return;
+        }
+
+        readBuffer.flip();
+        int needed = 0;
+        try {
+            while (readBuffer.hasRemaining()) {
+                int pos = readBuffer.position();
+                int headerLength;
+                int frameLength;
+                if (binaryInbound) {
+                    int[] header = BinaryProtocol.peekHeader(readBuffer);
+                    if (header == null) {
+                        break;
+                    }
+                    BinaryProtocol.checkInboundLength(header[1]);
+                    headerLength = header[0];
+                    frameLength = header[0] + header[1];
+                } else {
+                    if (readBuffer.remaining() < FrameCodec.HEADER_SIZE) {
+                        break;
+                    }
+                    headerLength = FrameCodec.HEADER_SIZE;
+                    frameLength = FrameCodec.HEADER_SIZE + (readBuffer.getShort(pos) & 0xFFFF);
+                }
+                if (readBuffer.remaining() < frameLength) {
+                    needed = frameLength;
+                    break;
+                }
+                int start = readBuffer.arrayOffset() + pos;
+                String msg = binaryInbound
+                        ? BinaryProtocol.decodeInbound(readBuffer.array(), start + headerLength, frameLength - headerLength)
+                        : FrameCodec.decode(readBuffer.array(), start, frameLength);
+                readBuffer.position(pos + frameLength);
+                inbound.execute(() -> listener.onMessage(msg));
+            }
+        } catch (IOException e) {
+            System.out.println("⚠️ Frame lỗi từ " + getRemoteAddress() + ": " + e.getMessage());
+            closeNow();
+            return;
+        }
+        readBuffer.compact();
+
+        // Frame lớn hơn buffer hiện tại → nới buffer (tối đa ~64KB)
+        if (needed > readBuffer.capacity()) {
+            ByteBuffer bigger = ByteBuffer.allocate(needed);
+            readBuffer.flip();
+            bigger.put(readBuffer);
+            readBuffer = bigger;
+        }
+    }
+
+    /**
+     * Đóng ngay (chỉ gọi trên event loop), báo onClose cho listener sau các
+     * message đã nhận trước đó
+     */
+    void closeNow() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+        }
+        writeQueue.clear();
+        Arrays.fill(writeBatch, null);
+        batchStart = batchEnd = 0;
+        if (listener != null) {
+            inbound.execute(listener::onClose);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package server.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * NIO SERVER - TRANSPORT KHÔNG BLOCKING (-Dserver.transport=nio)
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Thay cho mô hình "mỗi client 1 thread" của ClientHandler:
+ * - 1 thread accept kết nối mới
+ * - ioThreads event loop (Selector) đọc/ghi cho tất cả kết nối
+ * - workerThreads xử lý lệnh (có thể gọi database nên không chạy trên loop)
+ *
+ * Client idle ở lobby không chiếm thread nào, chỉ tốn 1 SelectionKey + buffer.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class NioServer {
+    private final int port;
+    private final EventLoop[] loops;
+    private final ExecutorService workers;
+    private final Function<NioConnection, ConnectionListener> listenerFactory;
+    private int nextLoop = 0;
+
+    public NioServer(int port, int ioThreads, int workerThreads,
+            Function<NioConnection, ConnectionListener> listenerFactory) throws IOException {
+        this.port = port;
+        this.listenerFactory = listenerFactory;
+        this.loops = new EventLoop[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            loops[i] = new EventLoop("nio-loop-" + i);
+        }
+        AtomicInteger workerId = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads,
+                r -> new Thread(r, "nio-worker-" + workerId.getAndIncrement()));
+    }
+
+    /**
+     * Mở cổng và accept kết nối (chặn thread gọi, giống vòng lặp accept cũ)
+     */
+    public void serve() throws IOException {
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            System.out.println("⚡ NIO transport: " + loops.length + " event loop, " + "worker pool riêng");
+
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+
+                EventLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+
+                NioConnection connection = new NioConnection(channel, loop, new SerialExecutor(workers));
+                connection.setListener(listenerFactory.apply(connection));
+                loop.register(channel, connection);
+                System.out.println("👤 Người dùng mới kết nối (NIO): " + connection.getRemoteAddress());
+            }
+        } finally {
+            for (EventLoop loop : loops) {
+                loop.shutdown();
+            }
+            workers.shutdown();
+        }
+    }
+}
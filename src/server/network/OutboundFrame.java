@@ -0,0 +1,71 @@
+package server.network;
+
+import server.core.ServerMetrics;
+import java.io.IOException;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * OUTBOUND FRAME - MESSAGE ĐÃ ENCODE, DÙNG CHUNG CHO MỌI NGƯỜI NHẬN
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Broadcast tạo 1 OutboundFrame rồi gửi cho tất cả client: message chỉ được
+ * encode 1 lần cho mỗi định dạng (writeUTF / BIN1), kết quả được cache và
+ * cùng 1 mảng byte nằm trong hàng đợi của mọi người nhận.
+ *
+ * Mảng byte đã encode KHÔNG được sửa sau khi tạo (mỗi writer tự bọc
+ * ByteBuffer riêng với position riêng khi ghi).
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class OutboundFrame {
+    private final String message;
+    private final MessageClass.Lane lane;
+    private final String supersedeKey;
+    // Encode lười; 2 thread cùng encode lần đầu chỉ tốn thêm 1 lần, kết quả như nhau
+    private volatile byte[] text;
+    private volatile BinaryEncoder.Encoded binary;
+
+    public OutboundFrame(String message) {
+        this.message = message;
+        this.lane = MessageClass.lane(message);
+        this.supersedeKey = MessageClass.supersedeKey(message);
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public MessageClass.Lane getLane() {
+        return lane;
+    }
+
+    public String getSupersedeKey() {
+        return supersedeKey;
+    }
+
+    /**
+     * Frame writeUTF (2 byte độ dài + modified UTF-8)
+     */
+    byte[] textBytes() throws IOException {
+        byte[] bytes = text;
+        if (bytes == null) {
+            bytes = FrameCodec.encode(message);
+            text = bytes;
+            ServerMetrics.increment("frame.encodes.text");
+        }
+        return bytes;
+    }
+
+    /**
+     * Frame BIN1 chưa kèm USER_DEF (phần dùng chung cho mọi kết nối)
+     */
+    BinaryEncoder.Encoded binaryBody() {
+        BinaryEncoder.Encoded encoded = binary;
+        if (encoded == null) {
+            encoded = BinaryEncoder.encodeShared(message);
+            binary = encoded;
+            ServerMetrics.increment("frame.encodes.binary");
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,262 @@
+package server.network;
+
+import server.core.LatencyHistogram;
+import server.core.ServerConfig;
+import server.core.ServerMetrics;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * OUTBOUND QUEUE - HÀNG ĐỢI GỬI CỦA 1 CLIENT
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * - Không khóa (ConcurrentLinkedQueue + counter atomic): thread gọi
+ * sendMessage() chỉ encode + xếp hàng rồi đi tiếp, không bao giờ chờ socket
+ * - 3 làn ưu tiên (MessageClass.Lane): poll() lấy CRITICAL trước, rồi REPLY,
+ * BULK chỉ được gửi khi 2 làn kia trống → lịch sử lớn hay bão PLAYER_LIST
+ * không thể làm trễ YOUR_TURN
+ * - Có giới hạn: mỗi làn tối đa maxFrames frame, vượt quá → SlowConsumerPolicy
+ * quyết định bỏ message hay ngắt client
+ * - Watermark theo byte đang chờ: vượt high → writable=false (client chậm),
+ * giảm xuống ≤ low → writable=true
+ * - Message sảnh có khóa thay thế (PLAYER_LIST, ROOMS_LIST): nếu bản cũ chưa
+ * gửi thì ghi đè nội dung bản cũ ngay tại chỗ, không thêm frame mới
+ *
+ * Chỉ 1 writer (writer thread hoặc event loop) được gọi poll().
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class OutboundQueue {
+    private static final LatencyHistogram CRITICAL_WAIT = ServerMetrics.histogram("outbound.criticalQueueWait");
+
+    /**
+     * 1 frame trong hàng đợi; data = null khi writer đã lấy đi
+     */
+    private static final class Entry {
+        final MessageClass.Lane lane;
+        final String key;
+        final AtomicReference<byte[]> data;
+        final long enqueuedAt = System.nanoTime();
+
+        Entry(MessageClass.Lane lane, String key, byte[] data) {
+            this.lane = lane;
+            this.key = key;
+            this.data = new AtomicReference<>(data);
+        }
+    }
+
+    private final Queue<Entry> critical = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> reply = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> bulk = new ConcurrentLinkedQueue<>();
+    private final Map<String, Entry> pendingByKey = new ConcurrentHashMap<>();
+    private final AtomicInteger criticalDepth = new AtomicInteger();
+    private final AtomicInteger replyDepth = new AtomicInteger();
+    private final AtomicInteger bulkDepth = new AtomicInteger();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final int maxFrames;
+    private final long highWatermark;
+    private final long lowWatermark;
+    private final SlowConsumerPolicy policy;
+    private volatile boolean writable = true;
+    private volatile long unwritableSince = 0;
+
+    public OutboundQueue() {
+        this(ServerConfig.OUTBOUND_MAX_FRAMES, ServerConfig.OUTBOUND_HIGH_WATERMARK,
+                ServerConfig.OUTBOUND_LOW_WATERMARK, new SlowConsumerPolicy());
+    }
+
+    public OutboundQueue(int maxFrames, long highWatermark, long lowWatermark, SlowConsumerPolicy policy) {
+        this.maxFrames = maxFrames;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = Math.min(lowWatermark, highWatermark);
+        this.policy = policy;
+    }
+
+    /**
+     * Xếp 1 frame vào hàng đợi
+     *
+     * @param lane         làn ưu tiên (MessageClass.lane)
+     * @param supersedeKey khóa thay thế (MessageClass.supersedeKey), null nếu
+     *                     message không được bỏ
+     * @return ENQUEUE (đã xếp/thay thế), DROP (bỏ message BULK) hoặc EVICT
+     *         (phải ngắt client)
+     */
+    public SlowConsumerPolicy.Action offer(byte[] frame, MessageClass.Lane lane, String supersedeKey) {
+        if (supersedeKey != null) {
+            Entry pending = pendingByKey.get(supersedeKey);
+            if (pending != null && replace(pending, frame)) {
+                ServerMetrics.increment("outbound.superseded");
+                return SlowConsumerPolicy.Action.ENQUEUE;
+            }
+        }
+
+        AtomicInteger laneDepth = depthOf(lane);
+        boolean full = laneDepth.incrementAndGet() > maxFrames;
+        SlowConsumerPolicy.Action action = policy.decide(this, lane, full);
+        if (action != SlowConsumerPolicy.Action.ENQUEUE) {
+            laneDepth.decrementAndGet();
+            ServerMetrics.increment(action == SlowConsumerPolicy.Action.DROP ? "outbound.bulkDropped" : "slow.evicted");
+            return action;
+        }
+
+        Entry entry = new Entry(lane, supersedeKey, frame);
+        if (supersedeKey != null) {
+            pendingByKey.put(supersedeKey, entry);
+        }
+        addPendingBytes(frame.length);
+        queueOf(lane).add(entry);
+        return SlowConsumerPolicy.Action.ENQUEUE;
+    }
+
+    private Queue<Entry> queueOf(MessageClass.Lane lane) {
+        switch (lane) {
+            case CRITICAL:
+                return critical;
+            case REPLY:
+                return reply;
+            default:
+                return bulk;
+        }
+    }
+
+    private AtomicInteger depthOf(MessageClass.Lane lane) {
+        switch (lane) {
+            case CRITICAL:
+                return criticalDepth;
+            case REPLY:
+                return replyDepth;
+            default:
+                return bulkDepth;
+        }
+    }
+
+    /**
+     * Xếp 1 OutboundFrame: dùng lại mảng byte đã encode sẵn của frame
+     * (writeUTF, hoặc BIN1 nếu binary != null)
+     */
+    public SlowConsumerPolicy.Action offerFrame(OutboundFrame frame, BinaryEncoder binary) throws IOException {
+        MessageClass.Lane lane = frame.getLane();
+        String key = frame.getSupersedeKey();
+        if (binary == null) {
+            return offer(frame.textBytes(), lane, key);
+        }
+        BinaryEncoder.Encoded body = frame.binaryBody();
+        synchronized (binary) {
+            byte[] bytes = binary.encode(body, lane);
+            if (!binary.lastHadDefinitions()) {
+                return offer(bytes, lane, key);
+            }
+            // Frame có USER_DEF: không cho bản sau ghi đè bản cũ nằm trước nó
+            // (bản sau có thể dùng ID mà chỉ frame này định nghĩa)
+            if (key != null) {
+                pendingByKey.remove(key);
+            }
+            SlowConsumerPolicy.Action action = offer(bytes, lane, null);
+            if (action == SlowConsumerPolicy.Action.DROP) {
+                binary.forgetLane(lane);
+            }
+            return action;
+        }
+    }
+
+    /**
+     * Ghi đè nội dung frame chưa gửi (false nếu writer đã lấy mất)
+     */
+    private boolean replace(Entry entry, byte[] frame) {
+        byte[] current;
+        while ((current = entry.data.get()) != null) {
+            if (entry.data.compareAndSet(current, frame)) {
+                addPendingBytes(frame.length - current.length);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lấy frame tiếp theo: làn CRITICAL trước, rồi REPLY, cuối cùng BULK
+     */
+    public byte[] poll() {
+        Entry entry = critical.poll();
+        if (entry != null) {
+            CRITICAL_WAIT.recordNanos(System.nanoTime() - entry.enqueuedAt);
+        } else {
+            entry = reply.poll();
+            if (entry == null) {
+                entry = bulk.poll();
+            }
+            if (entry == null) {
+                return null;
+            }
+        }
+        byte[] frame = entry.data.getAndSet(null);
+        if (entry.key != null) {
+            pendingByKey.remove(entry.key, entry);
+        }
+        depthOf(entry.lane).decrementAndGet();
+        addPendingBytes(-frame.length);
+        return frame;
+    }
+
+    private void addPendingBytes(long delta) {
+        long bytes = pendingBytes.addAndGet(delta);
+        if (writable && bytes > highWatermark) {
+            writable = false;
+            unwritableSince = System.nanoTime();
+            ServerMetrics.increment("outbound.highWatermarkHits");
+        } else if (!writable && bytes <= lowWatermark) {
+            writable = true;
+            unwritableSince = 0;
+        }
+    }
+
+    public boolean isEmpty() {
+        return critical.isEmpty() && reply.isEmpty() && bulk.isEmpty();
+    }
+
+    public void clear() {
+        while (poll() != null) {
+            // bỏ hết frame còn lại
+        }
+    }
+
+    public int depth() {
+        return criticalDepth.get() + replyDepth.get() + bulkDepth.get();
+    }
+
+    /**
+     * Số frame làn CRITICAL (message trong game) đang chờ
+     */
+    public int criticalDepth() {
+        return criticalDepth.get();
+    }
+
+    public long pendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * false khi số byte đang chờ vượt high watermark (chưa xuống lại low)
+     */
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * Thời điểm (System.nanoTime) bắt đầu không writable, 0 nếu đang writable
+     */
+    public long unwritableSinceNanos() {
+        return unwritableSince;
+    }
+
+    public boolean isSlow() {
+        return policy.isSlow(this);
+    }
+}
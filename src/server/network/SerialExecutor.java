@@ -0,0 +1,67 @@
+package server.network;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * SERIAL EXECUTOR - CHẠY TASK TUẦN TỰ TRÊN 1 POOL DÙNG CHUNG
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Các task gửi vào cùng 1 SerialExecutor chạy lần lượt theo thứ tự, không bao
+ * giờ chạy song song, nhưng không chiếm riêng thread nào: khi có việc mới
+ * mượn 1 thread của pool, hết việc thì trả lại.
+ *
+ * Dùng cho: message của 1 kết nối NIO (giữ đúng thứ tự lệnh của client).
+ * Hộp thư của phòng không dùng lớp này: lệnh của RoomThread xếp thẳng vào
+ * hàng đợi của shard (RoomShards, 1 thread mỗi shard nên đã tuần tự).
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public class SerialExecutor implements Executor {
+    // Chạy tối đa bấy nhiêu task rồi nhường thread cho executor khác
+    private static final int BATCH_SIZE = 64;
+
+    private final Executor delegate;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    public SerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            delegate.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Runnable task = tasks.poll();
+                if (task == null) {
+                    break;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
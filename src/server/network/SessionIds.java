@@ -0,0 +1,29 @@
+package server.network;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Session ID cho username dùng trong BIN1: mỗi username được gán 1 số nhỏ
+ * (varint 1-2 byte) thay cho chuỗi tên trong các frame danh sách.
+ *
+ * ID không bao giờ đổi/tái sử dụng trong 1 lần chạy server → client cache
+ * bảng ID → tên mà không cần xóa. Kích thước bảng = số username khác nhau
+ * đã đăng nhập kể từ khi server khởi động.
+ */
+public final class SessionIds {
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private SessionIds() {
+    }
+
+    public static int idOf(String username) {
+        Integer id = ids.get(username);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(username, k -> nextId.getAndIncrement());
+    }
+}
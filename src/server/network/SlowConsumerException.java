@@ -0,0 +1,14 @@
+package server.network;
+
+import java.io.IOException;
+
+/**
+ * Client tụt lại quá xa (message trong game bị dồn) → kết nối đã bị ngắt
+ */
+public class SlowConsumerException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public SlowConsumerException(String message) {
+        super(message);
+    }
+}
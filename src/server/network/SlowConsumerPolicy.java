@@ -0,0 +1,69 @@
+package server.network;
+
+import server.core.ServerConfig;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * SLOW CONSUMER POLICY - XỬ LÝ CLIENT TỤT LẠI
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Client "tụt lại" khi:
+ * - Số byte chờ gửi > server.slow.pendingBytes, hoặc
+ * - Không writable (vượt high watermark) liên tục > server.slow.unwritableMs
+ *
+ * Thứ tự xử lý:
+ * 1. PLAYER_LIST/ROOMS_LIST cũ còn chờ → bị bản mới thay thế (luôn áp dụng)
+ * 2. Làn BULK đầy → bỏ message sảnh mới (phản hồi HISTORY_DATA... ở làn
+ * REPLY không bao giờ bị bỏ)
+ * 3. Làn CRITICAL dồn quá server.slow.maxCriticalFrames khi đang tụt lại,
+ * hoặc làn CRITICAL/REPLY đầy → ngắt kết nối (client không thể chơi tiếp
+ * đúng). Phản hồi REPLY đang chờ không tính vào maxCriticalFrames
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class SlowConsumerPolicy {
+    public enum Action {
+        ENQUEUE, DROP, EVICT
+    }
+
+    private final long pendingBytesLimit;
+    private final long unwritableNanosLimit;
+    private final int maxCriticalFrames;
+
+    public SlowConsumerPolicy() {
+        this(ServerConfig.SLOW_PENDING_BYTES, ServerConfig.SLOW_UNWRITABLE_MS, ServerConfig.SLOW_MAX_CRITICAL_FRAMES);
+    }
+
+    public SlowConsumerPolicy(long pendingBytesLimit, long unwritableMs, int maxCriticalFrames) {
+        this.pendingBytesLimit = pendingBytesLimit;
+        this.unwritableNanosLimit = unwritableMs * 1_000_000L;
+        this.maxCriticalFrames = maxCriticalFrames;
+    }
+
+    public boolean isSlow(OutboundQueue queue) {
+        if (queue.pendingBytes() > pendingBytesLimit) {
+            return true;
+        }
+        long since = queue.unwritableSinceNanos();
+        return since != 0 && System.nanoTime() - since > unwritableNanosLimit;
+    }
+
+    /**
+     * Quyết định cho 1 message mới (đã thử thay thế bản cũ mà không được)
+     *
+     * @param lane làn của message
+     * @param full làn đó đã đủ maxFrames
+     */
+    public Action decide(OutboundQueue queue, MessageClass.Lane lane, boolean full) {
+        if (lane == MessageClass.Lane.BULK) {
+            return full ? Action.DROP : Action.ENQUEUE;
+        }
+        if (full) {
+            return Action.EVICT;
+        }
+        if (lane == MessageClass.Lane.CRITICAL && queue.criticalDepth() >= maxCriticalFrames && isSlow(queue)) {
+            return Action.EVICT;
+        }
+        return Action.ENQUEUE;
+    }
+}
@@ -0,0 +1,75 @@
+package server.network;
+
+import java.io.IOException;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * TRANSPORT - KÊNH GỬI MESSAGE TỚI 1 CLIENT
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * ClientHandler chỉ làm việc với interface này, không quan tâm bên dưới là
+ * Socket blocking (BlockingTransport) hay SocketChannel NIO (NioConnection).
+ *
+ * send() không bao giờ chờ socket: message được xếp vào OutboundQueue và
+ * writer (writer thread / event loop) gửi đi sau.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public interface Transport {
+    /**
+     * Xếp 1 frame vào hàng đợi gửi tới client (frame có thể dùng chung cho
+     * nhiều client - xem OutboundFrame)
+     *
+     * Message sảnh (PLAYER_LIST, ROOMS_LIST) có thể bị bản mới thay thế hoặc
+     * bị bỏ khi client tụt lại (xem SlowConsumerPolicy)
+     *
+     * @throws SlowConsumerException nếu client tụt lại quá xa và đã bị ngắt
+     * @throws IOException           nếu kết nối đã đóng
+     */
+    void send(OutboundFrame frame) throws IOException;
+
+    /**
+     * Gửi 1 message riêng cho client này
+     */
+    default void send(String msg) throws IOException {
+        send(new OutboundFrame(msg));
+    }
+
+    /**
+     * Chuyển kết nối sang BIN1 (BinaryProtocol): nhận BIN1 ngay, gửi ack
+     * bằng frame writeUTF, sau đó mọi message gửi đi đều là BIN1
+     */
+    void upgradeToBinary(String ack) throws IOException;
+
+    /**
+     * true khi kết nối đã chuyển sang BIN1
+     */
+    boolean isBinary();
+
+    /**
+     * Đóng kết nối sau khi đã gửi hết các message đang chờ
+     */
+    void close();
+
+    boolean isOpen();
+
+    /**
+     * Số frame đang chờ gửi
+     */
+    int queuedFrames();
+
+    /**
+     * Số byte đang chờ gửi
+     */
+    long queuedBytes();
+
+    /**
+     * false khi client đang chậm (vượt high watermark)
+     */
+    boolean isWritable();
+
+    /**
+     * true khi client đang tụt lại theo SlowConsumerPolicy
+     */
+    boolean isSlow();
+}
@@ -0,0 +1,26 @@
+package bench;
+
+import server.core.Server;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * BENCH SERVER - SERVER THẬT TRÊN DATABASE GIẢ
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Chạy nguyên Server.main (mọi -Dserver.* giữ nguyên ý nghĩa) nhưng JDBC
+ * là StubJdbc: đăng nhập, giữ MatchID, ghi kết quả ván đi qua Database /
+ * pool / WriteBehindQueue thật, mỗi lượt gọi database chờ
+ * -Dbench.db.latencyMs (mặc định 1).
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class BenchServer {
+    private BenchServer() {
+    }
+
+    public static void main(String[] args) {
+        StubJdbc.latencyMs = Long.getLong("bench.db.latencyMs", 1);
+        StubJdbc.install();
+        Server.main(args);
+    }
+}
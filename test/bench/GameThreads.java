@@ -0,0 +1,152 @@
+package bench;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import server.core.Server;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * GAME THREADS - SỐ THREAD SERVER TẠO RA TRONG 1 VÁN
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Server.main (StubJdbc) chạy trong cùng JVM; N người chơi (socket thường,
+ * writeUTF) đều do thread main điều khiển → mọi thread mới sinh ra trong
+ * lúc chạy là của server. Đếm bằng ThreadMXBean.getTotalStartedThreadCount:
+ * - từ lúc khởi động tới hết ván (đăng nhập, tạo phòng, cả ván)
+ * - riêng ván: START → END (hẹn giờ lượt, ghi kết quả...)
+ *
+ * -Dgame.idle=true: người chơi cuối không bao giờ rút → kiểm tra timeout
+ * (bị ELIMINATED sau 10 giây, ván vẫn kết thúc bình thường).
+ *
+ * Dùng: java -cp out bench.GameThreads [người chơi=6]
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class GameThreads {
+    private static final int PORT = Integer.getInteger("server.port", 5000);
+    private static final long GAME_TIMEOUT_MS = 60_000;
+
+    private GameThreads() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        boolean idle = Boolean.getBoolean("game.idle");
+        PrintStream out = System.out;
+        if (!Boolean.getBoolean("bench.verbose")) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream(), true, "UTF-8")); // log của server
+        }
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long atBoot = mx.getTotalStartedThreadCount();
+
+        StubJdbc.install();
+        Thread server = new Thread(() -> Server.main(new String[0]), "bench-server");
+        server.setDaemon(true);
+        server.start();
+
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            players.add(Player.connect("p" + i));
+        }
+        Player host = players.get(0);
+        host.send("CREATE");
+        String room = host.await("ROOM_CREATED;").substring("ROOM_CREATED;".length());
+        for (Player p : players.subList(1, n)) {
+            p.send("JOIN;" + room);
+            p.await("JOIN_OK");
+            p.send("READY;" + room);
+        }
+        Thread.sleep(300); // READY của người cuối tới phòng trước START
+
+        long atStart = mx.getTotalStartedThreadCount();
+        long startedAt = System.currentTimeMillis();
+        host.send("START;" + room);
+        Player idler = idle ? players.get(n - 1) : null;
+        boolean ended = false;
+        boolean eliminated = false;
+        while (!ended && System.currentTimeMillis() - startedAt < GAME_TIMEOUT_MS) {
+            boolean any = false;
+            for (Player p : players) {
+                String msg = p.poll();
+                if (msg == null) {
+                    continue;
+                }
+                any = true;
+                if (msg.equals("YOUR_TURN") && p != idler) {
+                    p.send("DRAW;" + room);
+                } else if (msg.startsWith("ELIMINATED") && p == idler) {
+                    eliminated = true;
+                    out.printf("⏰ %s bị loại sau %.1f s%n", p.name, (System.currentTimeMillis() - startedAt) / 1000.0);
+                } else if (msg.startsWith("END;") && p == host) {
+                    ended = true;
+                }
+            }
+            if (!any) {
+                Thread.sleep(2);
+            }
+        }
+        long atEnd = mx.getTotalStartedThreadCount();
+
+        out.println(n + " người chơi, ván kết thúc=" + ended + (idle ? ", timeout=" + eliminated : "")
+                + " (JDK " + Runtime.version().feature() + ")");
+        out.println("Thread tạo ra từ lúc khởi động tới hết ván: " + (atEnd - atBoot));
+        out.println("Thread tạo ra trong ván (START → END):     " + (atEnd - atStart));
+        out.println("Thread đang sống: " + mx.getThreadCount());
+        System.exit(ended ? 0 : 1);
+    }
+
+    private static final class Player {
+        final String name;
+        final DataInputStream in;
+        final DataOutputStream outStream;
+
+        private Player(String name, Socket socket) throws IOException {
+            this.name = name;
+            this.in = new DataInputStream(socket.getInputStream());
+            this.outStream = new DataOutputStream(socket.getOutputStream());
+        }
+
+        static Player connect(String name) throws Exception {
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (true) {
+                try {
+                    Player p = new Player(name, new Socket("localhost", PORT));
+                    p.send("LOGIN;" + name + ";pw");
+                    p.await("LOGIN_OK");
+                    return p;
+                } catch (IOException e) {
+                    if (System.currentTimeMillis() > deadline) {
+                        throw e;
+                    }
+                    Thread.sleep(200); // server chưa mở cổng
+                }
+            }
+        }
+
+        void send(String msg) throws IOException {
+            outStream.writeUTF(msg);
+        }
+
+        // Message kế tiếp nếu đã có dữ liệu, không thì null
+        String poll() throws IOException {
+            return in.available() > 0 ? in.readUTF() : null;
+        }
+
+        String await(String prefix) throws IOException {
+            while (true) {
+                String msg = in.readUTF();
+                if (msg.startsWith(prefix)) {
+                    return msg;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package bench;
+
+import bench.legacy.LegacyHandEvaluator;
+import bench.legacy.LegacyHandRank;
+import java.util.*;
+import server.game.HandEvaluator;
+import server.models.Card;
+import server.models.HandRank;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * HAND EVALUATOR CHECK - BẢNG TRA SO VỚI BẢN CŨ + ĐO THỜI GIAN
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * 1. Mọi tay 0..3 lá theo thứ tự rút (69.005 tay): loại, tên, primary,
+ * tie-breaker, composite score và điểm mod 10 (HighCard) phải giống
+ * LegacyHandEvaluator (bản trước khi dùng bảng tra, test/bench/legacy)
+ * 2. 2 triệu cặp tay ngẫu nhiên: thứ tự theo strength() phải giống thứ tự
+ * cũ (loại → điểm mod nếu HighCard → compareTo)
+ * 3. Thời gian: vòng lặp đã warm-up trên 22.100 tay 3 lá xáo trộn (không có
+ * JMH, chạy 5 lần để thấy JIT ổn định)
+ *
+ * Dùng: java -cp out bench.HandEvaluatorCheck
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class HandEvaluatorCheck {
+    private HandEvaluatorCheck() {
+    }
+
+    public static void main(String[] args) {
+        List<List<Card>> hands = allHands();
+
+        int mismatches = 0;
+        for (List<Card> h : hands) {
+            LegacyHandRank o = LegacyHandEvaluator.evaluate(h);
+            HandRank n = HandEvaluator.evaluate(h);
+            boolean same = o.getCategory() == n.getCategory() && o.getCategoryName().equals(n.getCategoryName())
+                    && o.getPrimaryValue() == n.getPrimaryValue() && o.getTieBreakers().equals(n.getTieBreakers())
+                    && o.toCompositeScore() == n.toCompositeScore()
+                    && (o.getCategory() != 1 || legacyModScore(h) == HandEvaluator.modScore(n.getStrength()));
+            if (!same && mismatches++ < 5) {
+                System.out.println("❌ Khác: " + h + " cũ=" + o + " mới=" + n);
+            }
+        }
+
+        Random random = new Random(1);
+        int orderMismatches = 0;
+        for (int i = 0; i < 2_000_000; i++) {
+            List<Card> a = hands.get(random.nextInt(hands.size()));
+            List<Card> b = hands.get(random.nextInt(hands.size()));
+            int expected = legacyCompare(a, b);
+            int actual = Integer.signum(Integer.compare(HandEvaluator.strength(a), HandEvaluator.strength(b)));
+            if (expected != actual && orderMismatches++ < 5) {
+                System.out.println("❌ Thứ tự khác: " + a + " vs " + b + " cũ=" + expected + " mới=" + actual);
+            }
+        }
+        System.out.println("Tay: " + hands.size() + ", khác: " + mismatches + ", thứ tự khác: " + orderMismatches
+                + " / 2.000.000 cặp");
+
+        List<List<Card>> three = new ArrayList<>();
+        for (List<Card> h : hands) {
+            if (h.size() == 3) {
+                three.add(h);
+            }
+        }
+        Collections.shuffle(three, new Random(2));
+        for (int rep = 0; rep < 5; rep++) {
+            long acc = 0;
+            long t0 = System.nanoTime();
+            for (int k = 0; k < 10; k++) {
+                for (List<Card> h : three) {
+                    acc += LegacyHandEvaluator.evaluate(h).getPrimaryValue();
+                }
+            }
+            long t1 = System.nanoTime();
+            for (int k = 0; k < 10; k++) {
+                for (List<Card> h : three) {
+                    acc += HandEvaluator.strength(h);
+                }
+            }
+            long t2 = System.nanoTime();
+            int ops = three.size() * 10;
+            System.out.printf("Lần %d: cũ %.1f ns/tay, mới %.1f ns/tay (%d)%n", rep + 1, (t1 - t0) / (double) ops,
+                    (t2 - t1) / (double) ops, acc & 1);
+        }
+    }
+
+    // Mọi tay 0..3 lá theo thứ tự rút (lá 2 và 3 không phân biệt thứ tự)
+    private static List<List<Card>> allHands() {
+        List<List<Card>> hands = new ArrayList<>();
+        hands.add(Collections.emptyList());
+        for (int a = 0; a < Card.COUNT; a++) {
+            hands.add(List.of(Card.of(a)));
+            for (int b = 0; b < Card.COUNT; b++) {
+                if (b == a) {
+                    continue;
+                }
+                hands.add(List.of(Card.of(a), Card.of(b)));
+                for (int c = b + 1; c < Card.COUNT; c++) {
+                    if (c != a) {
+                        hands.add(List.of(Card.of(a), Card.of(b), Card.of(c)));
+                    }
+                }
+            }
+        }
+        return hands;
+    }
+
+    // Thứ tự cũ: loại → điểm mod 10 (cùng HighCard) → LegacyHandRank.compareTo
+    private static int legacyCompare(List<Card> a, List<Card> b) {
+        LegacyHandRank ra = LegacyHandEvaluator.evaluate(a);
+        LegacyHandRank rb = LegacyHandEvaluator.evaluate(b);
+        if (ra.getCategory() != rb.getCategory()) {
+            return Integer.compare(ra.getCategory(), rb.getCategory());
+        }
+        if (ra.getCategory() == 1) {
+            int ma = legacyModScore(a);
+            int mb = legacyModScore(b);
+            if (ma != mb) {
+                return Integer.compare(ma, mb);
+            }
+        }
+        return Integer.signum(ra.compareTo(rb));
+    }
+
+    // GameLogic.computeModScore cũ: tổng điểm (A=1, J/Q/K=11/12/13) % 10
+    private static int legacyModScore(List<Card> hand) {
+        int sum = 0;
+        for (Card c : hand) {
+            switch (c.getRank()) {
+                case "A":
+                    sum += 1;
+                    break;
+                case "J":
+                    sum += 11;
+                    break;
+                case "Q":
+                    sum += 12;
+                    break;
+                case "K":
+                    sum += 13;
+                    break;
+                default:
+                    sum += Integer.parseInt(c.getRank());
+            }
+        }
+        return sum % 10;
+    }
+}
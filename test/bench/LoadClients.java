@@ -0,0 +1,270 @@
+package bench;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * LOAD CLIENTS - SỐ THREAD, RSS, ĐỘ TRỄ CONNECT → LOGIN_OK THEO SỐ CLIENT
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * Với mỗi chế độ server × số client:
+ * 1. Chạy BenchServer ở process riêng (log: <tmpdir>/bench-server-*.log)
+ * 2. 1 thread selector mở N kết nối (tối đa -Dload.concurrency đang bắt tay
+ * cùng lúc), gửi LOGIN;loadI;pw;PRESENCE1, đo thời gian connect → LOGIN_OK
+ * 3. Giữ mọi kết nối -Dload.holdSec giây (đọc bỏ mọi message server gửi)
+ * 4. Đọc Threads, VmRSS, VmHWM của process server từ /proc (chỉ Linux)
+ *
+ * Chế độ (-Dload.modes, mặc định blocking,nio):
+ * - blocking: -Dserver.transport=blocking -Dserver.threads=platform
+ * - virtual: -Dserver.transport=blocking -Dserver.threads=virtual (JDK 21+;
+ * JDK cũ hơn ThreadMode quay về platform thread)
+ * - nio: -Dserver.transport=nio
+ *
+ * Dùng: java -cp out bench.LoadClients 1000 10000
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class LoadClients {
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 200);
+    private static final int HOLD_SEC = Integer.getInteger("load.holdSec", 5);
+    private static final int TIMEOUT_SEC = Integer.getInteger("load.timeoutSec", 180);
+    private static final int PORT = Integer.getInteger("load.port", 5600);
+
+    private LoadClients() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] counts = args.length == 0 ? new int[] { 1000, 10_000 }
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        String[] modes = System.getProperty("load.modes", "blocking,nio").split(",");
+
+        System.out.println("JDK " + Runtime.version() + ", " + Runtime.getRuntime().availableProcessors()
+                + " core, client + server trên cùng máy");
+        System.out.printf("%-9s %7s %6s %5s %5s %9s %9s %9s %8s %9s %9s%n", "mode", "clients", "ok", "fail", "drop",
+                "p50(ms)", "p99(ms)", "max(ms)", "threads", "RSS(MB)", "peak(MB)");
+        for (String mode : modes) {
+            for (int n : counts) {
+                run(mode.trim(), n);
+            }
+        }
+    }
+
+    private static void run(String mode, int clients) throws Exception {
+        try (ServerProcess server = ServerProcess.start(mode, PORT, serverOptions(mode))) {
+            Result r = connectAll(clients);
+            long[] proc = server.procStatus(); // {threads, rssKb, hwmKb}
+            r.closeAll();
+            long[] lat = r.latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("%-9s %7d %6d %5d %5d %9.1f %9.1f %9.1f %8d %9.0f %9.0f%n", mode, clients, lat.length,
+                    r.failed, r.dropped, pct(lat, 0.50), pct(lat, 0.99), pct(lat, 1.0), proc[0], proc[1] / 1024.0,
+                    proc[2] / 1024.0);
+            r.errors.forEach((error, count) -> System.out.println("          " + count + " × " + error));
+        }
+    }
+
+    private static String[] serverOptions(String mode) {
+        switch (mode) {
+            case "nio":
+                return new String[] { "-Dserver.transport=nio" };
+            case "virtual":
+                return new String[] { "-Dserver.transport=blocking", "-Dserver.threads=virtual" };
+            default:
+                return new String[] { "-Dserver.transport=blocking", "-Dserver.threads=platform" };
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // CLIENT (1 THREAD SELECTOR CHO MỌI KẾT NỐI)
+    // ═══════════════════════════════════════════════════════════════
+
+    private static Result connectAll(int clients) throws IOException {
+        Result result = new Result();
+        Selector selector = Selector.open();
+        result.selector = selector;
+        ByteBuffer scratch = ByteBuffer.allocateDirect(64 * 1024);
+        int next = 0;
+        int inFlight = 0;
+        long deadline = System.currentTimeMillis() + TIMEOUT_SEC * 1000L;
+
+        while ((next < clients || inFlight > 0) && System.currentTimeMillis() < deadline) {
+            while (inFlight < CONCURRENCY && next < clients) {
+                Client c = new Client(next++);
+                c.channel = SocketChannel.open();
+                c.channel.configureBlocking(false);
+                c.startedAt = System.nanoTime();
+                c.channel.connect(new InetSocketAddress("localhost", PORT));
+                c.channel.register(selector, SelectionKey.OP_CONNECT, c);
+                result.clients.add(c);
+                inFlight++;
+            }
+            selector.select(100);
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                Client c = (Client) key.attachment();
+                boolean wasPending = !c.loggedIn;
+                if (!handle(key, c, scratch, result)) {
+                    if (wasPending) {
+                        result.failed++;
+                        inFlight--;
+                    } else {
+                        result.dropped++;
+                    }
+                } else if (wasPending && c.loggedIn) {
+                    inFlight--;
+                }
+            }
+        }
+        result.failed += inFlight;
+
+        // Giữ kết nối, đọc bỏ lobby broadcast
+        long holdUntil = System.currentTimeMillis() + HOLD_SEC * 1000L;
+        while (System.currentTimeMillis() < holdUntil) {
+            selector.select(100);
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                if (!handle(key, (Client) key.attachment(), scratch, result)) {
+                    result.dropped++;
+                }
+            }
+        }
+        return result;
+    }
+
+    // false → kết nối hỏng
+    private static boolean handle(SelectionKey key, Client c, ByteBuffer scratch, Result result) {
+        try {
+            if (key.isConnectable()) {
+                c.channel.finishConnect();
+                ByteBuffer login = frame("LOGIN;load" + c.index + ";pw;PRESENCE1");
+                while (login.hasRemaining()) {
+                    c.channel.write(login);
+                }
+                key.interestOps(SelectionKey.OP_READ);
+                return true;
+            }
+            if (!key.isReadable()) {
+                return true;
+            }
+            while (true) {
+                scratch.clear();
+                int n = c.channel.read(scratch);
+                if (n < 0) {
+                    key.cancel();
+                    c.channel.close();
+                    result.errors.merge("server đóng kết nối", 1, Integer::sum);
+                    return false;
+                }
+                if (n == 0) {
+                    return true;
+                }
+                if (!c.loggedIn) {
+                    scratch.flip();
+                    c.pending.write(scratch);
+                    if (c.pending.sawLoginOk()) {
+                        c.loggedIn = true;
+                        result.latencies.add(System.nanoTime() - c.startedAt);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            result.errors.merge(e.getClass().getSimpleName() + ": " + e.getMessage(), 1, Integer::sum);
+            key.cancel();
+            try {
+                c.channel.close();
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+    }
+
+    // writeUTF: 2 byte độ dài + chuỗi (ASCII)
+    private static ByteBuffer frame(String message) {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(2 + body.length);
+        buf.putShort((short) body.length).put(body).flip();
+        return buf;
+    }
+
+    private static double pct(long[] sortedNanos, double q) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int i = (int) Math.ceil(q * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(i, sortedNanos.length - 1))] / 1e6;
+    }
+
+    private static final class Client {
+        final int index;
+        final FrameBuffer pending = new FrameBuffer();
+        SocketChannel channel;
+        long startedAt;
+        boolean loggedIn;
+
+        Client(int index) {
+            this.index = index;
+        }
+    }
+
+    // Ghép các frame đầu tiên tới khi thấy LOGIN_OK
+    private static final class FrameBuffer {
+        private ByteBuffer buf = ByteBuffer.allocate(4096);
+
+        void write(ByteBuffer src) {
+            if (buf.remaining() < src.remaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + src.remaining()));
+                buf.flip();
+                bigger.put(buf);
+                buf = bigger;
+            }
+            buf.put(src);
+        }
+
+        boolean sawLoginOk() {
+            buf.flip();
+            try {
+                while (buf.remaining() >= 2) {
+                    int len = buf.getShort(buf.position()) & 0xFFFF;
+                    if (buf.remaining() < 2 + len) {
+                        return false;
+                    }
+                    byte[] body = new byte[len];
+                    buf.position(buf.position() + 2);
+                    buf.get(body);
+                    if (new String(body, StandardCharsets.UTF_8).startsWith("LOGIN_OK")) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                buf.compact();
+            }
+        }
+    }
+
+    private static final class Result {
+        final List<Client> clients = new ArrayList<>();
+        final List<Long> latencies = new ArrayList<>();
+        final Map<String, Integer> errors = new TreeMap<>();
+        Selector selector;
+        int failed; // không tới được LOGIN_OK
+        int dropped; // bị ngắt trong lúc giữ kết nối
+
+        void closeAll() throws IOException {
+            for (Client c : clients) {
+                c.channel.close();
+            }
+            selector.close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package bench;
+
+import client.NetworkHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * LOBBY CHURN - SỐ MESSAGE SẢNH THEO -Dserver.lobby.coalesceMs
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * G nhóm × 3 client (client.NetworkHandler thật, transport NIO): người 1
+ * CREATE, 2 người còn lại JOIN rồi cả 3 LEAVE_ROOM, lặp trong S giây. Mỗi
+ * vòng đổi danh sách phòng và trạng thái người chơi → Server gọi
+ * broadcastPlayerList / broadcastRoomsList liên tục.
+ *
+ * Với mỗi giá trị coalesceMs (-Dchurn.coalesce, mặc định 0,50,100): chạy
+ * BenchServer mới, đếm số vòng churn, tổng message và message sảnh
+ * (PLAYER_LIST / ROOMS_LIST) client nhận được mỗi giây.
+ *
+ * Dùng: java -cp out bench.LobbyChurn [nhóm=10] [giây=10]
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class LobbyChurn {
+    private static final int PORT = Integer.getInteger("churn.port", 5601);
+    private static final long WARMUP_MS = 3000;
+
+    private LobbyChurn() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int groups = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String[] windows = System.getProperty("churn.coalesce", "0,50,100").split(",");
+
+        System.out.println(groups * 3 + " client, " + groups + " nhóm, " + seconds + " giây mỗi lần chạy");
+        System.out.printf("%-11s %8s %12s %12s%n", "coalesceMs", "vòng", "msg/s", "sảnh msg/s");
+        for (String window : windows) {
+            try (ServerProcess server = ServerProcess.start("churn-" + window.trim(), PORT,
+                    "-Dserver.transport=nio", "-Dserver.lobby.coalesceMs=" + window.trim())) {
+                Counts c = churn(server.port, groups, seconds);
+                System.out.printf("%-11s %8d %12.0f %12.0f%n", window.trim(), c.cycles.get(),
+                        c.received.get() / (double) seconds, c.lobby.get() / (double) seconds);
+            }
+        }
+        System.exit(0); // thread nghe của NetworkHandler không phải daemon
+    }
+
+    private static Counts churn(int port, int groups, int seconds) throws Exception {
+        Counts counts = new Counts();
+        long startAt = System.currentTimeMillis() + WARMUP_MS; // đăng nhập xong mới đếm
+        long endAt = startAt + seconds * 1000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            int group = g;
+            Thread t = new Thread(() -> {
+                try {
+                    runGroup(port, group, startAt, endAt, counts);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }, "churn-" + g);
+            t.start();
+            threads.add(t);
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        return counts;
+    }
+
+    private static void runGroup(int port, int group, long startAt, long endAt, Counts counts) throws Exception {
+        NetworkHandler[] h = new NetworkHandler[3];
+        BlockingQueue<String> created = new LinkedBlockingQueue<>();
+        for (int i = 0; i < 3; i++) {
+            h[i] = new NetworkHandler("localhost", port);
+            h[i].login("g" + group + "_" + i, "pw");
+            boolean host = i == 0;
+            h[i].startListening(msg -> {
+                if (System.currentTimeMillis() >= startAt) {
+                    counts.received.incrementAndGet();
+                    if (msg.startsWith("PLAYER_LIST|") || msg.startsWith("ROOMS_LIST|")) {
+                        counts.lobby.incrementAndGet();
+                    }
+                }
+                if (host && msg.startsWith("ROOM_CREATED;")) {
+                    created.add(msg.substring("ROOM_CREATED;".length()));
+                }
+            });
+        }
+        while (System.currentTimeMillis() < startAt) {
+            Thread.sleep(50);
+        }
+        while (System.currentTimeMillis() < endAt) {
+            h[0].sendMsg("CREATE");
+            String room = created.poll(2, TimeUnit.SECONDS);
+            if (room == null) {
+                continue;
+            }
+            h[1].sendMsg("JOIN;" + room);
+            h[2].sendMsg("JOIN;" + room);
+            Thread.sleep(20);
+            for (int i = 2; i >= 0; i--) {
+                h[i].sendMsg("LEAVE_ROOM;" + room);
+            }
+            Thread.sleep(20);
+            counts.cycles.incrementAndGet();
+        }
+        for (NetworkHandler n : h) {
+            n.close();
+        }
+    }
+
+    private static final class Counts {
+        final AtomicLong cycles = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong lobby = new AtomicLong();
+    }
+}
@@ -0,0 +1,122 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import server.core.ServerMetrics;
+import server.database.Database;
+import server.database.DatabaseConnection;
+import server.database.PlayerRepository;
+import server.handlers.AuthenticationHandler;
+import server.handlers.AuthenticationHandler.LoginResult;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * LOGIN CHECK - SỐ LƯỢT GỌI DATABASE MỖI LẦN ĐĂNG NHẬP
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * StubJdbc 5 ms mỗi lượt gọi (-Dbench.db.latencyMs).
+ * 1. Cách cũ (chép lại luồng AuthenticationHandler trước khi có db.login):
+ * authenticate → getPlayerId → createPlayer → getTotalPoints (→ getPlayerId)
+ * 2. AuthenticationHandler hiện tại: lần đầu (tạo tài khoản), đăng nhập lại,
+ * sai mật khẩu → chỉ lần đầu gọi database
+ * 3. 5.000 lần đăng nhập từ 64 thread, 50 username mới → đúng 1 lượt mỗi
+ * username, các lần trùng lúc đang chờ thì dùng chung kết quả (coalesced)
+ *
+ * Dùng: java -cp out bench.LoginCheck
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class LoginCheck {
+    private static final int USERS = 50;
+    private static final int LOGINS = 5000;
+    private static final int THREADS = 64;
+
+    private LoginCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        StubJdbc.latencyMs = Long.getLong("bench.db.latencyMs", 5);
+        StubJdbc.install();
+        Database db = new Database();
+        PlayerRepository legacyRepo = new PlayerRepository(new DatabaseConnection());
+        Thread.sleep(500); // pool mở đủ min
+        boolean ok = true;
+
+        // 1. Cách cũ: USERS tài khoản mới rồi đăng nhập lại từng người
+        for (boolean existing : new boolean[] { false, true }) {
+            int before = roundTrips();
+            long t0 = System.nanoTime();
+            for (int u = 0; u < USERS; u++) {
+                ok &= legacyLogin(legacyRepo, "old" + u, "pw");
+            }
+            System.out.printf("1. Cách cũ, %-18s %4.1f lượt, %5.1f ms mỗi lần đăng nhập%n",
+                    existing ? "đăng nhập lại:" : "tài khoản mới:", (roundTrips() - before) / (double) USERS,
+                    (System.nanoTime() - t0) / 1e6 / USERS);
+        }
+
+        // 2. Hiện tại: 1 người
+        AuthenticationHandler auth = new AuthenticationHandler(db);
+        int before = roundTrips();
+        boolean first = auth.handleLogin("alice", "pw").success;
+        int firstCalls = roundTrips() - before;
+        boolean again = auth.handleLogin("alice", "pw").success;
+        boolean wrong = auth.handleLogin("alice", "bad").success;
+        int laterCalls = roundTrips() - before - firstCalls;
+        boolean single = first && again && !wrong && firstCalls == 1 && laterCalls == 0;
+        System.out.printf("2. Hiện tại: lần đầu %d lượt; đăng nhập lại + sai mật khẩu %d lượt"
+                + " (sai mật khẩu bị từ chối: %s) → %s%n", firstCalls, laterCalls, !wrong, single ? "✅" : "❌");
+        ok &= single;
+
+        // 3. Nhiều thread, ít username
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<LoginResult>> logins = new ArrayList<>();
+        before = roundTrips();
+        long coalesced = ServerMetrics.count("login.coalesced");
+        long t0 = System.nanoTime();
+        for (int i = 0; i < LOGINS; i++) {
+            String user = "u" + i % USERS;
+            logins.add(pool.submit(() -> auth.handleLogin(user, "pw")));
+        }
+        int succeeded = 0;
+        for (Future<LoginResult> f : logins) {
+            succeeded += f.get().success ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - t0;
+        pool.shutdown();
+        int calls = roundTrips() - before;
+        boolean concurrent = succeeded == LOGINS && calls == USERS;
+        System.out.printf("3. %d lần đăng nhập, %d thread, %d username: %d lượt gọi database, %d lần dùng chung"
+                + " kết quả, %d thành công, %.0f ms → %s%n", LOGINS, THREADS, USERS, calls,
+                ServerMetrics.count("login.coalesced") - coalesced, succeeded, elapsed / 1e6,
+                concurrent ? "✅" : "❌");
+        ok &= concurrent;
+
+        System.out.println(ok ? "✅ OK" : "❌ LỖI");
+        System.exit(ok ? 0 : 1);
+    }
+
+    // AuthenticationHandler.handleLogin trước khi có db.login (không có cache)
+    private static boolean legacyLogin(PlayerRepository repo, String username, String password) {
+        boolean authenticated = repo.authenticate(username, password);
+        Integer playerId = null;
+        if (!authenticated && repo.getPlayerId(username) == null) {
+            playerId = repo.createPlayer(username, password);
+            authenticated = playerId != null;
+        }
+        if (!authenticated) {
+            return false;
+        }
+        repo.getTotalPoints(username);
+        if (playerId == null) {
+            playerId = repo.getPlayerId(username);
+        }
+        return playerId != null;
+    }
+
+    private static int roundTrips() {
+        return StubJdbc.queries.get() + StubJdbc.updates.get() + StubJdbc.batches.get() + StubJdbc.commits.get();
+    }
+}
@@ -0,0 +1,183 @@
+package bench;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import server.core.ServerMetrics;
+import server.database.Database;
+import server.database.DatabaseConnection;
+import server.database.MatchIdPool;
+import server.database.MatchRepository;
+import server.database.WriteBehindQueue;
+import server.models.Deck;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * MATCH ID POOL CHECK - MATCHID GIỮ TRƯỚC KHÔNG CHẶN THREAD CỦA PHÒNG
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * StubJdbc chờ -Dbench.db.latencyMs (mặc định 20) mỗi lần giữ 1 khối; pool
+ * tạo trước 500 ms (như lúc server khởi động).
+ * 1. Đều đặn: 200 lần next(), 2 ms/lần (phòng bắt đầu ván liên tục)
+ * 2. Dồn dập: 200 lần next() liền nhau → hàng đợi cạn, next() trả null
+ * Với cả 2: thời gian next() (không được chờ database), số lần null (gắn
+ * sau bằng nextBlocking như writer), MatchID không trùng, không bao giờ
+ * giữ 2 khối song song, đã giữ = đã dùng + còn trong hàng đợi.
+ * 3. Database.saveMatch(null, ...): writer tự gắn MatchID lúc ghi (UPDATE
+ * Matches và MatchResults cùng MatchID, không trùng)
+ * 4. Deck.shuffle(seed): thời gian xáo 52 lá (so với 1 lượt database)
+ *
+ * Dùng: java -cp out bench.MatchIdPoolCheck [khối=32]
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class MatchIdPoolCheck {
+    private static final int TAKES = 200;
+    private static final int SAVES = 50;
+
+    private MatchIdPoolCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int blockSize = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        StubJdbc.latencyMs = Long.getLong("bench.db.latencyMs", 20);
+        StubJdbc.install();
+
+        // Đếm số lần giữ khối và số lần giữ song song
+        AtomicInteger reservations = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        StubJdbc.Responder tables = StubJdbc.responder;
+        StubJdbc.responder = new StubJdbc.Responder() {
+            @Override
+            public List<Object[]> rows(String sql, Map<Integer, Object> params) {
+                if (!sql.contains("OUTPUT inserted.MatchID")) {
+                    return tables.rows(sql, params);
+                }
+                reservations.incrementAndGet();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    return tables.rows(sql, params);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+
+            @Override
+            public List<Object[]> update(String sql, Map<Integer, Object> params) {
+                return tables.update(sql, params);
+            }
+        };
+
+        System.out.println("Khối " + blockSize + ", " + StubJdbc.latencyMs + " ms mỗi lần giữ khối");
+        MatchIdPool pool = new MatchIdPool(new MatchRepository(new DatabaseConnection()), blockSize);
+        Thread.sleep(500); // như server: pool tạo lúc khởi động, trước ván đầu tiên
+        Set<Integer> used = new HashSet<>();
+        boolean ok = take("Đều đặn (2 ms/lần)", pool, 2, used);
+        ok &= take("Dồn dập (liền nhau)", pool, 0, used);
+        Thread.sleep(200); // prefetch cuối chạy xong
+        long reserved = ServerMetrics.count("db.matchIds.reserved");
+        long available = availableGauge();
+        long block = Math.min(blockSize, MatchIdPool.MAX_BLOCK_SIZE); // khối lớn hơn bị pool giới hạn
+        boolean balanced = reserved == reservations.get() * block && reserved == used.size() + available;
+        System.out.printf("Giữ khối: %d lần (song song tối đa %d), đã giữ %d = đã dùng %d + còn %d → %s%n",
+                reservations.get(), maxInFlight.get(), reserved, used.size(), available, balanced ? "✅" : "❌");
+        ok &= balanced && maxInFlight.get() == 1;
+
+        ok &= saveWithoutId(used);
+
+        for (int rep = 0; rep < 5; rep++) {
+            Deck deck = new Deck();
+            int rounds = 2_000_000;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                deck.shuffle(i);
+            }
+            long t1 = System.nanoTime();
+            System.out.printf("Deck.shuffle lần %d: %.0f ns (lá đầu %s)%n", rep + 1, (t1 - t0) / (double) rounds,
+                    deck.drawCard());
+        }
+        System.out.println(ok ? "✅ OK" : "❌ LỖI");
+        System.exit(ok ? 0 : 1);
+    }
+
+    // TAKES lần next() cách nhau pauseMs; null → nextBlocking (như writer)
+    private static boolean take(String label, MatchIdPool pool, long pauseMs, Set<Integer> used) throws Exception {
+        long[] nanos = new long[TAKES];
+        List<Integer> ids = new ArrayList<>();
+        int nulls = 0;
+        for (int i = 0; i < TAKES; i++) {
+            long t0 = System.nanoTime();
+            Integer id = pool.next();
+            nanos[i] = System.nanoTime() - t0;
+            if (id == null) {
+                nulls++;
+            } else {
+                ids.add(id);
+            }
+            if (pauseMs > 0) {
+                Thread.sleep(pauseMs);
+            }
+        }
+        int late = 0;
+        for (int i = 0; i < nulls; i++) {
+            Integer id = pool.nextBlocking();
+            if (id != null) {
+                ids.add(id);
+                late++;
+            }
+        }
+        Arrays.sort(nanos);
+        int before = used.size();
+        used.addAll(ids);
+        boolean unique = used.size() - before == ids.size();
+        boolean complete = ids.size() == TAKES;
+        System.out.printf("%-20s next(): p50 %.1f µs, p99 %.1f µs, max %.1f µs; null %d (nextBlocking gắn %d);"
+                + " MatchID không trùng: %s%n", label, nanos[TAKES / 2] / 1e3, nanos[TAKES * 99 / 100] / 1e3,
+                nanos[TAKES - 1] / 1e3, nulls, late, unique && complete ? "✅" : "❌");
+        return unique && complete && nanos[TAKES - 1] < StubJdbc.latencyMs * 1_000_000L;
+    }
+
+    // Database.saveMatch(null, ...) → writer gắn MatchID (UPDATE Matches = tham số 4, MatchResults = tham số 1)
+    private static boolean saveWithoutId(Set<Integer> used) throws Exception {
+        Map<Integer, Integer> matchRows = new ConcurrentHashMap<>();
+        Map<Integer, Integer> resultRows = new ConcurrentHashMap<>();
+        StubJdbc.onWrittenRow = (sql, row) -> {
+            if (sql.startsWith("UPDATE Matches")) {
+                matchRows.merge((Integer) row.get(4), 1, Integer::sum);
+            } else if (sql.startsWith("INSERT INTO MatchResults")) {
+                resultRows.merge((Integer) row.get(1), 1, Integer::sum);
+            }
+        };
+        Database db = new Database();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < SAVES; i++) {
+            db.saveMatch(null, 2, now, "a" + i, i * 2 + 1, List.of(
+                    new WriteBehindQueue.ResultRow("a" + i, i * 2 + 1, 1, 10, "Ba Tây", "A♠ K♠ Q♠"),
+                    new WriteBehindQueue.ResultRow("b" + i, i * 2 + 2, 2, 5, "Mậu Thầu", "2♥ 7♣ 9♦")));
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (matchRows.size() < SAVES && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        boolean ok = matchRows.size() == SAVES && !matchRows.containsKey(0)
+                && matchRows.values().stream().allMatch(n -> n == 1) && resultRows.keySet().equals(matchRows.keySet())
+                && resultRows.values().stream().allMatch(n -> n == 2)
+                && Collections.disjoint(used, matchRows.keySet());
+        System.out.printf("saveMatch(null) × %d: %d dòng Matches, %d MatchID, mỗi ván 2 dòng MatchResults"
+                + " cùng ID: %s%n",
+                SAVES, matchRows.values().stream().mapToInt(Integer::intValue).sum(), matchRows.size(),
+                ok ? "✅" : "❌");
+        return ok;
+    }
+
+    private static long availableGauge() {
+        for (String line : ServerMetrics.snapshot().split("\n")) {
+            String[] kv = line.trim().split(" = ");
+            if (kv[0].equals("db.matchIds.available")) {
+                return Long.parseLong(kv[1]);
+            }
+        }
+        return -1;
+    }
+}
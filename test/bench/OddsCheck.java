@@ -0,0 +1,139 @@
+package bench;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import server.game.HandEvaluator;
+import server.game.OddsService;
+import server.models.Card;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * ODDS CHECK - OddsService SO VỚI MÔ PHỎNG ĐỘC LẬP + THỜI GIAN
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * 1. Mỗi tay mẫu (0..3 lá, 1..5 đối thủ): OddsService.winProbability (lần
+ * đầu, chưa có cache) so với mô phỏng viết lại từ đầu: Collections.shuffle
+ * cả bộ bài còn lại, 100.000 lần. Đạt nếu lệch ≤ 4σ (σ gộp cả sai số
+ * Monte Carlo của OddsService, = 0 khi duyệt hết)
+ * 2. Tay giống nhau khi đổi chất (♠♥ ↔ ♦♣) → cùng khóa cache, cùng kết quả
+ * 3. Tay đã có trong cache: số lần hỏi mỗi giây trên thread main
+ * 4. Cả 1.326 tay 2 lá × 3 đối thủ, hỏi 1 lượt (cache trống → tính song song)
+ *
+ * Dùng: java -cp out bench.OddsCheck
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class OddsCheck {
+    private static final int REFERENCE_SAMPLES = 100_000;
+    private static final int SERVICE_SAMPLES = Integer.getInteger("server.odds.samples", 20_000);
+
+    private OddsCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        byte[][] hands = { { 12, 25 }, { 0, 1 }, { 12, 11, 10 }, { 3, 16, 29 }, { 5 }, {}, { 12, 25 }, { 0, 13, 40 } };
+        int[] opponents = { 1, 1, 1, 1, 1, 3, 2, 5 };
+        Random random = new Random(1);
+        boolean ok = true;
+        System.out.printf("%-12s %4s %9s %9s %7s %10s%n", "tay", "đối", "service", "tham chiếu", "lệch/σ", "lần đầu");
+        for (int i = 0; i < hands.length; i++) {
+            byte[] h = hands[i];
+            long t0 = System.nanoTime();
+            double p = OddsService.winProbability(h, h.length, opponents[i]).get();
+            long cold = System.nanoTime() - t0;
+            double ref = simulate(h, opponents[i], REFERENCE_SAMPLES, random);
+            boolean exact = opponents[i] == 1 && h.length >= 2;
+            double variance = ref * (1 - ref) * (1.0 / REFERENCE_SAMPLES + (exact ? 0 : 1.0 / SERVICE_SAMPLES));
+            double z = Math.abs(p - ref) / Math.sqrt(Math.max(variance, 1e-12));
+            ok &= z <= 4;
+            System.out.printf("%-12s %4d %9.4f %9.4f %7.2f %8.1f ms%s%n", text(h), opponents[i], p, ref, z, cold / 1e6,
+                    z <= 4 ? "" : " ❌");
+        }
+
+        // ♠ = 0..12, ♥ = 13..25 → đổi thành ♦ = 26..38, ♣ = 39..51
+        double a = OddsService.winProbability(new byte[] { 1, 13 }, 2, 2).get();
+        double b = OddsService.winProbability(new byte[] { 40, 26 }, 2, 2).get();
+        System.out.printf("Đổi chất: %s %.4f / %s %.4f → %s%n", text(new byte[] { 1, 13 }), a,
+                text(new byte[] { 40, 26 }), b, a == b ? "✅" : "❌");
+        ok &= a == b;
+
+        byte[] warm = { 12, 25 };
+        int queries = 2_000_000;
+        for (int rep = 0; rep < 3; rep++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                OddsService.winProbability(warm, 2, 2).join();
+            }
+            System.out.printf("Có cache lần %d: %.1f triệu lần hỏi/s%n", rep + 1,
+                    queries / ((System.nanoTime() - t0) / 1e9) / 1e6);
+        }
+
+        long t0 = System.nanoTime();
+        List<CompletableFuture<Double>> all = new ArrayList<>();
+        for (int x = 0; x < Card.COUNT; x++) {
+            for (int y = x + 1; y < Card.COUNT; y++) {
+                all.add(OddsService.winProbability(new byte[] { (byte) x, (byte) y }, 2, 3));
+            }
+        }
+        for (CompletableFuture<Double> f : all) {
+            f.join();
+        }
+        System.out.printf("%d tay 2 lá × 3 đối thủ: %.0f ms%n", all.size(), (System.nanoTime() - t0) / 1e6);
+        System.out.println(ok ? "✅ OK" : "❌ LỖI");
+        System.exit(ok ? 0 : 1);
+    }
+
+    // Tham chiếu: xáo cả bộ còn lại bằng Collections.shuffle, chia cho mình rồi cho từng đối thủ
+    private static double simulate(byte[] hand, int opponents, int samples, Random random) {
+        boolean[] known = new boolean[Card.COUNT];
+        for (byte c : hand) {
+            known[c] = true;
+        }
+        List<Integer> deck = new ArrayList<>();
+        for (int c = 0; c < Card.COUNT; c++) {
+            if (!known[c]) {
+                deck.add(c);
+            }
+        }
+        double wins = 0;
+        byte[] mine = Arrays.copyOf(hand, 3);
+        byte[] other = new byte[3];
+        for (int s = 0; s < samples; s++) {
+            Collections.shuffle(deck, random);
+            int d = 0;
+            for (int i = hand.length; i < 3; i++) {
+                mine[i] = (byte) (int) deck.get(d++);
+            }
+            int my = HandEvaluator.strength(mine, 3);
+            int best = 0;
+            int ties = 0;
+            for (int o = 0; o < opponents; o++) {
+                for (int i = 0; i < 3; i++) {
+                    other[i] = (byte) (int) deck.get(d++);
+                }
+                int st = HandEvaluator.strength(other, 3);
+                if (st > best) {
+                    best = st;
+                    ties = 0;
+                }
+                if (st == best) {
+                    ties++;
+                }
+            }
+            if (my > best) {
+                wins++;
+            } else if (my == best) {
+                wins += 1.0 / (ties + 1);
+            }
+        }
+        return wins / samples;
+    }
+
+    private static String text(byte[] hand) {
+        StringBuilder sb = new StringBuilder(hand.length == 0 ? "-" : "");
+        for (byte c : hand) {
+            sb.append(sb.length() > 0 ? " " : "").append(Card.of(c));
+        }
+        return sb.toString();
+    }
+}
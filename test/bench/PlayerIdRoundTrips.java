@@ -0,0 +1,160 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import server.core.ServerMetrics;
+import server.database.Account;
+import server.database.Database;
+import server.database.DatabaseConnection;
+import server.database.MatchRepository;
+import server.database.PlayerRepository;
+import server.database.WriteBehindQueue;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * PLAYER ID ROUND TRIPS - SỐ LƯỢT GỌI DATABASE ĐỂ GHI 1 VÁN 4 NGƯỜI
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * StubJdbc 1 ms mỗi lượt gọi, 300 người chơi đã đăng nhập. So 4 cách ghi
+ * kết quả ván (4 dòng MatchResults + 4 lần cộng điểm):
+ * 1. Đồng bộ như trước write-behind: mỗi người getPlayerId + updateTotalPoints,
+ * getPlayerId + insertMatchResult, thêm INSERT Matches và endMatch (4N+2)
+ * ngay trên thread của phòng
+ * 2. Write-behind, sự kiện chỉ có username, cache PlayerID trống (Database
+ * khác, chưa ai đăng nhập) → writer tra IN (...) mỗi lô
+ * 3. Write-behind, chỉ có username, cache đã có (sau đăng nhập)
+ * 4. Write-behind, PlayerID của phiên đăng nhập đi kèm sự kiện (hiện tại)
+ * Đếm: lượt gọi trên thread của phòng (thread main), lượt gọi của thread
+ * khác (writer), số câu tra PlayerID, lượt hỏi cache PlayerID.
+ *
+ * Dùng: java -cp out bench.PlayerIdRoundTrips [ván=2000]
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class PlayerIdRoundTrips {
+    private static final int USERS = 300;
+    private static final int LEGACY_MATCHES = 200; // 4N+2 lượt × 1 ms → chỉ chạy ít ván
+
+    private static final AtomicInteger idQueries = new AtomicInteger();
+    private static final Map<String, Integer> sessionIds = new HashMap<>();
+    private static int nextMatchId = 1;
+    private static boolean roomThreadWaits; // write-behind mà thread của phòng vẫn gọi database
+
+    private PlayerIdRoundTrips() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        StubJdbc.latencyMs = Long.getLong("bench.db.latencyMs", 1);
+        StubJdbc.install();
+        StubJdbc.Responder tables = StubJdbc.responder;
+        StubJdbc.responder = new StubJdbc.Responder() {
+            @Override
+            public List<Object[]> rows(String sql, Map<Integer, Object> params) {
+                if (sql.startsWith("SELECT PlayerID FROM") || sql.startsWith("SELECT Username, PlayerID FROM")) {
+                    idQueries.incrementAndGet();
+                }
+                return tables.rows(sql, params);
+            }
+
+            @Override
+            public List<Object[]> update(String sql, Map<Integer, Object> params) {
+                return tables.update(sql, params);
+            }
+        };
+
+        Database db = new Database();
+        for (int u = 0; u < USERS; u++) {
+            Account account = db.login("u" + u, "hash");
+            sessionIds.put("u" + u, account.playerId);
+        }
+        Database coldDb = new Database(); // cache PlayerID riêng, trống
+        DatabaseConnection legacyConnection = new DatabaseConnection();
+        Thread.sleep(500); // pool mở đủ min, MatchIdPool giữ khối đầu
+        boolean ok = true;
+
+        System.out.printf("%-40s %6s %12s %12s %10s %10s%n", "Cách ghi", "ván", "phòng/ván", "writer/ván",
+                "tra ID", "cache hit");
+        ok &= legacy(new PlayerRepository(legacyConnection), new MatchRepository(legacyConnection));
+        ok &= writeBehind("2. Write-behind, username, cache trống", coldDb, matches, false) > 0;
+        writeBehind("3. Write-behind, username, cache đã có", db, matches, false);
+        ok &= writeBehind("4. Write-behind, PlayerID của phiên", db, matches, true) == 0;
+        ok &= !roomThreadWaits;
+        System.out.println(ok ? "✅ OK" : "❌ LỖI");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static boolean legacy(PlayerRepository players, MatchRepository matchRepo) {
+        int before = StubJdbc.roundTripsOnThisThread();
+        int ids = idQueries.get();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < LEGACY_MATCHES; i++) {
+            long startedAt = System.currentTimeMillis();
+            int matchId = matchRepo.reserveMatchIds(1).get(0); // thay cho INSERT Matches lúc bắt đầu ván
+            int[] deltas = { 5, 2, 1, -1 };
+            Integer winnerId = null;
+            for (int k = 0; k < 4; k++) {
+                String user = user(i, k);
+                Integer pid = players.getPlayerId(user);
+                players.updateTotalPoints(pid, deltas[k]);
+                pid = players.getPlayerId(user);
+                matchRepo.insertMatchResult(matchId, pid, k + 1, deltas[k], "HighCard", "A♠ 2♥ 3♦");
+                winnerId = k == 0 ? pid : winnerId;
+            }
+            matchRepo.endMatch(matchId, 4, startedAt, winnerId);
+        }
+        long elapsed = System.nanoTime() - t0;
+        int calls = StubJdbc.roundTripsOnThisThread() - before;
+        System.out.printf("%-40s %6d %8.1f lượt %12s %10d %10s   (%.1f ms/ván trên thread của phòng)%n",
+                "1. Đồng bộ (trước write-behind)", LEGACY_MATCHES,
+                calls / (double) LEGACY_MATCHES, "-", idQueries.get() - ids, "-", elapsed / 1e6 / LEGACY_MATCHES);
+        return calls == LEGACY_MATCHES * (4 * 4 + 2);
+    }
+
+    // Trả về số câu tra PlayerID của writer
+    private static int writeBehind(String label, Database db, int matches, boolean withIds) throws Exception {
+        long events = ServerMetrics.count("db.writer.events") + matches * 5L;
+        int ids = idQueries.get();
+        long hits = ServerMetrics.count("db.playerIds.hits");
+        long flushes = ServerMetrics.count("db.writer.flushes");
+        int before = roundTrips();
+        int beforeHere = StubJdbc.roundTripsOnThisThread();
+        long t0 = System.nanoTime();
+        int[] deltas = { 5, 2, 1, -1 };
+        for (int i = 0; i < matches; i++) {
+            List<WriteBehindQueue.ResultRow> rows = new ArrayList<>();
+            for (int k = 0; k < 4; k++) {
+                String user = user(i, k);
+                Integer pid = withIds ? sessionIds.get(user) : null;
+                rows.add(new WriteBehindQueue.ResultRow(user, pid, k + 1, deltas[k], "HighCard", "A♠ 2♥ 3♦"));
+                db.addPoints(user, pid, deltas[k]);
+            }
+            db.saveMatch(nextMatchId++, 4, System.currentTimeMillis(), rows.get(0).username,
+                    rows.get(0).playerId, rows);
+        }
+        long enqueue = System.nanoTime() - t0;
+        int onRoomThread = StubJdbc.roundTripsOnThisThread() - beforeHere;
+        roomThreadWaits |= onRoomThread != 0;
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (ServerMetrics.count("db.writer.events") < events && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        int lookups = idQueries.get() - ids;
+        System.out.printf("%-40s %6d %8.1f lượt %7.3f lượt %10d %10d   (%.1f µs/ván trên thread của phòng, %d lô)%n",
+                label, matches, onRoomThread / (double) matches, (roundTrips() - before - onRoomThread)
+                        / (double) matches, lookups, ServerMetrics.count("db.playerIds.hits") - hits,
+                enqueue / 1e3 / matches, ServerMetrics.count("db.writer.flushes") - flushes);
+        return lookups;
+    }
+
+    private static String user(int match, int seat) {
+        return "u" + (match * 4 + seat) % USERS;
+    }
+
+    private static int roundTrips() {
+        return StubJdbc.queries.get() + StubJdbc.updates.get() + StubJdbc.batches.get() + StubJdbc.commits.get();
+    }
+}
@@ -0,0 +1,134 @@
+package bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import server.core.ServerMetrics;
+import server.database.Database;
+import server.database.DatabaseConnection;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * POOL CHECK - POOL KẾT NỐI + CACHE STATEMENT DƯỚI TẢI
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * StubJdbc (1 ms mỗi lượt gọi), pool mặc định (min 2, max 10):
+ * 1. Tải: 32 thread × 200 vòng × (getPlayerId, insertMatchResult,
+ * getMatchDetail) qua Database → số kết nối vật lý, số lần prepare
+ * 2. Kết nối hỏng: query ném SQLState 08S01 → kết nối bị bỏ, lần sau vẫn chạy
+ * 3. Trả về khi còn transaction (setAutoCommit(false) rồi close) → rollback,
+ * người mượn sau nhận đúng kết nối đó với autoCommit = true; statement trả
+ * về cache khi còn batch → lần prepare sau không còn dòng cũ
+ * 4. Rò rỉ: giữ 1 kết nối không trả → db.pool.leaks sau leakMs (mặc định ở
+ * đây 1000, -Dserver.db.pool.leakMs) + lần quét kế tiếp (5 giây/lần)
+ *
+ * Dùng: java -cp out bench.PoolCheck
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class PoolCheck {
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 200;
+
+    private PoolCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("server.db.pool.leakMs") == null) {
+            System.setProperty("server.db.pool.leakMs", "1000"); // trước khi ServerConfig được nạp
+        }
+        StubJdbc.latencyMs = 1;
+        StubJdbc.install();
+        boolean ok = true;
+
+        Database db = new Database();
+        Thread.sleep(300); // db-pool-maintenance mở đủ min
+        int opened = StubJdbc.opened.get();
+        int prepares = StubJdbc.prepares.get();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tasks = new ArrayList<>();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(pool.submit(() -> {
+                for (int j = 0; j < ROUNDS; j++) {
+                    db.getPlayerId("u" + j); // chưa có trong Players → không vào cache, lần nào cũng hỏi
+                    db.insertMatchResult(1, 2, 3, 4, "HighCard", "A♠ 2♥ 3♦");
+                    db.getMatchDetail(5);
+                }
+            }));
+        }
+        for (Future<?> f : tasks) {
+            f.get();
+        }
+        pool.shutdown();
+        int calls = THREADS * ROUNDS * 3;
+        System.out.printf("Tải: %d lần gọi trong %d ms; kết nối mở thêm %d, prepare %d, chờ kết nối quá hạn %d%n",
+                calls, (System.nanoTime() - t0) / 1_000_000, StubJdbc.opened.get() - opened,
+                StubJdbc.prepares.get() - prepares, ServerMetrics.count("db.pool.timeouts"));
+        ok &= StubJdbc.opened.get() <= 10 && ServerMetrics.count("db.pool.timeouts") == 0;
+
+        // Kết nối hỏng
+        long discarded = ServerMetrics.count("db.pool.discarded");
+        opened = StubJdbc.opened.get();
+        StubJdbc.failNextQuery.set(new SQLException("Connection reset", "08S01"));
+        db.getPlayerId("z");
+        boolean dropped = ServerMetrics.count("db.pool.discarded") == discarded + 1;
+        int queries = StubJdbc.queries.get();
+        long discardedAfter = ServerMetrics.count("db.pool.discarded");
+        db.getPlayerId("z");
+        dropped &= StubJdbc.queries.get() == queries + 1 && ServerMetrics.count("db.pool.discarded") == discardedAfter;
+        System.out.printf("Kết nối hỏng (08S01): bị bỏ %s, lần sau vẫn chạy (mở mới %d) → %s%n", dropped,
+                StubJdbc.opened.get() - opened, dropped ? "✅" : "❌");
+        ok &= dropped;
+
+        // Reset khi trả về pool: pool riêng, kết nối trả gần nhất được mượn lại trước (LIFO)
+        DatabaseConnection dc = new DatabaseConnection();
+        Thread.sleep(300);
+        long rollbacks = ServerMetrics.count("db.pool.rollbacks");
+        int stubRollbacks = StubJdbc.rollbacks.get();
+        opened = StubJdbc.opened.get();
+        String sql = "INSERT INTO MatchResults(MatchID, PlayerID, RankPosition, Score, HandType, Cards) "
+                + "VALUES(?,?,?,?,?,?)";
+        try (Connection con = dc.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setInt(1, 1);
+                ps.addBatch(); // không executeBatch, không commit
+            }
+        }
+        boolean autoCommit;
+        int leftover;
+        try (Connection con = dc.getConnection(); PreparedStatement ps = con.prepareStatement(sql)) {
+            autoCommit = con.getAutoCommit();
+            leftover = ps.executeBatch().length;
+        }
+        boolean reset = ServerMetrics.count("db.pool.rollbacks") == rollbacks + 1
+                && StubJdbc.rollbacks.get() == stubRollbacks + 1 && autoCommit && leftover == 0
+                && StubJdbc.opened.get() == opened;
+        System.out.printf("Trả về khi còn transaction: rollback %d, autoCommit sau đó %s, batch còn sót %d → %s%n",
+                ServerMetrics.count("db.pool.rollbacks") - rollbacks, autoCommit, leftover, reset ? "✅" : "❌");
+        ok &= reset;
+
+        // Rò rỉ
+        Connection held = dc.getConnection();
+        long deadline = System.currentTimeMillis() + 12_000;
+        while (ServerMetrics.count("db.pool.leaks") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        boolean leak = ServerMetrics.count("db.pool.leaks") == 1;
+        System.out.println("Rò rỉ: db.pool.leaks = " + ServerMetrics.count("db.pool.leaks") + " → "
+                + (leak ? "✅" : "❌"));
+        ok &= leak;
+        held.close();
+
+        System.out.println("Statement cache: hits " + ServerMetrics.count("db.stmtCache.hits") + ", misses "
+                + ServerMetrics.count("db.stmtCache.misses") + "; " + StubJdbc.counters());
+        System.out.println(ok ? "✅ OK" : "❌ LỖI");
+        System.exit(ok ? 0 : 1);
+    }
+}
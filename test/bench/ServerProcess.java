@@ -0,0 +1,99 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * SERVER PROCESS - CHẠY BENCHSERVER Ở PROCESS RIÊNG
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * ServerConfig đọc -Dserver.* 1 lần lúc nạp class → mỗi cấu hình cần so
+ * sánh chạy 1 process mới (cùng JDK, cùng classpath với bench đang chạy).
+ * stdout/stderr của server ghi vào <tmpdir>/bench-server-<tên>.log.
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+final class ServerProcess implements AutoCloseable {
+    private final Process process;
+    final int port;
+
+    private ServerProcess(Process process, int port) {
+        this.process = process;
+        this.port = port;
+    }
+
+    /**
+     * Chạy BenchServer trên port, chờ tới khi nhận kết nối
+     *
+     * @param name    tên dùng cho file log
+     * @param options các -D thêm cho server (vd: -Dserver.transport=nio)
+     */
+    static ServerProcess start(String name, int port, String... options) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add("-Dserver.port=" + port);
+        cmd.add("-Dserver.metrics.intervalSec=0");
+        for (String option : options) {
+            cmd.add(option);
+        }
+        cmd.add("bench.BenchServer");
+        File log = new File(System.getProperty("java.io.tmpdir"), "bench-server-" + name + ".log");
+        ServerProcess server = new ServerProcess(
+                new ProcessBuilder(cmd).redirectErrorStream(true).redirectOutput(log).start(), port);
+        server.waitForPort();
+        return server;
+    }
+
+    /**
+     * {Threads, VmRSS kB, VmHWM kB} của process server (đọc /proc, chỉ Linux)
+     */
+    long[] procStatus() throws IOException {
+        long[] values = new long[3];
+        for (String line : Files.readAllLines(Paths.get("/proc/" + process.pid() + "/status"))) {
+            String[] f = line.split("\\s+");
+            if (line.startsWith("Threads:")) {
+                values[0] = Long.parseLong(f[1]);
+            } else if (line.startsWith("VmRSS:")) {
+                values[1] = Long.parseLong(f[1]);
+            } else if (line.startsWith("VmHWM:")) {
+                values[2] = Long.parseLong(f[1]);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void waitForPort() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("BenchServer dừng lúc khởi động, xem log trong java.io.tmpdir");
+            }
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(200);
+            }
+        }
+        process.destroy();
+        throw new IllegalStateException("BenchServer không mở cổng " + port);
+    }
+}
@@ -0,0 +1,396 @@
+package bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * STUB JDBC - DRIVER GIẢ CHO BENCH (KHÔNG CẦN SQL SERVER)
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * install() gỡ mọi driver đã đăng ký (kể cả mssql-jdbc) rồi đăng ký 1 driver
+ * dựng bằng java.lang.reflect.Proxy → Database, DatabaseConnection,
+ * PooledConnection, WriteBehindQueue chạy nguyên code thật (pool, cache
+ * statement, transaction, batch) trên kết nối giả.
+ *
+ * - Mỗi executeQuery / executeUpdate / executeBatch / commit chờ latencyMs
+ * (giả lập 1 lượt đi về tới database)
+ * - Kết quả SELECT do responder trả về; mặc định Tables: bảng Players,
+ * Matches, Cards tối thiểu trong RAM, đủ cho đăng nhập và giữ MatchID
+ * - failNextQuery / failNextCommit: lần gọi kế tiếp ném lỗi cho trước;
+ * rejectRow: executeBatch ném lỗi ràng buộc (23000) nếu có dòng khớp;
+ * onWrittenRow: từng dòng executeBatch đã ghi (trong transaction: lúc commit,
+ * rollback thì bỏ)
+ * - Đếm: kết nối mở/đóng, prepare, query, update, batch, commit, rollback;
+ * roundTripsOnThisThread: số lượt đi về do thread đang chạy gọi
+ *
+ * Phương thức không giả lập trả giá trị mặc định (0 / false / null).
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class StubJdbc {
+    private static final ClassLoader LOADER = StubJdbc.class.getClassLoader();
+
+    /**
+     * Trả lời 1 câu SELECT: mỗi dòng là mảng giá trị theo thứ tự cột (cột 1 =
+     * phần tử 0). update(): executeUpdate, trả về getGeneratedKeys.
+     */
+    public interface Responder {
+        List<Object[]> rows(String sql, Map<Integer, Object> params);
+
+        default List<Object[]> update(String sql, Map<Integer, Object> params) {
+            return Collections.emptyList();
+        }
+    }
+
+    public static final AtomicInteger opened = new AtomicInteger();
+    public static final AtomicInteger closed = new AtomicInteger();
+    public static final AtomicInteger prepares = new AtomicInteger();
+    public static final AtomicInteger queries = new AtomicInteger();
+    public static final AtomicInteger updates = new AtomicInteger();
+    public static final AtomicInteger batches = new AtomicInteger();
+    public static final AtomicInteger batchRows = new AtomicInteger();
+    public static final AtomicInteger commits = new AtomicInteger();
+    public static final AtomicInteger rollbacks = new AtomicInteger();
+    private static final ThreadLocal<int[]> threadRoundTrips = ThreadLocal.withInitial(() -> new int[1]);
+
+    public static volatile long latencyMs = 1;
+    public static volatile Responder responder = new Tables();
+    public static final AtomicReference<SQLException> failNextQuery = new AtomicReference<>();
+    public static final AtomicReference<SQLException> failNextCommit = new AtomicReference<>();
+    public static volatile Predicate<Map<Integer, Object>> rejectRow = row -> false;
+    public static volatile BiConsumer<String, Map<Integer, Object>> onWrittenRow = (sql, row) -> {
+    };
+
+    private StubJdbc() {
+    }
+
+    /**
+     * Thay mọi driver JDBC bằng driver giả (gọi trước new Database())
+     */
+    public static void install() {
+        try {
+            Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver"); // nạp trước để gỡ luôn
+        } catch (ClassNotFoundException e) {
+        }
+        try {
+            for (Driver d : Collections.list(DriverManager.getDrivers())) {
+                DriverManager.deregisterDriver(d);
+            }
+            DriverManager.registerDriver((Driver) proxy(Driver.class, (p, m, a) -> {
+                switch (m.getName()) {
+                    case "connect":
+                        return connection();
+                    case "acceptsURL":
+                        return true;
+                    default:
+                        return defaultValue(m);
+                }
+            }));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Các bộ đếm (để in kết quả bench)
+     */
+    public static String counters() {
+        return "opened=" + opened + " closed=" + closed + " prepares=" + prepares + " queries=" + queries
+                + " updates=" + updates + " batches=" + batches + " batchRows=" + batchRows + " commits=" + commits
+                + " rollbacks=" + rollbacks;
+    }
+
+    /**
+     * Số lượt đi về (query, update, batch, commit) thread hiện tại đã gọi
+     */
+    public static int roundTripsOnThisThread() {
+        return threadRoundTrips.get()[0];
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // PROXY
+    // ═══════════════════════════════════════════════════════════════
+
+    private static Connection connection() {
+        opened.incrementAndGet();
+        boolean[] state = { true, false }; // autoCommit, closed
+        List<Object[]> uncommitted = new ArrayList<>(); // {sql, dòng} đã executeBatch, chờ commit
+        return (Connection) proxy(Connection.class, (p, m, a) -> {
+            switch (m.getName()) {
+                case "prepareStatement":
+                    prepares.incrementAndGet();
+                    return statement(PreparedStatement.class, (String) a[0], state, uncommitted);
+                case "createStatement":
+                    return statement(Statement.class, null, state, uncommitted);
+                case "getAutoCommit":
+                    return state[0];
+                case "setAutoCommit":
+                    if ((Boolean) a[0] && !state[0]) {
+                        written(uncommitted); // bật lại autoCommit → commit phần đang dở
+                    }
+                    state[0] = (Boolean) a[0];
+                    return null;
+                case "commit":
+                    pause();
+                    throwIfSet(failNextCommit);
+                    commits.incrementAndGet();
+                    written(uncommitted);
+                    return null;
+                case "rollback":
+                    rollbacks.incrementAndGet();
+                    uncommitted.clear();
+                    return null;
+                case "isValid":
+                    return !state[1];
+                case "isClosed":
+                    return state[1];
+                case "close":
+                    if (!state[1]) {
+                        state[1] = true;
+                        closed.incrementAndGet();
+                    }
+                    return null;
+                default:
+                    return defaultValue(m);
+            }
+        });
+    }
+
+    private static Object statement(Class<? extends Statement> type, String preparedSql, boolean[] connectionState,
+            List<Object[]> uncommitted) {
+        Map<Integer, Object> params = new HashMap<>();
+        List<Map<Integer, Object>> batch = new ArrayList<>();
+        List<List<Object[]>> generatedKeys = new ArrayList<>(Collections.singletonList(Collections.emptyList()));
+        return proxy(type, (p, m, a) -> {
+            String name = m.getName();
+            if (name.startsWith("set") && a != null && a.length >= 2 && a[0] instanceof Integer) {
+                params.put((Integer) a[0], a[1]);
+                return null;
+            }
+            switch (name) {
+                case "clearParameters":
+                    params.clear();
+                    return null;
+                case "addBatch":
+                    batchRows.incrementAndGet();
+                    batch.add(new HashMap<>(params));
+                    return null;
+                case "clearBatch":
+                    batch.clear();
+                    return null;
+                case "executeBatch": {
+                    batches.incrementAndGet();
+                    pause();
+                    int n = batch.size();
+                    boolean reject = batch.stream().anyMatch(rejectRow);
+                    List<Object[]> rows = new ArrayList<>();
+                    for (Map<Integer, Object> row : batch) {
+                        rows.add(new Object[] { preparedSql, row });
+                    }
+                    batch.clear();
+                    if (reject) {
+                        throw new SQLException("The INSERT statement conflicted with the CHECK constraint", "23000",
+                                547);
+                    }
+                    uncommitted.addAll(rows);
+                    if (connectionState[0]) {
+                        written(uncommitted);
+                    }
+                    return new int[n];
+                }
+                case "executeQuery": {
+                    queries.incrementAndGet();
+                    pause();
+                    throwIfSet(failNextQuery);
+                    String sql = preparedSql != null ? preparedSql : (String) a[0];
+                    return resultSet(responder.rows(sql, new HashMap<>(params)));
+                }
+                case "executeUpdate": {
+                    updates.incrementAndGet();
+                    pause();
+                    String sql = preparedSql != null ? preparedSql : (String) a[0];
+                    generatedKeys.set(0, responder.update(sql, new HashMap<>(params)));
+                    return 1;
+                }
+                case "getGeneratedKeys":
+                    return resultSet(generatedKeys.get(0));
+                default:
+                    return defaultValue(m);
+            }
+        });
+    }
+
+    private static ResultSet resultSet(List<Object[]> rows) {
+        Iterator<Object[]> it = rows.iterator();
+        Object[][] current = { null };
+        return (ResultSet) proxy(ResultSet.class, (p, m, a) -> {
+            switch (m.getName()) {
+                case "next":
+                    current[0] = it.hasNext() ? it.next() : null;
+                    return current[0] != null;
+                case "getInt":
+                case "getString":
+                case "getBoolean":
+                case "getTimestamp":
+                case "getLong":
+                    if (current[0] != null && a[0] instanceof Integer && (Integer) a[0] <= current[0].length) {
+                        Object v = current[0][(Integer) a[0] - 1];
+                        if (v != null) {
+                            return v;
+                        }
+                    }
+                    return defaultValue(m);
+                default:
+                    return defaultValue(m);
+            }
+        });
+    }
+
+    private static Object proxy(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(LOADER, new Class<?>[] { type }, (p, m, a) -> {
+            if (m.getDeclaringClass() == Object.class) {
+                switch (m.getName()) {
+                    case "equals":
+                        return p == a[0];
+                    case "hashCode":
+                        return System.identityHashCode(p);
+                    default:
+                        return type.getSimpleName() + "@stub";
+                }
+            }
+            try {
+                return handler.invoke(p, m, a);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private static Object defaultValue(Method m) {
+        Class<?> r = m.getReturnType();
+        if (r == boolean.class) {
+            return false;
+        }
+        if (r == int.class) {
+            return 0;
+        }
+        if (r == long.class) {
+            return 0L;
+        }
+        if (r == double.class) {
+            return 0.0;
+        }
+        if (r == float.class) {
+            return 0f;
+        }
+        if (r == short.class) {
+            return (short) 0;
+        }
+        if (r == byte.class) {
+            return (byte) 0;
+        }
+        return null;
+    }
+
+    private static void pause() throws InterruptedException {
+        threadRoundTrips.get()[0]++;
+        if (latencyMs > 0) {
+            Thread.sleep(latencyMs);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void written(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            onWrittenRow.accept((String) row[0], (Map<Integer, Object>) row[1]);
+        }
+        rows.clear();
+    }
+
+    private static void throwIfSet(AtomicReference<SQLException> failure) throws SQLException {
+        SQLException e = failure.getAndSet(null);
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // BẢNG TRONG RAM (RESPONDER MẶC ĐỊNH)
+    // ═══════════════════════════════════════════════════════════════
+
+    /**
+     * Players (đăng nhập / tạo tài khoản, tra PlayerID), Matches (giữ trước
+     * MatchID), Cards (đã seed đủ 52 lá). Gồm cả các câu đăng nhập cũ
+     * (authenticate / createPlayer) để đo được code trước khi tối ưu.
+     */
+    public static final class Tables implements Responder {
+        private final Map<String, Object[]> players = new ConcurrentHashMap<>(); // username → {id, hash}
+        private final AtomicInteger playerSeq = new AtomicInteger();
+        private final AtomicInteger matchSeq = new AtomicInteger();
+
+        @Override
+        public List<Object[]> rows(String sql, Map<Integer, Object> params) {
+            if (sql.startsWith("SET NOCOUNT ON") && sql.contains("SELECT PlayerID, PasswordHash")) {
+                // PlayerRepository.loginOrCreate: (username, username, hash, username)
+                String username = (String) params.get(1);
+                boolean[] created = { false };
+                Object[] row = players.computeIfAbsent(username, u -> {
+                    created[0] = true;
+                    return new Object[] { playerSeq.incrementAndGet(), params.get(3) };
+                });
+                return Collections.singletonList(new Object[] { row[0], row[1], 0, created[0] });
+            }
+            if (sql.startsWith("SELECT 1 FROM Players WHERE Username = ? AND PasswordHash = ?")) {
+                Object[] row = players.get((String) params.get(1));
+                return row != null && row[1].equals(params.get(2)) ? Collections.singletonList(new Object[] { 1 })
+                        : Collections.emptyList();
+            }
+            if (sql.startsWith("SELECT PlayerID FROM Players WHERE Username")) {
+                Object[] row = players.get((String) params.get(1));
+                return row == null ? Collections.emptyList() : Collections.singletonList(new Object[] { row[0] });
+            }
+            if (sql.startsWith("SELECT Username, PlayerID FROM Players WHERE Username IN")) {
+                List<Object[]> rows = new ArrayList<>();
+                for (Object name : new LinkedHashSet<>(params.values())) {
+                    Object[] row = players.get((String) name);
+                    if (row != null) {
+                        rows.add(new Object[] { name, row[0] });
+                    }
+                }
+                return rows;
+            }
+            if (sql.contains("OUTPUT inserted.MatchID")) {
+                int count = sql.split("\\(0\\)", -1).length - 1;
+                List<Object[]> rows = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    rows.add(new Object[] { matchSeq.incrementAndGet() });
+                }
+                return rows;
+            }
+            if (sql.startsWith("SELECT COUNT(*) FROM Cards")) {
+                return Collections.singletonList(new Object[] { 52 });
+            }
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Object[]> update(String sql, Map<Integer, Object> params) {
+            if (sql.startsWith("INSERT INTO Players(Username, PasswordHash")) {
+                int id = playerSeq.incrementAndGet();
+                Object[] existing = players.putIfAbsent((String) params.get(1), new Object[] { id, params.get(2) });
+                return existing == null ? Collections.singletonList(new Object[] { id }) : Collections.emptyList();
+            }
+            return Collections.emptyList();
+        }
+    }
+}
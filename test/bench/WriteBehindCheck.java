@@ -0,0 +1,148 @@
+package bench;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import server.core.ServerMetrics;
+import server.database.Database;
+import server.database.WriteBehindQueue;
+
+/**
+ * ═══════════════════════════════════════════════════════════════════════════
+ * WRITE BEHIND CHECK - GHI KẾT QUẢ VÁN Ở NỀN: THỬ LẠI, DEAD LETTER, BÁO TỒN ĐỌNG
+ * ═══════════════════════════════════════════════════════════════════════════
+ *
+ * StubJdbc 2 ms mỗi lượt gọi (-Dbench.db.latencyMs), 300 người chơi đã đăng
+ * nhập. Chỉ đếm dòng đã commit (StubJdbc.onWrittenRow), lô bị rollback
+ * không tính.
+ * 1. 2.000 ván (4 người, 4 dòng MatchResults) + 8.000 lần cộng điểm; commit
+ * đầu tiên lỗi deadlock (40001) → lô được thử lại, không mất dòng nào
+ * 2. 1.000 ván, trong đó 1 ván có dòng bị CHECK constraint từ chối (23000) và
+ * 1 lần cộng điểm bị từ chối → chia đôi lô tới khi còn đúng 2 sự kiện lỗi
+ * (dead letter), phần còn lại vẫn được ghi
+ * 3. 20.000 lần cộng điểm liền nhau với -Dserver.db.writeQueueMax (mặc định
+ * ở đây 5000) → báo tồn đọng 1 lần, không bỏ sự kiện nào
+ *
+ * Dùng: java -cp out bench.WriteBehindCheck
+ *
+ * ═══════════════════════════════════════════════════════════════════════════
+ */
+public final class WriteBehindCheck {
+    private static final int USERS = 300;
+    private static final int POISON_DELTA = 424_242;
+    private static final String POISON_HAND = "POISON";
+
+    private static final Set<Integer> matchRows = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger resultRows = new AtomicInteger();
+    private static final AtomicLong pointSum = new AtomicLong();
+
+    private WriteBehindCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("server.db.writeQueueMax") == null) {
+            System.setProperty("server.db.writeQueueMax", "5000"); // trước khi ServerConfig được nạp
+        }
+        StubJdbc.latencyMs = Long.getLong("bench.db.latencyMs", 2);
+        StubJdbc.install();
+        StubJdbc.onWrittenRow = (sql, row) -> {
+            if (sql.startsWith("UPDATE Matches")) {
+                matchRows.add((Integer) row.get(4));
+            } else if (sql.startsWith("INSERT INTO MatchResults")) {
+                resultRows.incrementAndGet();
+            } else if (sql.startsWith("UPDATE Players SET TotalPoints")) {
+                pointSum.addAndGet((Integer) row.get(1));
+            }
+        };
+
+        Database db = new Database();
+        for (int u = 0; u < USERS; u++) {
+            db.login("u" + u, "hash");
+        }
+        db.login("poison", "hash");
+        boolean ok = true;
+
+        // 1. Deadlock ở commit đầu tiên
+        StubJdbc.failNextCommit.set(new SQLException("Transaction was deadlocked", "40001", 1205));
+        long t0 = System.nanoTime();
+        int events = enqueueMatches(db, 1, 2000, -1);
+        long enqueued = System.nanoTime();
+        waitWritten(events);
+        boolean first = matchRows.size() == 2000 && resultRows.get() == 8000 && pointSum.get() == 2000 * 7
+                && ServerMetrics.count("db.writer.failures") == 1;
+        System.out.printf("1. 2.000 ván + 8.000 cộng điểm: xếp hàng %.1f ms, ghi xong %.0f ms, %d transaction,"
+                + " thử lại %d; dòng Matches %d, MatchResults %d, tổng điểm %d → %s%n", (enqueued - t0) / 1e6,
+                (System.nanoTime() - t0) / 1e6, ServerMetrics.count("db.writer.flushes"),
+                ServerMetrics.count("db.writer.failures"), matchRows.size(), resultRows.get(), pointSum.get(),
+                first ? "✅" : "❌");
+        ok &= first;
+
+        // 2. Sự kiện độc
+        StubJdbc.rejectRow = row -> row.containsValue(POISON_DELTA) || row.containsValue(POISON_HAND);
+        matchRows.clear();
+        resultRows.set(0);
+        pointSum.set(0);
+        events += enqueueMatches(db, 2001, 1000, 300);
+        db.addPoints("poison", null, POISON_DELTA);
+        events++;
+        waitWritten(events);
+        boolean second = ServerMetrics.count("db.writer.deadLetters") == 2 && matchRows.size() == 999
+                && resultRows.get() == 999 * 4 && pointSum.get() == 1000 * 7;
+        System.out.printf("2. 1.000 ván + 1 cộng điểm lỗi: dead letter %d, chia đôi %d lần; dòng Matches %d,"
+                + " MatchResults %d, tổng điểm %d → %s%n", ServerMetrics.count("db.writer.deadLetters"),
+                ServerMetrics.count("db.writer.splits"), matchRows.size(), resultRows.get(), pointSum.get(),
+                second ? "✅" : "❌");
+        ok &= second;
+        StubJdbc.rejectRow = row -> false;
+
+        // 3. Tồn đọng (lần 1 cũng vượt ngưỡng → đếm từ đây)
+        long alarms = ServerMetrics.count("db.writer.backlogAlarms");
+        pointSum.set(0);
+        for (int i = 0; i < 20_000; i++) {
+            db.addPoints("u" + i % USERS, null, 1);
+        }
+        events += 20_000;
+        waitWritten(events);
+        alarms = ServerMetrics.count("db.writer.backlogAlarms") - alarms;
+        boolean third = alarms == 1 && pointSum.get() == 20_000;
+        System.out.printf("3. 20.000 cộng điểm liền nhau (ngưỡng %s): báo tồn đọng %d lần, tổng điểm đã ghi %d"
+                + " → %s%n",
+                System.getProperty("server.db.writeQueueMax"), alarms, pointSum.get(), third ? "✅" : "❌");
+        ok &= third;
+
+        System.out.println(StubJdbc.counters());
+        System.out.println(ok ? "✅ OK" : "❌ LỖI");
+        System.exit(ok ? 0 : 1);
+    }
+
+    // count ván từ MatchID firstId, mỗi ván 4 dòng kết quả + 4 lần cộng điểm (+5, +2, +1, -1);
+    // ván thứ poisonAt có 1 dòng kết quả bị từ chối. Trả về số sự kiện đã xếp hàng.
+    private static int enqueueMatches(Database db, int firstId, int count, int poisonAt) {
+        int[] deltas = { 5, 2, 1, -1 };
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            List<WriteBehindQueue.ResultRow> rows = new ArrayList<>();
+            for (int k = 0; k < 4; k++) {
+                String user = "u" + (i * 4 + k) % USERS;
+                rows.add(new WriteBehindQueue.ResultRow(user, null, k + 1, deltas[k],
+                        i == poisonAt && k == 3 ? POISON_HAND : "HighCard", "A♠ 2♥ 3♦"));
+                db.addPoints(user, null, deltas[k]);
+            }
+            db.saveMatch(firstId + i, 4, now, rows.get(0).username, null, rows);
+        }
+        return count * 5;
+    }
+
+    // Chờ writer xử lý xong (đã ghi hoặc đã vào dead letter) đủ số sự kiện
+    private static void waitWritten(int events) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (ServerMetrics.count("db.writer.events") + ServerMetrics.count("db.writer.deadLetters") < events
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}